@@ -0,0 +1,33 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.service.AccountAggregateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the per day and per month aggregates of every account once the application is up,
+ * to fill them in for the transactions stored before they were kept.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.aggregates.backfill-on-startup", havingValue = "true")
+@Slf4j
+public class AccountAggregateBackfill {
+
+    private final AccountAggregateService accountAggregateService;
+
+    public AccountAggregateBackfill(AccountAggregateService accountAggregateService) {
+        this.accountAggregateService = accountAggregateService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            accountAggregateService.backfill();
+        } catch (Exception ex) {
+            log.error("Fail backfilling the account aggregates", ex);
+        }
+    }
+}
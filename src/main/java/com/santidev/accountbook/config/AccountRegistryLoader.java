@@ -0,0 +1,33 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.service.AccountRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the user accounts into the {@link AccountRegistry} once the application is up. Until
+ * then, or if the load fails, transactions aren't checked against it.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.accounts.preload-registry", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AccountRegistryLoader {
+
+    private final AccountRegistry accountRegistry;
+
+    public AccountRegistryLoader(AccountRegistry accountRegistry) {
+        this.accountRegistry = accountRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            accountRegistry.load();
+        } catch (Exception ex) {
+            log.error("Fail loading the account registry, transactions aren't checked against it", ex);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.service.AccountLockStripes;
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.BalanceFeed;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the state of the account locks, the balance cache and the balance feed as meters,
+ * next to the ledger timers of {@link com.santidev.accountbook.service.LedgerMetrics}.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterBinder accountLockStripesMetrics(AccountLockStripes accountLockStripes) {
+        return registry -> {
+            Gauge.builder("accountbook.lock.stripes", accountLockStripes, AccountLockStripes::getStripeCount)
+                .description("Number of account lock stripes")
+                .register(registry);
+            Gauge.builder("accountbook.lock.queue.depth", accountLockStripes, AccountLockStripes::getQueueDepth)
+                .description("Threads currently waiting on an account lock")
+                .register(registry);
+            Gauge.builder("accountbook.lock.queue.depth.max", accountLockStripes, AccountLockStripes::getMaxQueueDepth)
+                .description("Deepest queue observed on a single account lock since startup")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder balanceCacheMetrics(BalanceCache balanceCache) {
+        return registry -> {
+            Gauge.builder("accountbook.balance.cache.size", balanceCache, BalanceCache::size)
+                .description("Balances currently cached")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.cache.gets", balanceCache, cache -> cache.stats().hitCount())
+                .description("Balance cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.cache.gets", balanceCache, cache -> cache.stats().missCount())
+                .description("Balance cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.cache.evictions", balanceCache, cache -> cache.stats().evictionCount())
+                .description("Balances evicted from the cache")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder balanceFeedMetrics(BalanceFeed balanceFeed) {
+        return registry -> {
+            Gauge.builder("accountbook.balance.feed.subscribers", balanceFeed, BalanceFeed::getSubscribers)
+                .description("Open subscriptions to balance changes")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.feed.coalesced", balanceFeed, BalanceFeed::getCoalesced)
+                .description("Balance changes folded into a change not yet sent to the subscribers")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.feed.dropped", balanceFeed, BalanceFeed::getDropped)
+                .description("Balances dropped from the buffer of a slow subscriber")
+                .register(registry);
+            FunctionCounter.builder("accountbook.balance.feed.stalled", balanceFeed, BalanceFeed::getStalled)
+                .description("Subscriptions closed because their client stopped reading")
+                .register(registry);
+        };
+    }
+
+}
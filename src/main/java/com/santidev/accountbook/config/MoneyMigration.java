@@ -0,0 +1,70 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.IdempotencyKey;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rewrites the amounts stored as Decimal128, doubles, strings or Int32 whole amounts, before
+ * amounts were stored as {@link Money}, into Int64 minor units, rounded half even. It runs on the server, with one
+ * pipeline update per field, while the context starts and so before any request is served;
+ * if it fails the application doesn't start. Documents already migrated don't match, so running
+ * it again is cheap and safe. The balance updates only match Int64 totals, so a legacy total is
+ * never incremented in the meantime; one written afterwards, e.g. by an instance that is still
+ * running, is migrated in place by the update that missed it.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.mongo.migrate-money", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class MoneyMigration {
+
+    private static final List<String> LEGACY_TYPES = List.of("decimal", "double", "string", "int");
+
+    private static final List<MoneyField> FIELDS = List.of(
+        new MoneyField(Transaction.class, "amount"),
+        new MoneyField(Balance.class, "total"),
+        new MoneyField(BalanceSnapshot.class, "total"),
+        new MoneyField(IdempotencyKey.class, "transaction.amount"));
+
+    private final MongoTemplate mongoTemplate;
+
+    public MoneyMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (MoneyField field : FIELDS) {
+            long migrated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(field.document()))
+                .updateMany(legacyAmounts(field.name()), List.of(toMinorUnits(field.name())))
+                .getModifiedCount();
+            if (migrated > 0) {
+                log.info("Migrated {} {}.{} amounts to minor units", migrated, field.document().getSimpleName(), field.name());
+            }
+        }
+    }
+
+    public static Document legacyAmounts(String field) {
+        return new Document(field, new Document("$type", LEGACY_TYPES));
+    }
+
+    public static Document toMinorUnits(String field) {
+        Document scaled = new Document("$multiply", List.of(new Document("$toDecimal", "$" + field),
+            Money.of(1).getMinorUnits()));
+        return new Document("$set", new Document(field,
+            new Document("$toLong", new Document("$round", List.of(scaled, 0)))));
+    }
+
+    private record MoneyField(Class<?> document, String name) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.model.Money;
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Stores {@link Money} as an Int64 of minor units, so balances and sums can be updated with
+ * {@code $inc} and {@code $sum} on the server. Amounts still stored the old way, as Decimal128 or
+ * strings, or as Int32 whole amounts, are read rounded half even to {@link Money#DEFAULT_SCALE}
+ * decimals until {@link MoneyMigration} rewrites them.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MongoConversionsConfiguration {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+            MoneyToLongConverter.INSTANCE,
+            LongToMoneyConverter.INSTANCE,
+            Decimal128ToMoneyConverter.INSTANCE,
+            StringToMoneyConverter.INSTANCE,
+            IntegerToMoneyConverter.INSTANCE));
+    }
+
+    @WritingConverter
+    enum MoneyToLongConverter implements Converter<Money, Long> {
+        INSTANCE;
+
+        @Override
+        public Long convert(Money source) {
+            if (source.getScale() != Money.DEFAULT_SCALE) {
+                throw new IllegalArgumentException("Only amounts of scale " + Money.DEFAULT_SCALE + " can be stored");
+            }
+            return source.getMinorUnits();
+        }
+    }
+
+    @ReadingConverter
+    enum LongToMoneyConverter implements Converter<Long, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Long source) {
+            return Money.ofMinor(source);
+        }
+    }
+
+    @ReadingConverter
+    enum Decimal128ToMoneyConverter implements Converter<Decimal128, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Decimal128 source) {
+            return Money.rounded(source.bigDecimalValue());
+        }
+    }
+
+    @ReadingConverter
+    enum StringToMoneyConverter implements Converter<String, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(String source) {
+            return Money.rounded(new BigDecimal(source));
+        }
+    }
+
+    @ReadingConverter
+    enum IntegerToMoneyConverter implements Converter<Integer, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Integer source) {
+            return Money.of(source);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.IdempotencyKey;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.UserAccount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the {@code @Document} models once the application is up.
+ * <p>
+ * Spring Data's auto index creation is off by default and would make the startup fail when
+ * Mongo isn't reachable; here a failure is only logged so the application can still serve. Each
+ * index is tried on its own, so one that can't be built, like the unique index on the account of
+ * the balances while there are duplicates, doesn't keep the others from being created.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.mongo.ensure-indexes", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(UserAccount.class, Balance.class, Transaction.class,
+        BalanceSnapshot.class, IdempotencyKey.class, AccountAggregate.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int created = 0;
+        for (Class<?> document : DOCUMENTS) {
+            try {
+                for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                    try {
+                        mongoTemplate.indexOps(document).ensureIndex(index);
+                        created++;
+                    } catch (Exception ex) {
+                        log.error("Fail creating index {} of {}", index.getIndexKeys(), document.getSimpleName(), ex);
+                    }
+                }
+            } catch (Exception ex) {
+                log.error("Fail creating the indexes of {}", document.getSimpleName(), ex);
+            }
+        }
+        log.info("Ensured {} indexes", created);
+    }
+}
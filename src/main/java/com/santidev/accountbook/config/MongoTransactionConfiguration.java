@@ -0,0 +1,22 @@
+package com.santidev.accountbook.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Registers a {@link MongoTransactionManager}, so transfers write both balances and both
+ * transactions in one multi-document transaction. Mongo only supports them on replica sets and
+ * sharded clusters, so it's opt-in; without it transfers undo their writes on failure instead.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "accountbook.transfers.mongo-transactions", havingValue = "true")
+public class MongoTransactionConfiguration {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
@@ -0,0 +1,12 @@
+package com.santidev.accountbook.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the periodic jobs, like the balance snapshots.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
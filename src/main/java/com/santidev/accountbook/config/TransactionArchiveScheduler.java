@@ -0,0 +1,32 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.service.TransactionArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Archives the transactions past the horizon periodically, when
+ * {@code accountbook.archive.enabled} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.archive.enabled", havingValue = "true")
+@Slf4j
+public class TransactionArchiveScheduler {
+
+    private final TransactionArchiveService transactionArchiveService;
+
+    public TransactionArchiveScheduler(TransactionArchiveService transactionArchiveService) {
+        this.transactionArchiveService = transactionArchiveService;
+    }
+
+    @Scheduled(cron = "${accountbook.archive.cron:0 45 0 * * *}")
+    public void archive() {
+        try {
+            transactionArchiveService.archive();
+        } catch (Exception ex) {
+            log.error("Fail archiving transactions", ex);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.santidev.accountbook.config;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.UserAccount;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Gives the balances and user accounts stored before they had a version the version 0, so an
+ * update of them is checked like any other instead of being taken for an insert of a new
+ * document. It runs on the server, with one update per collection, while the context starts and
+ * so before any request is served; if it fails the application doesn't start. Documents with a
+ * version don't match, so running it again is cheap and safe.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.mongo.migrate-versions", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class VersionMigration {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(Balance.class, UserAccount.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public VersionMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (Class<?> document : DOCUMENTS) {
+            long migrated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(document))
+                .updateMany(new Document("version", new Document("$exists", false)),
+                    new Document("$set", new Document("version", 0L)))
+                .getModifiedCount();
+            if (migrated > 0) {
+                log.info("Set version 0 on {} {} documents", migrated, document.getSimpleName());
+            }
+        }
+    }
+}
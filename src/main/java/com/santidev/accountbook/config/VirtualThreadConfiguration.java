@@ -0,0 +1,67 @@
+package com.santidev.accountbook.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in execution mode that serves every request, and so every blocking Mongo call done for
+ * it, on its own virtual thread instead of on the bounded Tomcat pool. Asynchronous MVC work,
+ * like the NDJSON streams, runs on virtual threads too.
+ * <p>
+ * Enabled with {@code accountbook.threads.virtual=true}. Virtual threads need JDK 21; on an
+ * older runtime the mode logs a warning and the platform-thread pool is kept.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accountbook.threads.virtual", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    private final Optional<ExecutorService> executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> executor.ifPresent(protocolHandler::setExecutor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupportConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                executor.ifPresent(e -> configurer.setTaskExecutor(new TaskExecutorAdapter(e)));
+            }
+        };
+    }
+
+    /**
+     * @return {@code true} if requests are served on virtual threads.
+     */
+    public boolean isActive() {
+        return executor.isPresent();
+    }
+
+    private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+            log.info("Serving requests on virtual threads");
+            return Optional.of(executor);
+        } catch (ReflectiveOperationException ex) {
+            log.warn("Virtual threads need JDK 21 or later, running on {}; keeping the platform thread pool",
+                Runtime.version());
+            return Optional.empty();
+        }
+    }
+
+}
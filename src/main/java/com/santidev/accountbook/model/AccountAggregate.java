@@ -0,0 +1,93 @@
+package com.santidev.accountbook.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * An AccountAggregate: the credits and debits of an account in one day or one month, the
+ * {@code bucket}, which is the day or the first day of the month.
+ */
+@Document(collection = "account_aggregate")
+@CompoundIndex(name = "account_granularity_bucket", def = "{'account_id': 1, 'granularity': 1, 'bucket': 1}", unique = true)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountAggregate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    public static final String DAY = "day";
+    public static final String MONTH = "month";
+
+    @Id
+    private String id;
+
+    @Field("account_id")
+    private String accountId;
+
+    @Field("granularity")
+    private String granularity;
+
+    @Field("bucket")
+    private LocalDate bucket;
+
+    @Field("credits")
+    private Money credits;
+
+    @Field("debits")
+    private Money debits;
+
+    @Field("credit_count")
+    private long creditCount;
+
+    @Field("debit_count")
+    private long debitCount;
+
+    /**
+     * @param granularity {@link #DAY} or {@link #MONTH}.
+     * @param date an effective date.
+     * @return the bucket the date falls in.
+     */
+    public static LocalDate bucketOf(String granularity, LocalDate date) {
+        return MONTH.equals(granularity) ? date.withDayOfMonth(1) : date;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AccountAggregate)) {
+            return false;
+        }
+        return id != null && id.equals(((AccountAggregate) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountAggregate{" +
+            "id=" + getId() +
+            ", accountId='" + getAccountId() + "'" +
+            ", granularity='" + getGranularity() + "'" +
+            ", bucket='" + getBucket() + "'" +
+            ", credits=" + getCredits() +
+            ", debits=" + getDebits() +
+            ", creditCount=" + getCreditCount() +
+            ", debitCount=" + getDebitCount() +
+            "}";
+    }
+}
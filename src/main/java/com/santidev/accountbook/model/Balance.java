@@ -1,15 +1,19 @@
 package com.santidev.accountbook.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A Balance.
@@ -27,10 +31,57 @@ public class Balance implements Serializable {
     private String id;
 
     @Field("account_id")
+    @Indexed(name = "account_id", unique = true)
     private String accountId;
 
     @Field("total")
-    private BigDecimal total;
+    private Money total;
+
+    /**
+     * The part of the total that doesn't come from the transactions of the account, set when the
+     * total is set through the API; reconciliation expects the total to be this plus the sum of
+     * the transactions. Missing means zero.
+     */
+    @JsonIgnore
+    @Field("opening_total")
+    private Money openingTotal;
+
+    /**
+     * Sequence of the last record of each transaction journal applied to the total, by the id
+     * of the journal; every instance has its own journal and sequences.
+     */
+    @JsonIgnore
+    @Field("journal_seqs")
+    private Map<String, Long> journalSeqs;
+
+    /**
+     * Ids of the transaction imports whose rows were added to the total, so an import resumed
+     * after it failed doesn't add them again.
+     */
+    @JsonIgnore
+    @Field("import_ids")
+    private Set<String> importIds;
+
+    /**
+     * Incremented by every write, including the {@code $inc} of the total; a save with an older
+     * version fails. Sent as the ETag of the balance.
+     */
+    @Version
+    @Field("version")
+    private Long version;
+
+    /**
+     * @param total the total being set without a transaction.
+     * @return the opening total once the total is set, so the transactions already counted in the
+     * total still are.
+     */
+    public Money openingTotalFor(Money total) {
+        Money opening = openingTotal == null ? Money.ZERO : openingTotal;
+        if (total == null || this.total == null) {
+            return opening;
+        }
+        return opening.plus(total.minus(this.total));
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -54,6 +105,8 @@ public class Balance implements Serializable {
             "id=" + getId() +
             ", accountId='" + getAccountId() + "'" +
             ", total=" + getTotal() +
+            ", openingTotal=" + getOpeningTotal() +
+            ", journalSeqs=" + getJournalSeqs() +
             "}";
     }
 }
@@ -0,0 +1,65 @@
+package com.santidev.accountbook.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A BalanceSnapshot: the total of an account at the end of an effective date.
+ */
+@Document(collection = "balance_snapshot")
+@CompoundIndex(name = "account_effective_date", def = "{'account_id': 1, 'effective_date': -1}", unique = true)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @Field("account_id")
+    private String accountId;
+
+    @Field("effective_date")
+    private LocalDate effectiveDate;
+
+    @Field("total")
+    private Money total;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BalanceSnapshot)) {
+            return false;
+        }
+        return id != null && id.equals(((BalanceSnapshot) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSnapshot{" +
+            "id=" + getId() +
+            ", accountId='" + getAccountId() + "'" +
+            ", effectiveDate='" + getEffectiveDate() + "'" +
+            ", total=" + getTotal() +
+            "}";
+    }
+}
@@ -0,0 +1,67 @@
+package com.santidev.accountbook.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * An IdempotencyKey: the client supplied key of a transaction creation and the transaction it
+ * created, or no transaction while the request holding the key is still running. Mongo drops
+ * the key once {@code expiresAt} is past.
+ */
+@Document(collection = "idempotency_key")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String key;
+
+    @Field("fingerprint")
+    private String fingerprint;
+
+    @Field("transaction")
+    private Transaction transaction;
+
+    @Field("expires_at")
+    @Indexed(name = "expires_at_ttl", expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdempotencyKey)) {
+            return false;
+        }
+        return key != null && key.equals(((IdempotencyKey) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyKey{" +
+            "key='" + getKey() + "'" +
+            ", fingerprint='" + getFingerprint() + "'" +
+            ", transaction=" + getTransaction() +
+            ", expiresAt='" + getExpiresAt() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,269 @@
+package com.santidev.accountbook.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * An amount of money as a whole number of minor units of its currency, e.g. cents for a
+ * currency with two decimals, so adding, subtracting and comparing amounts is {@code long}
+ * arithmetic. Operations fail with an {@link ArithmeticException} instead of overflowing.
+ * <p>
+ * The ledger keeps every amount in {@link #DEFAULT_SCALE} decimals; that is the scale amounts
+ * are stored in Mongo with, as an Int64. Amounts of different scales can't be mixed.
+ * In JSON an amount is a decimal number.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_SCALE = 2;
+    public static final Money ZERO = new Money(0, DEFAULT_SCALE);
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+        10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    /**
+     * @param minorUnits the amount in minor units of {@link #DEFAULT_SCALE}.
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits, DEFAULT_SCALE);
+    }
+
+    /**
+     * @param minorUnits the amount in minor units.
+     * @param scale the number of decimals of the currency.
+     */
+    public static Money ofMinor(long minorUnits, int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported scale " + scale);
+        }
+        return scale == DEFAULT_SCALE ? ofMinor(minorUnits) : new Money(minorUnits, scale);
+    }
+
+    /**
+     * @param amount the amount in whole units, with {@link #DEFAULT_SCALE} decimals.
+     */
+    public static Money of(long amount) {
+        return ofMinor(Math.multiplyExact(amount, POWERS_OF_TEN[DEFAULT_SCALE]));
+    }
+
+    /**
+     * @param amount the amount, with at most {@link #DEFAULT_SCALE} decimals.
+     */
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_SCALE);
+    }
+
+    /**
+     * @param amount the amount, with at most the decimals of the currency.
+     * @param currency the currency, which gives the scale.
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return of(amount, Math.max(0, currency.getDefaultFractionDigits()));
+    }
+
+    /**
+     * @param amount the amount, with at most {@code scale} decimals.
+     * @param scale the number of decimals of the currency.
+     */
+    public static Money of(BigDecimal amount, int scale) {
+        BigDecimal scaled;
+        try {
+            scaled = amount.setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Invalid amount " + amount.toPlainString() + ", at most " + scale + " decimals are supported");
+        }
+        try {
+            return ofMinor(scaled.unscaledValue().longValueExact(), scale);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Invalid amount " + amount.toPlainString() + ", it is too large");
+        }
+    }
+
+    /**
+     * @param amount the amount, rounded half even to {@link #DEFAULT_SCALE} decimals.
+     */
+    public static Money rounded(BigDecimal amount) {
+        return of(amount.setScale(DEFAULT_SCALE, RoundingMode.HALF_EVEN));
+    }
+
+    /**
+     * Parses a plain decimal amount, like {@code 125.5} or {@code -3}, with at most
+     * {@link #DEFAULT_SCALE} decimals, straight into minor units without allocating.
+     *
+     * @param text the text holding the amount.
+     * @param start the index of its first character.
+     * @param end the index after its last character.
+     * @throws NumberFormatException if it isn't a plain decimal, has too many decimals or is too large.
+     */
+    public static Money parse(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = i < end && text.charAt(i) == '-';
+        if (negative || (i < end && text.charAt(i) == '+')) {
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9' || decimals == DEFAULT_SCALE) {
+                throw new NumberFormatException("Invalid amount " + text.subSequence(start, end));
+            }
+            try {
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Invalid amount " + text.subSequence(start, end) + ", it is too large");
+            }
+            digits++;
+            if (decimals >= 0) {
+                decimals++;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid amount " + text.subSequence(start, end));
+        }
+        try {
+            units = Math.multiplyExact(units, POWERS_OF_TEN[DEFAULT_SCALE - Math.max(decimals, 0)]);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Invalid amount " + text.subSequence(start, end) + ", it is too large");
+        }
+        return ofMinor(negative ? -units : units);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public Money plus(Money other) {
+        checkScale(other);
+        return other.minorUnits == 0 ? this : ofMinor(Math.addExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public Money minus(Money other) {
+        checkScale(other);
+        return other.minorUnits == 0 ? this : ofMinor(Math.subtractExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public Money negate() {
+        return minorUnits == 0 ? this : ofMinor(Math.negateExact(minorUnits), scale);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkScale(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void checkScale(Money other) {
+        if (other.scale != scale) {
+            throw new IllegalArgumentException("Amounts of scale " + scale + " and " + other.scale + " can't be mixed");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && scale == money.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + scale;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    static class Serializer extends StdScalarSerializer<Money> {
+
+        Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    static class Deserializer extends StdScalarDeserializer<Money> {
+
+        Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            BigDecimal amount;
+            if (p.hasToken(JsonToken.VALUE_NUMBER_INT) || p.hasToken(JsonToken.VALUE_NUMBER_FLOAT)) {
+                amount = p.getDecimalValue();
+            } else if (p.hasToken(JsonToken.VALUE_STRING)) {
+                try {
+                    amount = new BigDecimal(p.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(p, "Invalid amount", p.getText(), Money.class);
+                }
+            } else {
+                return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+            }
+            try {
+                return of(amount);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(p, e.getMessage(), amount, Money.class);
+            }
+        }
+    }
+}
@@ -1,21 +1,24 @@
 package com.santidev.accountbook.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.LocalDate;
 
 /**
  * A Transaction.
  */
 @Document(collection = "transaction")
+@CompoundIndex(name = "account_effective_date", def = "{'id_user_account': 1, 'effective_date': 1, '_id': 1}")
 @Data
 @Builder
 @NoArgsConstructor
@@ -36,11 +39,26 @@ public class Transaction implements Serializable {
     private String type;
 
     @Field("amount")
-    private BigDecimal amount;
+    private Money amount;
 
+    /**
+     * Indexed on its own too, for archiving, which picks the oldest transactions of every account.
+     */
     @Field("effective_date")
+    @Indexed(name = "effective_date")
     private LocalDate effectiveDate;
 
+    @Field("transfer_id")
+    @Indexed(sparse = true)
+    private String transferId;
+
+    /**
+     * The import that wrote the transaction, so the balance of its account only takes the
+     * amounts of the rows of that import.
+     */
+    @JsonIgnore
+    @Field("import_id")
+    private String importId;
 
     @Override
     public boolean equals(Object o) {
@@ -66,6 +84,7 @@ public class Transaction implements Serializable {
             ", type='" + getType() + "'" +
             ", amount=" + getAmount() +
             ", effectiveDate='" + getEffectiveDate() + "'" +
+            ", transferId='" + getTransferId() + "'" +
             "}";
     }
 }
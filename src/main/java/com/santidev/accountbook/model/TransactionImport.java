@@ -0,0 +1,97 @@
+package com.santidev.accountbook.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A TransactionImport: the progress of a bulk import of transactions from a file. Every row up to
+ * {@code checkpointRow} was stored or rejected, so an import that failed is resumed after it.
+ */
+@Document(collection = "transaction_import")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionImport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    public static final String RUNNING = "running";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    @Id
+    private String id;
+
+    @Field("format")
+    private String format;
+
+    @Field("status")
+    private String status;
+
+    @Field("checkpoint_row")
+    private long checkpointRow;
+
+    @Field("rows_read")
+    private long rowsRead;
+
+    @Field("rows_rejected")
+    private long rowsRejected;
+
+    @Field("accounts")
+    private long accounts;
+
+    @Field("rows_per_second")
+    private long rowsPerSecond;
+
+    @Field("errors")
+    @Builder.Default
+    private List<String> errors = new ArrayList<>();
+
+    @Field("started_at")
+    private Instant startedAt;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TransactionImport)) {
+            return false;
+        }
+        return id != null && id.equals(((TransactionImport) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionImport{" +
+            "id=" + getId() +
+            ", format='" + getFormat() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", checkpointRow=" + getCheckpointRow() +
+            ", rowsRead=" + getRowsRead() +
+            ", rowsRejected=" + getRowsRejected() +
+            ", accounts=" + getAccounts() +
+            ", rowsPerSecond=" + getRowsPerSecond() +
+            ", startedAt='" + getStartedAt() + "'" +
+            ", updatedAt='" + getUpdatedAt() + "'" +
+            "}";
+    }
+}
@@ -3,6 +3,7 @@ package com.santidev.accountbook.model;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -27,6 +28,14 @@ public class UserAccount implements Serializable {
     @Field("disabled")
     private Boolean disabled;
 
+    /**
+     * Incremented by every save; a save with an older version fails. Sent as the ETag of the
+     * user account.
+     */
+    @Version
+    @Field("version")
+    private Long version;
+
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,20 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+
+/**
+ * Spring Data MongoDB repository for the AccountAggregate entity.
+ */
+public interface AccountAggregateRepository extends MongoRepository<AccountAggregate, String>, AccountAggregateRepositoryCustom {
+
+	void deleteByAccountId(String accountId);
+
+	/**
+	 * @return the number of buckets removed.
+	 */
+	long deleteByAccountIdIn(Collection<String> accountIds);
+
+}
@@ -0,0 +1,34 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.AccountAggregate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom operations for the AccountAggregate entity that can't be expressed as derived queries.
+ */
+public interface AccountAggregateRepositoryCustom {
+
+    /**
+     * Reads the buckets of an account in a range, ordered by bucket, from the
+     * {@code account_granularity_bucket} index.
+     *
+     * @param accountId the id of the user account.
+     * @param granularity {@link AccountAggregate#DAY} or {@link AccountAggregate#MONTH}.
+     * @param from the first bucket to include, may be {@code null}.
+     * @param to the last bucket to include, may be {@code null}.
+     * @return the buckets in the range.
+     */
+    List<AccountAggregate> findBuckets(String accountId, String granularity, LocalDate from, LocalDate to);
+
+    /**
+     * Adds the credits, debits and counts of each delta to the bucket with the same account,
+     * granularity and bucket, creating it if missing, with a single unordered bulk write.
+     *
+     * @param deltas the amounts and counts to add, one per bucket.
+     */
+    void addToBuckets(Collection<AccountAggregate> deltas);
+
+}
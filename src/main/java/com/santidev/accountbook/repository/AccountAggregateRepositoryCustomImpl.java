@@ -0,0 +1,57 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link AccountAggregateRepositoryCustom} implementation backed by {@link MongoOperations}.
+ */
+public class AccountAggregateRepositoryCustomImpl implements AccountAggregateRepositoryCustom {
+
+    private final MongoOperations mongoOperations;
+
+    public AccountAggregateRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public List<AccountAggregate> findBuckets(String accountId, String granularity, LocalDate from, LocalDate to) {
+        Criteria criteria = Criteria.where("accountId").is(accountId).and("granularity").is(granularity);
+        if (from != null && to != null) {
+            criteria = criteria.and("bucket").gte(from).lte(to);
+        } else if (from != null) {
+            criteria = criteria.and("bucket").gte(from);
+        } else if (to != null) {
+            criteria = criteria.and("bucket").lte(to);
+        }
+        return mongoOperations.find(Query.query(criteria).with(Sort.by("bucket").ascending()), AccountAggregate.class);
+    }
+
+    @Override
+    public void addToBuckets(Collection<AccountAggregate> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AccountAggregate.class);
+        for (AccountAggregate delta : deltas) {
+            bulk.upsert(Query.query(Criteria.where("accountId").is(delta.getAccountId())
+                    .and("granularity").is(delta.getGranularity())
+                    .and("bucket").is(delta.getBucket())),
+                new Update()
+                    .inc("credits", delta.getCredits().getMinorUnits())
+                    .inc("debits", delta.getDebits().getMinorUnits())
+                    .inc("creditCount", delta.getCreditCount())
+                    .inc("debitCount", delta.getDebitCount()));
+        }
+        bulk.execute();
+    }
+}
@@ -3,13 +3,27 @@ package com.santidev.accountbook.repository;
 import com.santidev.accountbook.model.Balance;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Spring Data MongoDB repository for the Balance entity.
  */
-public interface BalanceRepository extends MongoRepository<Balance, String> {
+public interface BalanceRepository extends MongoRepository<Balance, String>, BalanceRepositoryCustom {
 
 	List<Balance> findByAccountId(String idUserAccount);
 
+	List<Balance> findByAccountIdIn(Collection<String> accountIds);
+
+	/**
+	 * @return every balance, read lazily from a cursor. The stream must be closed.
+	 */
+	Stream<Balance> streamAllBy();
+
+	/**
+	 * @return the number of balances removed.
+	 */
+	long deleteByAccountIdIn(Collection<String> accountIds);
+
 }
@@ -0,0 +1,101 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Custom operations for the Balance entity that can't be expressed as derived queries. Every
+ * update also increments the {@link Balance#getVersion() version} of the balance.
+ */
+public interface BalanceRepositoryCustom {
+
+    /**
+     * Atomically adds {@code delta} to the total of the balance of the given account.
+     * A negative delta is only applied when the current total covers it, so the
+     * negative balance check and the write happen in one single round trip.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @param delta the amount to add, negative for debits.
+     * @return the balance after the update, or empty if there is no balance for the account
+     * or it doesn't cover the debit.
+     */
+    Optional<Balance> addToTotal(String accountId, Money delta);
+
+    /**
+     * Rewrites the total of the balance of the given account into Int64 minor units if it is
+     * still stored the legacy way, like the {@code MoneyMigration} does, in a single update that
+     * only matches a legacy total. The updates that add to a total don't match a legacy one, so
+     * this is what lets them take it. It doesn't change the total the balance reads as, so it
+     * keeps its version.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @return whether a legacy total was rewritten.
+     */
+    boolean migrateTotal(String accountId);
+
+    /**
+     * Atomically sets the total of the balance of the given account, only if it is still
+     * {@code current}, so a write that landed since it was read is never overwritten.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @param current the total the balance was read with.
+     * @param total the new total.
+     * @return the balance after the update, or empty if there is no balance for the account
+     * or its total changed.
+     */
+    Optional<Balance> setTotalIfUnchanged(String accountId, Money current, Money total);
+
+    /**
+     * Adds each delta to the total of the balance of its account, unconditionally, with a
+     * single unordered bulk write.
+     *
+     * @param deltas the amount to add to each balance, keyed by user account id.
+     */
+    void addToTotals(Map<String, Money> deltas);
+
+    /**
+     * Adds each delta to the total of the balance of its account. Credits go in a single
+     * unordered bulk write; each debit is guarded like {@link #addToTotal}, so it is only
+     * applied when the current total covers it, even against writers of other instances.
+     *
+     * @param deltas the amount to add to each balance, keyed by user account id.
+     * @return the accounts whose debit wasn't applied, because their balance is missing or
+     * doesn't cover it.
+     */
+    Set<String> addToTotalsIfCovered(Map<String, Money> deltas);
+
+    /**
+     * Adds the deltas of journal records to the balances of their accounts with a single
+     * unordered bulk write. A balance only takes a delta when the last sequence of the journal
+     * it recorded is before the first record of the delta, and then records the last one, so a
+     * delta is never applied twice.
+     *
+     * @param journalId the id of the journal the records come from.
+     * @param deltas the sum of the journal records of each account.
+     */
+    void addJournaledTotals(String journalId, Collection<JournaledDelta> deltas);
+
+    /**
+     * Adds the sum of the rows of a transaction import to the total of the balance of the given
+     * account, once: the balance records the import, and doesn't take it again.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @param importId the id of the import.
+     * @param delta the sum of the rows of the import for the account.
+     * @return the balance after the update, or empty if there is no balance for the account or
+     * it already took the import.
+     */
+    Optional<Balance> addImportedTotal(String accountId, String importId, Money delta);
+
+    /**
+     * The sum of the amounts of the journal records {@code firstSeq} to {@code lastSeq} of one account.
+     */
+    record JournaledDelta(String accountId, Money delta, long firstSeq, long lastSeq) {
+    }
+
+}
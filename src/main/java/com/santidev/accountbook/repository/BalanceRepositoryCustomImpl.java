@@ -0,0 +1,131 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.config.MoneyMigration;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link BalanceRepositoryCustom} implementation backed by {@link MongoOperations}.
+ */
+public class BalanceRepositoryCustomImpl implements BalanceRepositoryCustom {
+
+    private final MongoOperations mongoOperations;
+
+    public BalanceRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Matches the balance of the account only once its total is stored as Int64 minor units, so
+     * a {@code $inc} never lands on a total still waiting for the {@code MoneyMigration}.
+     */
+    public static Criteria migratedTotalOf(String accountId) {
+        return Criteria.where("accountId").is(accountId).and("total").type(JsonSchemaObject.Type.INT_64);
+    }
+
+    @Override
+    public Optional<Balance> addToTotal(String accountId, Money delta) {
+        Criteria criteria = migratedTotalOf(accountId);
+        if (delta.signum() < 0) {
+            criteria = criteria.gte(delta.negate().getMinorUnits());
+        }
+        Balance updated = mongoOperations.findAndModify(Query.query(criteria),
+            new Update().inc("total", delta.getMinorUnits()).inc("version", 1),
+            FindAndModifyOptions.options().returnNew(true),
+            Balance.class);
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public boolean migrateTotal(String accountId) {
+        return mongoOperations.getCollection(mongoOperations.getCollectionName(Balance.class))
+            .updateOne(legacyTotalOf(accountId), List.of(MoneyMigration.toMinorUnits("total")))
+            .getModifiedCount() > 0;
+    }
+
+    /**
+     * Matches the balance of the account while its total is still stored the legacy way.
+     */
+    public static Document legacyTotalOf(String accountId) {
+        return MoneyMigration.legacyAmounts("total").append("accountId", accountId);
+    }
+
+    @Override
+    public Optional<Balance> setTotalIfUnchanged(String accountId, Money current, Money total) {
+        Balance updated = mongoOperations.findAndModify(
+            Query.query(Criteria.where("accountId").is(accountId).and("total").is(current.getMinorUnits())),
+            new Update().set("total", total.getMinorUnits()).inc("version", 1),
+            FindAndModifyOptions.options().returnNew(true),
+            Balance.class);
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public void addToTotals(Map<String, Money> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Balance.class);
+        deltas.forEach((accountId, delta) ->
+            bulk.updateOne(Query.query(migratedTotalOf(accountId)),
+                new Update().inc("total", delta.getMinorUnits()).inc("version", 1)));
+        bulk.execute();
+    }
+
+    @Override
+    public Set<String> addToTotalsIfCovered(Map<String, Money> deltas) {
+        Map<String, Money> credits = new HashMap<>();
+        Set<String> uncovered = new HashSet<>();
+        deltas.forEach((accountId, delta) -> {
+            if (delta.signum() >= 0) {
+                credits.put(accountId, delta);
+            } else if (addToTotal(accountId, delta).isEmpty()) {
+                uncovered.add(accountId);
+            }
+        });
+        addToTotals(credits);
+        return uncovered;
+    }
+
+    @Override
+    public Optional<Balance> addImportedTotal(String accountId, String importId, Money delta) {
+        Balance updated = mongoOperations.findAndModify(
+            Query.query(migratedTotalOf(accountId).and("importIds").ne(importId)),
+            new Update().inc("total", delta.getMinorUnits()).inc("version", 1).addToSet("importIds", importId),
+            FindAndModifyOptions.options().returnNew(true),
+            Balance.class);
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public void addJournaledTotals(String journalId, Collection<JournaledDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Balance.class);
+        String journalSeq = "journalSeqs." + journalId;
+        for (JournaledDelta delta : deltas) {
+            Criteria criteria = migratedTotalOf(delta.accountId())
+                .and(journalSeq).not().gte(delta.firstSeq());
+            bulk.updateOne(Query.query(criteria),
+                new Update().inc("total", delta.delta().getMinorUnits()).inc("version", 1).set(journalSeq, delta.lastSeq()));
+        }
+        bulk.execute();
+    }
+}
@@ -0,0 +1,24 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.BalanceSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Spring Data MongoDB repository for the BalanceSnapshot entity.
+ */
+public interface BalanceSnapshotRepository extends MongoRepository<BalanceSnapshot, String> {
+
+	Optional<BalanceSnapshot> findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String accountId, LocalDate date);
+
+	void deleteByAccountIdAndEffectiveDateGreaterThanEqual(String accountId, LocalDate date);
+
+	/**
+	 * @return the number of snapshots removed.
+	 */
+	long deleteByAccountIdIn(Collection<String> accountIds);
+
+}
@@ -0,0 +1,11 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.IdempotencyKey;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Spring Data MongoDB repository for the IdempotencyKey entity.
+ */
+public interface IdempotencyKeyRepository extends MongoRepository<IdempotencyKey, String> {
+
+}
@@ -0,0 +1,98 @@
+package com.santidev.accountbook.repository;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Combines the streams read from the hot and the archive collections into one, reading every
+ * source lazily, so results from several collections can be combined without holding them in
+ * memory.
+ */
+final class TieredStreams {
+
+    private TieredStreams() {
+    }
+
+    /**
+     * @param sources the sorted streams; on ties the element of the earlier source comes first.
+     * @param order the order every source is sorted by, which must place equal ids next to each other.
+     * @param id the identity of an element; of consecutive elements with the same one only the first is kept.
+     * @return the merged stream, which closes every source when closed.
+     */
+    static <T> Stream<T> mergeDistinct(List<Stream<T>> sources, Comparator<? super T> order, Function<? super T, ?> id) {
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        Iterator<T> merged = new Iterator<>() {
+
+            private final PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> {
+                int byOrder = order.compare(a.element, b.element);
+                return byOrder != 0 ? byOrder : Integer.compare(a.source, b.source);
+            });
+            private boolean started;
+            private Object lastId;
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                if (!started) {
+                    started = true;
+                    for (int i = 0; i < sources.size(); i++) {
+                        advance(new Head<>(i, sources.get(i).iterator()));
+                    }
+                }
+                while (next == null && !heads.isEmpty()) {
+                    Head<T> head = heads.poll();
+                    T element = head.element;
+                    advance(head);
+                    Object elementId = id.apply(element);
+                    if (lastId == null || !Objects.equals(lastId, elementId)) {
+                        lastId = elementId;
+                        next = element;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T element = next;
+                next = null;
+                return element;
+            }
+
+            private void advance(Head<T> head) {
+                if (head.iterator.hasNext()) {
+                    head.element = head.iterator.next();
+                    heads.add(head);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+            .onClose(() -> sources.forEach(Stream::close));
+    }
+
+    private static final class Head<T> {
+
+        private final int source;
+        private final Iterator<T> iterator;
+        private T element;
+
+        private Head(int source, Iterator<T> iterator) {
+            this.source = source;
+            this.iterator = iterator;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.TransactionImport;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Spring Data MongoDB repository for the TransactionImport entity.
+ */
+public interface TransactionImportRepository extends MongoRepository<TransactionImport, String> {
+
+}
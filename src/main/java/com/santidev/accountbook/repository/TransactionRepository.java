@@ -3,8 +3,37 @@ package com.santidev.accountbook.repository;
 import com.santidev.accountbook.model.Transaction;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Spring Data MongoDB repository for the Transaction entity.
  */
-public interface TransactionRepository extends MongoRepository<Transaction, String> {
+public interface TransactionRepository extends MongoRepository<Transaction, String>, TransactionRepositoryCustom {
+
+	/**
+	 * Redeclared so the lookup of {@link TransactionRepositoryCustom#findById}, which also reads
+	 * the archives, replaces the one of {@link MongoRepository}.
+	 */
+	@Override
+	Optional<Transaction> findById(String id);
+
+	/**
+	 * Redeclared like {@link #findById}, see {@link TransactionRepositoryCustom#findAll}.
+	 */
+	@Override
+	List<Transaction> findAll();
+
+	/**
+	 * Redeclared like {@link #findById}, see {@link TransactionRepositoryCustom#save}.
+	 */
+	@Override
+	<S extends Transaction> S save(S transaction);
+
+	/**
+	 * Redeclared like {@link #findById}, see {@link TransactionRepositoryCustom#deleteById}.
+	 */
+	@Override
+	void deleteById(String id);
+
 }
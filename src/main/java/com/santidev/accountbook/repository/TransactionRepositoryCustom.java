@@ -0,0 +1,120 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Custom operations for the Transaction entity that can't be expressed as derived queries.
+ * <p>
+ * Transactions with an effective date past the archive horizon are moved out of the hot
+ * {@code transaction} collection into one {@code transaction_archive_<year>} collection per year
+ * by {@link #archiveThrough}. The operations declared here look in the archives too, only in
+ * the years their range reaches, and replace the ones of the same name inherited from
+ * {@code MongoRepository}; the other inherited CRUD operations only see the hot collection.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * @param id the id of the transaction.
+     * @return the transaction, from the hot collection or else from the newest archive that has it.
+     */
+    Optional<Transaction> findById(String id);
+
+    /**
+     * @return every transaction, hot and archived, ordered by id.
+     */
+    List<Transaction> findAll();
+
+    /**
+     * @return every transaction, hot and archived, ordered by id and read lazily from one cursor
+     * per collection, each id once even while an archive run is moving it. The stream must be closed.
+     */
+    Stream<Transaction> streamAllBy();
+
+    /**
+     * Saves the transaction where it is stored: a transaction only found in an archive is
+     * replaced there, or moved back to the hot collection if its effective date left the year
+     * of the archive. New transactions go to the hot collection.
+     *
+     * @param transaction the transaction to save.
+     * @return the saved transaction.
+     */
+    <S extends Transaction> S save(S transaction);
+
+    /**
+     * Removes the transaction from the hot collection and from every archive.
+     *
+     * @param id the id of the transaction.
+     */
+    void deleteById(String id);
+
+    /**
+     * @return the debit and the credit of a transfer.
+     */
+    List<Transaction> findByTransferId(String transferId);
+
+    /**
+     * Reads one page of the transactions of an account ordered by effective date and id,
+     * seeking past the last row of the previous page instead of skipping, so the cost of a
+     * page doesn't depend on how deep it is.
+     *
+     * @param accountId the id of the user account.
+     * @param from the first effective date to include, may be {@code null}.
+     * @param to the last effective date to include, may be {@code null}.
+     * @param afterDate the effective date of the last row of the previous page, may be {@code null}.
+     * @param afterId the id of the last row of the previous page, {@code null} for the first page.
+     * @param size the maximum number of transactions to return.
+     * @return the transactions of the page.
+     */
+    List<Transaction> findPageByAccount(String accountId, LocalDate from, LocalDate to,
+                                        LocalDate afterDate, String afterId, int size);
+
+    /**
+     * Reads the transactions of an account in a range of effective dates, ordered by effective
+     * date and id, lazily from a cursor. The stream must be closed.
+     *
+     * @param accountId the id of the user account.
+     * @param after the effective date the range starts after, exclusive, may be {@code null}.
+     * @param to the last effective date to include, may be {@code null}.
+     * @return the transactions in the range.
+     */
+    Stream<Transaction> streamByAccount(String accountId, LocalDate after, LocalDate to);
+
+    /**
+     * Inserts the transactions with a single unordered bulk write, skipping the ones whose id
+     * is already stored, so a batch can be written again after a partial failure.
+     *
+     * @param transactions the transactions to insert, with their ids set.
+     */
+    void insertIgnoringDuplicates(List<Transaction> transactions);
+
+    /**
+     * Moves the transactions with an effective date up to {@code cutoff} from the hot collection
+     * to the archive of their year, a chunk at a time: each chunk is inserted in the archive
+     * ignoring the ids already there, then removed from the hot collection, so a run stopped
+     * half way is finished by the next one. Reads merge both tiers dropping repeated ids, so a
+     * chunk between the two steps is still read once. The archive of a new year is created
+     * before any of its transactions is removed from the hot collection, long enough before for
+     * every instance to read it.
+     *
+     * @param cutoff the last effective date to archive.
+     * @param chunkSize the number of transactions moved at a time.
+     * @return the number of transactions moved.
+     */
+    long archiveThrough(LocalDate cutoff, int chunkSize);
+
+    /**
+     * Removes every transaction of the accounts, from the hot collection and from every archive,
+     * with one remove per collection.
+     *
+     * @param accountIds the ids of the user accounts.
+     * @return the number of transactions removed.
+     */
+    long deleteByAccountIdIn(Collection<String> accountIds);
+
+}
@@ -0,0 +1,305 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.Transaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link TransactionRepositoryCustom} implementation backed by {@link MongoOperations}.
+ * <p>
+ * The names of the archive collections are listed at most once every
+ * {@link #ARCHIVE_LIST_TTL}, or right after this instance created one. An archive run that
+ * creates the collection of a new year waits that long before removing anything from the hot
+ * collection, so every instance lists it before its transactions leave the hot collection.
+ */
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private static final Sort ACCOUNT_HISTORY_ORDER = Sort.by("effectiveDate").ascending().and(Sort.by("id").ascending());
+
+    private static final Sort ID_ORDER = Sort.by("id").ascending();
+
+    private static final Comparator<Transaction> ID_COMPARATOR = Comparator.comparing(Transaction::getId);
+
+    private static final Comparator<Transaction> ACCOUNT_HISTORY_COMPARATOR = Comparator
+        .comparing(Transaction::getEffectiveDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(Transaction::getId);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    static final String ARCHIVE_PREFIX = "transaction_archive_";
+
+    private static final Duration ARCHIVE_LIST_TTL = Duration.ofMinutes(1);
+
+    private final MongoOperations mongoOperations;
+
+    private volatile List<Integer> archiveYears;
+
+    private volatile long archiveYearsListedAt;
+
+    public TransactionRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        Transaction transaction = mongoOperations.findById(id, Transaction.class);
+        List<Integer> years = archiveYears();
+        for (int i = years.size() - 1; transaction == null && i >= 0; i--) {
+            transaction = mongoOperations.findById(id, Transaction.class, archiveCollection(years.get(i)));
+        }
+        return Optional.ofNullable(transaction);
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        try (Stream<Transaction> all = streamAllBy()) {
+            return all.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamAllBy() {
+        Query query = new Query().with(ID_ORDER);
+        List<Stream<Transaction>> tiers = new ArrayList<>();
+        tiers.add(mongoOperations.stream(query, Transaction.class));
+        archiveYears().forEach(year -> tiers.add(mongoOperations.stream(query, Transaction.class, archiveCollection(year))));
+        return TieredStreams.mergeDistinct(tiers, ID_COMPARATOR, Transaction::getId);
+    }
+
+    @Override
+    public <S extends Transaction> S save(S transaction) {
+        if (transaction.getId() == null) {
+            return mongoOperations.save(transaction);
+        }
+        Query byId = Query.query(Criteria.where("id").is(transaction.getId()));
+        List<Integer> years = archiveYears();
+        if (years.isEmpty() || mongoOperations.exists(byId, Transaction.class)) {
+            return mongoOperations.save(transaction);
+        }
+        for (int i = years.size() - 1; i >= 0; i--) {
+            int year = years.get(i);
+            String collection = archiveCollection(year);
+            if (mongoOperations.exists(byId, Transaction.class, collection)) {
+                if (transaction.getEffectiveDate() != null && transaction.getEffectiveDate().getYear() == year) {
+                    return mongoOperations.save(transaction, collection);
+                }
+                // moved out of its year, back to the hot collection until the next archive run
+                S saved = mongoOperations.save(transaction);
+                mongoOperations.remove(byId, Transaction.class, collection);
+                return saved;
+            }
+        }
+        return mongoOperations.save(transaction);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Query byId = Query.query(Criteria.where("id").is(id));
+        mongoOperations.remove(byId, Transaction.class);
+        for (int year : archiveYears()) {
+            mongoOperations.remove(byId, Transaction.class, archiveCollection(year));
+        }
+    }
+
+    @Override
+    public List<Transaction> findByTransferId(String transferId) {
+        Query query = Query.query(Criteria.where("transferId").is(transferId));
+        List<Transaction> legs = mongoOperations.find(query, Transaction.class);
+        List<Integer> years = archiveYears();
+        for (int i = years.size() - 1; legs.isEmpty() && i >= 0; i--) {
+            legs = mongoOperations.find(query, Transaction.class, archiveCollection(years.get(i)));
+        }
+        return legs;
+    }
+
+    @Override
+    public List<Transaction> findPageByAccount(String accountId, LocalDate from, LocalDate to,
+                                               LocalDate afterDate, String afterId, int size) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("idUserAccount").is(accountId));
+        if (from != null) {
+            criteria.add(Criteria.where("effectiveDate").gte(from));
+        }
+        if (to != null) {
+            criteria.add(Criteria.where("effectiveDate").lte(to));
+        }
+        if (afterDate != null && afterId != null) {
+            criteria.add(new Criteria().orOperator(
+                Criteria.where("effectiveDate").gt(afterDate),
+                Criteria.where("effectiveDate").is(afterDate).and("id").gt(afterId)));
+        } else if (afterDate != null) {
+            criteria.add(Criteria.where("effectiveDate").gt(afterDate));
+        } else if (afterId != null) {
+            // rows without effective date sort first, keep seeking among them before moving on
+            criteria.add(new Criteria().orOperator(
+                Criteria.where("effectiveDate").is(null).and("id").gt(afterId),
+                Criteria.where("effectiveDate").ne(null)));
+        }
+        Query query = Query.query(new Criteria().andOperator(criteria))
+            .with(ACCOUNT_HISTORY_ORDER)
+            .limit(size);
+        List<Integer> years = archiveYears(from == null ? null : from.getYear(), to == null ? null : to.getYear());
+        if (years.isEmpty()) {
+            return mongoOperations.find(query, Transaction.class);
+        }
+        List<Stream<Transaction>> tiers = new ArrayList<>();
+        tiers.add(mongoOperations.find(query, Transaction.class).stream());
+        years.forEach(year -> tiers.add(mongoOperations.find(query, Transaction.class, archiveCollection(year)).stream()));
+        try (Stream<Transaction> page = TieredStreams.mergeDistinct(tiers, ACCOUNT_HISTORY_COMPARATOR, Transaction::getId)) {
+            return page.limit(size).collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccount(String accountId, LocalDate after, LocalDate to) {
+        Criteria criteria = Criteria.where("idUserAccount").is(accountId);
+        if (after != null && to != null) {
+            criteria = criteria.and("effectiveDate").gt(after).lte(to);
+        } else if (after != null) {
+            criteria = criteria.and("effectiveDate").gt(after);
+        } else if (to != null) {
+            criteria = criteria.and("effectiveDate").lte(to);
+        }
+        Query query = Query.query(criteria).with(ACCOUNT_HISTORY_ORDER);
+        List<Integer> years = archiveYears(after == null ? null : after.getYear(), to == null ? null : to.getYear());
+        List<Stream<Transaction>> tiers = new ArrayList<>();
+        tiers.add(mongoOperations.stream(query, Transaction.class));
+        years.forEach(year -> tiers.add(mongoOperations.stream(query, Transaction.class, archiveCollection(year))));
+        return TieredStreams.mergeDistinct(tiers, ACCOUNT_HISTORY_COMPARATOR, Transaction::getId);
+    }
+
+    @Override
+    public void insertIgnoringDuplicates(List<Transaction> transactions) {
+        insertIgnoringDuplicates(transactions, mongoOperations.getCollectionName(Transaction.class));
+    }
+
+    @Override
+    public long archiveThrough(LocalDate cutoff, int chunkSize) {
+        Query oldest = Query.query(Criteria.where("effectiveDate").lte(cutoff)).limit(chunkSize);
+        MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(
+            mongoOperations.getConverter().getMappingContext());
+        archiveYears = null;
+        Set<Integer> listed = new HashSet<>(archiveYears());
+        List<Integer> indexed = new ArrayList<>();
+        long moved = 0;
+        List<Transaction> chunk;
+        while (!(chunk = mongoOperations.find(oldest, Transaction.class)).isEmpty()) {
+            Map<Integer, List<Transaction>> byYear = chunk.stream()
+                .collect(Collectors.groupingBy(transaction -> transaction.getEffectiveDate().getYear(), TreeMap::new, Collectors.toList()));
+            boolean created = false;
+            for (Integer year : byYear.keySet()) {
+                String collection = archiveCollection(year);
+                if (!indexed.contains(year)) {
+                    if (!listed.contains(year) && !mongoOperations.collectionExists(collection)) {
+                        mongoOperations.createCollection(collection);
+                        created = true;
+                    }
+                    indexResolver.resolveIndexFor(Transaction.class)
+                        .forEach(index -> mongoOperations.indexOps(collection).ensureIndex(index));
+                    indexed.add(year);
+                }
+            }
+            if (created) {
+                archiveYears = null;
+                if (!awaitArchiveListed()) {
+                    return moved;
+                }
+            }
+            byYear.forEach((year, transactions) -> insertIgnoringDuplicates(transactions, archiveCollection(year)));
+            List<String> ids = chunk.stream().map(Transaction::getId).toList();
+            mongoOperations.remove(Query.query(Criteria.where("id").in(ids)), Transaction.class);
+            moved += chunk.size();
+        }
+        return moved;
+    }
+
+    /**
+     * Waits until the other instances listed the archive collections again.
+     *
+     * @return {@code false} if the thread was interrupted meanwhile.
+     */
+    private static boolean awaitArchiveListed() {
+        try {
+            Thread.sleep(ARCHIVE_LIST_TTL.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public long deleteByAccountIdIn(Collection<String> accountIds) {
+        Query query = Query.query(Criteria.where("idUserAccount").in(accountIds));
+        long removed = mongoOperations.remove(query, Transaction.class).getDeletedCount();
+        for (int year : archiveYears()) {
+            removed += mongoOperations.remove(query, Transaction.class, archiveCollection(year)).getDeletedCount();
+        }
+        return removed;
+    }
+
+    private void insertIgnoringDuplicates(List<Transaction> transactions, String collection) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Transaction.class, collection)
+                .insert(transactions)
+                .execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    static String archiveCollection(int year) {
+        return ARCHIVE_PREFIX + year;
+    }
+
+    /**
+     * @return the years with an archive collection that fall in the range, oldest first.
+     */
+    private List<Integer> archiveYears(Integer fromYear, Integer toYear) {
+        return archiveYears().stream()
+            .filter(year -> (fromYear == null || year >= fromYear) && (toYear == null || year <= toYear))
+            .toList();
+    }
+
+    /**
+     * @return the years with an archive collection, oldest first.
+     */
+    private List<Integer> archiveYears() {
+        List<Integer> years = archiveYears;
+        if (years == null || System.nanoTime() - archiveYearsListedAt > ARCHIVE_LIST_TTL.toNanos()) {
+            years = mongoOperations.getCollectionNames().stream()
+                .filter(name -> name.startsWith(ARCHIVE_PREFIX) && name.length() > ARCHIVE_PREFIX.length()
+                    && name.substring(ARCHIVE_PREFIX.length()).chars().allMatch(Character::isDigit))
+                .map(name -> Integer.parseInt(name.substring(ARCHIVE_PREFIX.length())))
+                .sorted()
+                .toList();
+            archiveYears = years;
+            archiveYearsListedAt = System.nanoTime();
+        }
+        return years;
+    }
+}
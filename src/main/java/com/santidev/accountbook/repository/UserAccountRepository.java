@@ -3,8 +3,36 @@ package com.santidev.accountbook.repository;
 import com.santidev.accountbook.model.UserAccount;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /**
  * Spring Data MongoDB repository for the UserAccount entity.
  */
 public interface UserAccountRepository extends MongoRepository<UserAccount, String> {
+
+	/**
+	 * @return every user account, read lazily from a cursor. The stream must be closed.
+	 */
+	Stream<UserAccount> streamAllBy();
+
+	/**
+	 * @return the number of user accounts removed.
+	 */
+	long deleteByIdIn(Collection<String> ids);
+
+	/**
+	 * @return the version of the user account, reading only that field.
+	 */
+	Optional<VersionOnly> findVersionById(String id);
+
+	/**
+	 * Projection of a user account on its version.
+	 */
+	interface VersionOnly {
+
+		Long getVersion();
+	}
+
 }
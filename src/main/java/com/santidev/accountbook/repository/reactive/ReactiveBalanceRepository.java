@@ -0,0 +1,14 @@
+package com.santidev.accountbook.repository.reactive;
+
+import com.santidev.accountbook.model.Balance;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive Spring Data MongoDB repository for the Balance entity.
+ */
+public interface ReactiveBalanceRepository extends ReactiveMongoRepository<Balance, String>, ReactiveBalanceRepositoryCustom {
+
+	Flux<Balance> findByAccountId(String idUserAccount);
+
+}
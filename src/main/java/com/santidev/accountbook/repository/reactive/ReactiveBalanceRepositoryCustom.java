@@ -0,0 +1,33 @@
+package com.santidev.accountbook.repository.reactive;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom reactive operations for the Balance entity that can't be expressed as derived queries.
+ */
+public interface ReactiveBalanceRepositoryCustom {
+
+    /**
+     * Atomically adds {@code delta} to the total of the balance of the given account, like
+     * {@link com.santidev.accountbook.repository.BalanceRepositoryCustom#addToTotal}.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @param delta the amount to add, negative for debits.
+     * @return the balance after the update, or empty if there is no balance for the account
+     * or it doesn't cover the debit.
+     */
+    Mono<Balance> addToTotal(String accountId, Money delta);
+
+    /**
+     * Rewrites the total of the balance of the given account into Int64 minor units if it is
+     * still stored the legacy way, like
+     * {@link com.santidev.accountbook.repository.BalanceRepositoryCustom#migrateTotal}.
+     *
+     * @param accountId the id of the user account owning the balance.
+     * @return whether a legacy total was rewritten.
+     */
+    Mono<Boolean> migrateTotal(String accountId);
+
+}
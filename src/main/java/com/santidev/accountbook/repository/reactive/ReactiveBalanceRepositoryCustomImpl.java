@@ -0,0 +1,46 @@
+package com.santidev.accountbook.repository.reactive;
+
+import com.santidev.accountbook.config.MoneyMigration;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.repository.BalanceRepositoryCustomImpl;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link ReactiveBalanceRepositoryCustom} implementation backed by {@link ReactiveMongoOperations}.
+ */
+public class ReactiveBalanceRepositoryCustomImpl implements ReactiveBalanceRepositoryCustom {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    public ReactiveBalanceRepositoryCustomImpl(ReactiveMongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Mono<Balance> addToTotal(String accountId, Money delta) {
+        Criteria criteria = BalanceRepositoryCustomImpl.migratedTotalOf(accountId);
+        if (delta.signum() < 0) {
+            criteria = criteria.gte(delta.negate().getMinorUnits());
+        }
+        return mongoOperations.findAndModify(Query.query(criteria),
+            new Update().inc("total", delta.getMinorUnits()).inc("version", 1),
+            FindAndModifyOptions.options().returnNew(true),
+            Balance.class);
+    }
+
+    @Override
+    public Mono<Boolean> migrateTotal(String accountId) {
+        return mongoOperations.getCollection(mongoOperations.getCollectionName(Balance.class))
+            .flatMap(collection -> Mono.from(collection.updateOne(BalanceRepositoryCustomImpl.legacyTotalOf(accountId),
+                List.of(MoneyMigration.toMinorUnits("total")))))
+            .map(result -> result.getModifiedCount() > 0);
+    }
+}
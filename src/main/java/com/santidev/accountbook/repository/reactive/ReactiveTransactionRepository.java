@@ -0,0 +1,11 @@
+package com.santidev.accountbook.repository.reactive;
+
+import com.santidev.accountbook.model.Transaction;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Reactive Spring Data MongoDB repository for the Transaction entity.
+ */
+public interface ReactiveTransactionRepository extends ReactiveMongoRepository<Transaction, String> {
+
+}
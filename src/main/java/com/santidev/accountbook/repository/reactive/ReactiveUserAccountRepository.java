@@ -0,0 +1,11 @@
+package com.santidev.accountbook.repository.reactive;
+
+import com.santidev.accountbook.model.UserAccount;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Reactive Spring Data MongoDB repository for the UserAccount entity.
+ */
+public interface ReactiveUserAccountRepository extends ReactiveMongoRepository<UserAccount, String> {
+
+}
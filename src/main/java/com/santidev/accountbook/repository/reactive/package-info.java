@@ -0,0 +1,5 @@
+/**
+ * Reactive Spring Data MongoDB repositories, the non-blocking counterparts of the ones in
+ * {@link com.santidev.accountbook.repository}.
+ */
+package com.santidev.accountbook.repository.reactive;
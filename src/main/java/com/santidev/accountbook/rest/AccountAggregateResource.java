@@ -0,0 +1,74 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.service.AccountAggregateService;
+import com.santidev.accountbook.service.BalanceCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for reading the per day and per month {@link AccountAggregate} of user accounts.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class AccountAggregateResource {
+
+    private final AccountAggregateService accountAggregateService;
+    private final BalanceCache balanceCache;
+
+    public AccountAggregateResource(AccountAggregateService accountAggregateService, BalanceCache balanceCache) {
+        this.accountAggregateService = accountAggregateService;
+        this.balanceCache = balanceCache;
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id/summary} : get the credits and debits of the "id" userAccount per day or per month.
+     *
+     * @param id the id of the userAccount.
+     * @param granularity {@code day} or {@code month}.
+     * @param from the first effective date to include.
+     * @param to the last effective date to include.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the buckets in body, ordered by bucket,
+     * or with status {@code 400 (Bad Request)} if the granularity or the range are not valid,
+     * or with status {@code 404 (Not Found)} if the account has no balance.
+     */
+    @GetMapping("/user-accounts/{id}/summary")
+    public ResponseEntity<List<AccountAggregate>> getUserAccountSummary(
+            @PathVariable String id,
+            @RequestParam(defaultValue = AccountAggregate.DAY) String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("REST request to get the {} summary of UserAccount : {}", granularity, id);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (balanceCache.findByAccountId(id).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        try {
+            return ResponseEntity.ok().body(accountAggregateService.summary(id, granularity, from, to));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * {@code POST  /account-aggregates/backfill} : Rebuild the aggregates of every account from its transactions.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of accounts rebuilt.
+     */
+    @PostMapping("/account-aggregates/backfill")
+    public ResponseEntity<Map<String, Object>> backfill() {
+        log.debug("REST request to backfill the AccountAggregates");
+        return ResponseEntity.ok().body(Map.of("accounts", accountAggregateService.backfill()));
+    }
+}
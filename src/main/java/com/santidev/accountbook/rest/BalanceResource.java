@@ -1,16 +1,35 @@
 package com.santidev.accountbook.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
 import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.BalanceFeed;
+import com.santidev.accountbook.service.BalanceSnapshotService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,16 +43,30 @@ public class BalanceResource {
     private static final String ENTITY_NAME = "accountbookBalance";
 
     private final BalanceRepository balanceRepository;
+    private final BalanceCache balanceCache;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final BalanceFeed balanceFeed;
+    private final Duration streamTimeout;
 
-    public BalanceResource(BalanceRepository balanceRepository) {
+    public BalanceResource(BalanceRepository balanceRepository, BalanceCache balanceCache,
+                           BalanceSnapshotService balanceSnapshotService, ObjectMapper objectMapper,
+                           BalanceFeed balanceFeed,
+                           @Value("${accountbook.balance-feed.timeout:30m}") Duration streamTimeout) {
         this.balanceRepository = balanceRepository;
+        this.balanceCache = balanceCache;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.objectMapper = objectMapper;
+        this.balanceFeed = balanceFeed;
+        this.streamTimeout = streamTimeout;
     }
 
     /**
      * {@code POST  /balances} : Create a new balance.
      *
      * @param balance the balance to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new balance, or with status {@code 400 (Bad Request)} if the balance has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new balance, or with status {@code 400 (Bad Request)} if the balance has already an ID,
+     * or with status {@code 409 (Conflict)} if the account already has a balance.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("/balances")
@@ -42,28 +75,57 @@ public class BalanceResource {
         if (balance.getId() != null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new balance cannot already have an ID");
         }
-        Balance result = balanceRepository.save(balance);
+        balance.setOpeningTotal(balance.getTotal());
+        Balance result;
+        try {
+            result = balanceRepository.save(balance);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The account already has a balance");
+        }
         return ResponseEntity.created(new URI("/api/balances/" + result.getId()))
             .body(result);
     }
 
     /**
-     * {@code PUT  /balances} : Updates an existing balance.
+     * {@code PUT  /balances} : Updates an existing balance, if it still has the version of the {@code If-Match} ETag or of
+     * the body. Without either, the balance is overwritten whatever its version.
      *
      * @param balance the balance to update.
+     * @param ifMatch the ETag of the version the update is based on.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated balance,
      * or with status {@code 400 (Bad Request)} if the balance is not valid,
+     * or with status {@code 409 (Conflict)} if the balance changed since the version of the body,
+     * or with status {@code 412 (Precondition Failed)} if the balance changed since the version of {@code If-Match},
      * or with status {@code 500 (Internal Server Error)} if the balance couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/balances")
-    public ResponseEntity<Balance> updateBalance(@RequestBody Balance balance) throws URISyntaxException {
+    public ResponseEntity<Balance> updateBalance(@RequestBody Balance balance,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update Balance : {}", balance);
         if (balance.getId() == null) {
         	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        Balance result = balanceRepository.save(balance);
-        return ResponseEntity.ok().body(result);
+        Optional<Balance> current = balanceRepository.findById(balance.getId());
+        if (ifMatch != null) {
+            balance.setVersion(ETags.versionOf(ifMatch));
+        } else if (balance.getVersion() == null) {
+            balance.setVersion(current.map(Balance::getVersion).orElse(null));
+        }
+        // only saved if the balance still has the version it was read with
+        balance.setOpeningTotal(current.map(stored -> stored.openingTotalFor(balance.getTotal())).orElse(balance.getTotal()));
+        Balance result;
+        try {
+            result = balanceRepository.save(balance);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                "The balance changed since version " + balance.getVersion());
+        } finally {
+            balanceCache.invalidateBalance(balance.getId(), balance.getAccountId());
+        }
+        balanceSnapshotService.dropSnapshots(result.getAccountId());
+        balanceFeed.publish(result.getAccountId());
+        return ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(result);
     }
 
     /**
@@ -78,19 +140,82 @@ public class BalanceResource {
     }
 
     /**
-     * {@code GET  /balances/:id} : get the "id" balance.
+     * {@code GET  /balances} : stream all the balances as newline delimited JSON.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and one balance per line in body.
+     */
+    @GetMapping(value = "/balances", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBalances() {
+        log.debug("REST request to stream all Balances");
+        return NdjsonResponses.of(balanceRepository::streamAllBy, objectMapper);
+    }
+
+    /**
+     * {@code GET  /balances/:id} : get the "id" balance, with its version as ETag.
      *
      * @param id the id of the balance to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the balance, or with status {@code 404 (Not Found)}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the balance,
+     * or with status {@code 304 (Not Modified)} if it still has the version of {@code If-None-Match},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/balances/{id}")
     public ResponseEntity<Balance> getBalance(@PathVariable String id) {
         log.debug("REST request to get Balance : {}", id);
-        Optional<Balance> balance = balanceRepository.findById(id);
-        return balance.map(response -> ResponseEntity.ok().body(response))
+        Optional<Balance> balance = balanceCache.findById(id);
+        return balance.map(response -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * {@code GET  /balances/:accountId/stream} : stream the balance of the "accountId" userAccount as Server-Sent Events,
+     * its current balance first and then the new one after each change. Changes close together may be sent as
+     * one event with the latest balance. Each event is named {@code balance}, with the version of the balance as id.
+     *
+     * @param accountId the id of the userAccount.
+     * @return the {@link SseEmitter} of the events, or status {@code 404 (Not Found)} if the account has no balance.
+     */
+    @GetMapping(value = "/balances/{accountId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBalance(@PathVariable String accountId) {
+        log.debug("REST request to stream the Balance of account : {}", accountId);
+        if (balanceCache.findByAccountId(accountId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        BalanceFeed.Subscription subscription = balanceFeed.subscribe(accountId, balance -> {
+            try {
+                emitter.send(SseEmitter.event()
+                    .name("balance")
+                    .id(String.valueOf(balance.getVersion()))
+                    .data(balance, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                throw new UncheckedIOException(e);
+            }
+        }, emitter::complete);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    /**
+     * {@code GET  /balances/:accountId/at} : get the balance of the "accountId" userAccount at the end of a date.
+     *
+     * @param accountId the id of the userAccount.
+     * @param date the effective date.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the balance at the date,
+     * or with status {@code 404 (Not Found)} if the account has no balance.
+     */
+    @GetMapping("/balances/{accountId}/at")
+    public ResponseEntity<BalanceSnapshot> getBalanceAt(@PathVariable String accountId,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        log.debug("REST request to get Balance of UserAccount {} at {}", accountId, date);
+        if (balanceCache.findByAccountId(accountId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().body(balanceSnapshotService.balanceAt(accountId, date));
+    }
+
     /**
      * {@code DELETE  /balances/:id} : delete the "id" balance.
      *
@@ -100,7 +225,25 @@ public class BalanceResource {
     @DeleteMapping("/balances/{id}")
     public ResponseEntity<Void> deleteBalance(@PathVariable String id) {
         log.debug("REST request to delete Balance : {}", id);
+        Optional<Balance> balance = balanceRepository.findById(id);
         balanceRepository.deleteById(id);
+        balanceCache.invalidateBalance(id, balance.map(Balance::getAccountId).orElse(null));
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * {@code GET  /balances/cache-stats} : get the counters of the balance cache.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the hit, miss and eviction counters.
+     */
+    @GetMapping("/balances/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        CacheStats stats = balanceCache.stats();
+        return ResponseEntity.ok().body(Map.of(
+            "size", balanceCache.size(),
+            "hitCount", stats.hitCount(),
+            "missCount", stats.missCount(),
+            "hitRate", stats.hitRate(),
+            "evictionCount", stats.evictionCount()));
+    }
 }
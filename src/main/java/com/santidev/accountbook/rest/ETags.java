@@ -0,0 +1,40 @@
+package com.santidev.accountbook.rest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Strong ETags made from the version of a document, so a client can revalidate a read with
+ * {@code If-None-Match} and make a write conditional with {@code If-Match}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param version the version of the document, may be {@code null}.
+     * @return the ETag, or {@code null} for a document without a version.
+     */
+    static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch the {@code If-Match} header of a write.
+     * @return the version the client expects the document to have.
+     * @throws ResponseStatusException with status {@code 412 (Precondition Failed)} if the header
+     * isn't one strong ETag of a version.
+     */
+    static long versionOf(String ifMatch) {
+        String etag = ifMatch.trim();
+        if (etag.length() > 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            try {
+                return Long.parseLong(etag.substring(1, etag.length() - 1));
+            } catch (NumberFormatException e) {
+                // falls through to the rejection
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match must be the ETag of the current version");
+    }
+}
@@ -0,0 +1,41 @@
+package com.santidev.accountbook.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Builds newline delimited JSON responses that write each element as it's read from the
+ * source stream, so the memory used doesn't depend on how many elements there are.
+ */
+final class NdjsonResponses {
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * @param source opens the stream to write; it's opened and closed on the thread writing the response.
+     * @param objectMapper the mapper used to serialize each element.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the elements as NDJSON in body.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> of(Supplier<Stream<T>> source, ObjectMapper objectMapper) {
+        StreamingResponseBody body = out -> {
+            try (Stream<T> elements = source.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                Iterator<T> iterator = elements.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,140 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.repository.reactive.ReactiveBalanceRepository;
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.BalanceFeed;
+import com.santidev.accountbook.service.BalanceSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+
+/**
+ * Non-blocking REST controller for managing {@link com.santidev.accountbook.model.Balance},
+ * mirroring {@link BalanceResource} on the reactive repositories. Reads go to Mongo, since a
+ * miss of the {@link BalanceCache} would block; writes still invalidate it.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@Slf4j
+public class ReactiveBalanceResource {
+
+    private final ReactiveBalanceRepository balanceRepository;
+    private final BalanceCache balanceCache;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final BalanceFeed balanceFeed;
+
+    public ReactiveBalanceResource(ReactiveBalanceRepository balanceRepository, BalanceCache balanceCache,
+                                   BalanceSnapshotService balanceSnapshotService, BalanceFeed balanceFeed) {
+        this.balanceRepository = balanceRepository;
+        this.balanceCache = balanceCache;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.balanceFeed = balanceFeed;
+    }
+
+    /**
+     * {@code POST  /balances} : Create a new balance.
+     *
+     * @param balance the balance to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new balance, or with status {@code 400 (Bad Request)} if the balance has already an ID.
+     */
+    @PostMapping("/balances")
+    public Mono<ResponseEntity<Balance>> createBalance(@RequestBody Balance balance) {
+        log.debug("REST request to save Balance : {}", balance);
+        if (balance.getId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new balance cannot already have an ID"));
+        }
+        balance.setOpeningTotal(balance.getTotal());
+        return balanceRepository.save(balance)
+            .map(result -> ResponseEntity.created(URI.create("/api/reactive/balances/" + result.getId())).body(result));
+    }
+
+    /**
+     * {@code PUT  /balances} : Updates an existing balance, if it still has the version of the body. Without one, the
+     * balance is overwritten whatever its version.
+     *
+     * @param balance the balance to update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated balance,
+     * or with status {@code 400 (Bad Request)} if the balance is not valid,
+     * or with status {@code 409 (Conflict)} if the balance changed since the version of the body.
+     */
+    @PutMapping("/balances")
+    public Mono<ResponseEntity<Balance>> updateBalance(@RequestBody Balance balance) {
+        log.debug("REST request to update Balance : {}", balance);
+        if (balance.getId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id"));
+        }
+        Mono<Balance> versioned = balanceRepository.findById(balance.getId())
+            .map(current -> {
+                if (balance.getVersion() == null) {
+                    balance.setVersion(current.getVersion());
+                }
+                // only saved if the balance still has the version it was read with
+                balance.setOpeningTotal(current.openingTotalFor(balance.getTotal()));
+                return balance;
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                balance.setOpeningTotal(balance.getTotal());
+                return balance;
+            }));
+        return versioned.flatMap(balanceRepository::save)
+            .onErrorMap(OptimisticLockingFailureException.class,
+                e -> new ResponseStatusException(HttpStatus.CONFLICT, "The balance changed since version " + balance.getVersion()))
+            .doFinally(signal -> balanceCache.invalidateBalance(balance.getId(), balance.getAccountId()))
+            .flatMap(result -> Mono.fromRunnable(() -> balanceSnapshotService.dropSnapshots(result.getAccountId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(result))
+            .doOnNext(result -> balanceFeed.publish(result.getAccountId()))
+            .map(result -> ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(result));
+    }
+
+    /**
+     * {@code GET  /balances} : get all the balances.
+     *
+     * @return the balances, one per line when requested as {@code application/x-ndjson}.
+     */
+    @GetMapping(value = "/balances", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Balance> getAllBalances() {
+        log.debug("REST request to get all Balances");
+        return balanceRepository.findAll();
+    }
+
+    /**
+     * {@code GET  /balances/:id} : get the "id" balance.
+     *
+     * @param id the id of the balance to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the balance, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/balances/{id}")
+    public Mono<ResponseEntity<Balance>> getBalance(@PathVariable String id) {
+        log.debug("REST request to get Balance : {}", id);
+        return balanceRepository.findById(id)
+            .map(response -> ResponseEntity.ok().body(response))
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * {@code DELETE  /balances/:id} : delete the "id" balance.
+     *
+     * @param id the id of the balance to delete.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/balances/{id}")
+    public Mono<ResponseEntity<Void>> deleteBalance(@PathVariable String id) {
+        log.debug("REST request to delete Balance : {}", id);
+        return balanceRepository.findById(id)
+            .singleOptional()
+            .flatMap(balance -> balanceRepository.deleteById(id)
+                .doOnSuccess(deleted -> balanceCache.invalidateBalance(id, balance.map(Balance::getAccountId).orElse(null))))
+            .thenReturn(ResponseEntity.noContent().build());
+    }
+}
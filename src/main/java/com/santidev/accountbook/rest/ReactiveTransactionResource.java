@@ -0,0 +1,131 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.ReactiveTransactionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+
+/**
+ * Non-blocking REST controller for managing {@link com.santidev.accountbook.model.Transaction},
+ * mirroring {@link TransactionResource}.
+ * <p>
+ * Transactions are read and written through the blocking {@link TransactionRepository} on the
+ * bounded elastic scheduler, since only it finds them in the archive collections too. The lists
+ * are read from the cursors on demand when requested as newline delimited JSON, so a slow client
+ * slows down the read instead of buffering the collection.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@Slf4j
+public class ReactiveTransactionResource {
+
+    private final TransactionRepository transactionRepository;
+    private final ReactiveTransactionService transactionService;
+
+    public ReactiveTransactionResource(TransactionRepository transactionRepository,
+                                       ReactiveTransactionService transactionService) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * {@code POST  /transactions} : Create a new transaction.
+     *
+     * @param transaction the transaction to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new transaction, or with status {@code 400 (Bad Request)} if the transaction has already an ID,
+     * or with status {@code 405 (Method Not Allowed)} if the transaction journal is enabled.
+     */
+    @PostMapping("/transactions")
+    public Mono<ResponseEntity<Transaction>> createTransaction(@RequestBody Transaction transaction) {
+        log.debug("REST request to save Transaction : {}", transaction);
+        if (transaction.getId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new transaction cannot already have an ID"));
+        }
+        return transactionService.processTransaction(transaction)
+            .map(result -> ResponseEntity.created(URI.create("/api/reactive/transactions/" + result.getId())).body(result));
+    }
+
+    /**
+     * {@code PUT  /transactions} : Updates an existing transaction.
+     *
+     * @param transaction the transaction to update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated transaction,
+     * or with status {@code 400 (Bad Request)} if the transaction is not valid.
+     */
+    @PutMapping("/transactions")
+    public Mono<ResponseEntity<Transaction>> updateTransaction(@RequestBody Transaction transaction) {
+        log.debug("REST request to update Transaction : {}", transaction);
+        if (transaction.getId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id"));
+        }
+        return Mono.fromCallable(() -> transactionRepository.save(transaction))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(result -> ResponseEntity.ok().body(result));
+    }
+
+    /**
+     * {@code GET  /transactions} : get all the transactions.
+     *
+     * @return the transactions, one per line when requested as {@code application/x-ndjson}.
+     */
+    @GetMapping(value = "/transactions", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Transaction> getAllTransactions() {
+        log.debug("REST request to get all Transactions");
+        return Flux.fromStream(transactionRepository::streamAllBy)
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id/transactions} : get the transactions of the "id" userAccount,
+     * ordered by effective date.
+     *
+     * @param id the id of the userAccount.
+     * @return the transactions, one per line when requested as {@code application/x-ndjson}.
+     */
+    @GetMapping(value = "/user-accounts/{id}/transactions", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Transaction> getUserAccountTransactions(@PathVariable String id) {
+        log.debug("REST request to get the Transactions of UserAccount : {}", id);
+        return Flux.fromStream(() -> transactionRepository.streamByAccount(id, null, null))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * {@code GET  /transactions/:id} : get the "id" transaction.
+     *
+     * @param id the id of the transaction to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the transaction, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/transactions/{id}")
+    public Mono<ResponseEntity<Transaction>> getTransaction(@PathVariable String id) {
+        log.debug("REST request to get Transaction : {}", id);
+        return Mono.fromCallable(() -> transactionRepository.findById(id))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(Mono::justOrEmpty)
+            .map(response -> ResponseEntity.ok().body(response))
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * {@code DELETE  /transactions/:id} : delete the "id" transaction.
+     *
+     * @param id the id of the transaction to delete.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/transactions/{id}")
+    public Mono<ResponseEntity<Void>> deleteTransaction(@PathVariable String id) {
+        log.debug("REST request to delete Transaction : {}", id);
+        return Mono.fromRunnable(() -> transactionRepository.deleteById(id))
+            .subscribeOn(Schedulers.boundedElastic())
+            .thenReturn(ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,134 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.reactive.ReactiveBalanceRepository;
+import com.santidev.accountbook.repository.reactive.ReactiveUserAccountRepository;
+import com.santidev.accountbook.service.AccountRegistry;
+import com.santidev.accountbook.service.UserAccountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Non-blocking REST controller for managing {@link com.santidev.accountbook.model.UserAccount},
+ * mirroring {@link UserAccountResource} on the reactive repositories.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@Slf4j
+public class ReactiveUserAccountResource {
+
+    private final ReactiveUserAccountRepository userAccountRepository;
+    private final ReactiveBalanceRepository balanceRepository;
+    private final AccountRegistry accountRegistry;
+    private final UserAccountService userAccountService;
+
+    public ReactiveUserAccountResource(ReactiveUserAccountRepository userAccountRepository,
+                                       ReactiveBalanceRepository balanceRepository,
+                                       AccountRegistry accountRegistry,
+                                       UserAccountService userAccountService) {
+        this.userAccountRepository = userAccountRepository;
+        this.balanceRepository = balanceRepository;
+        this.accountRegistry = accountRegistry;
+        this.userAccountService = userAccountService;
+    }
+
+    /**
+     * {@code POST  /user-accounts} : Create a new userAccount, with an empty balance.
+     *
+     * @param userAccount the userAccount to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new userAccount, or with status {@code 400 (Bad Request)} if the userAccount has already an ID.
+     */
+    @PostMapping("/user-accounts")
+    public Mono<ResponseEntity<UserAccount>> createUserAccount(@RequestBody UserAccount userAccount) {
+        log.debug("REST request to save UserAccount : {}", userAccount);
+        if (userAccount.getId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new userAccount cannot already have an ID"));
+        }
+        return userAccountRepository.save(userAccount)
+            .flatMap(result -> balanceRepository.save(Balance.builder().accountId(result.getId()).total(Money.ZERO).build())
+                .thenReturn(result))
+            .doOnNext(accountRegistry::put)
+            .map(result -> ResponseEntity.created(URI.create("/api/reactive/user-accounts/" + result.getId())).body(result));
+    }
+
+    /**
+     * {@code PUT  /user-accounts} : Updates an existing userAccount, if it still has the version of the body. Without
+     * one, the userAccount is overwritten whatever its version.
+     *
+     * @param userAccount the userAccount to update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated userAccount,
+     * or with status {@code 400 (Bad Request)} if the userAccount is not valid,
+     * or with status {@code 409 (Conflict)} if the userAccount changed since the version of the body.
+     */
+    @PutMapping("/user-accounts")
+    public Mono<ResponseEntity<UserAccount>> updateUserAccount(@RequestBody UserAccount userAccount) {
+        log.debug("REST request to update UserAccount : {}", userAccount);
+        if (userAccount.getId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id"));
+        }
+        Mono<UserAccount> versioned = userAccount.getVersion() != null ? Mono.just(userAccount) : userAccountRepository.findById(userAccount.getId())
+            .map(current -> {
+                userAccount.setVersion(current.getVersion());
+                return userAccount;
+            })
+            .defaultIfEmpty(userAccount);
+        return versioned.flatMap(userAccountRepository::save)
+            .onErrorMap(OptimisticLockingFailureException.class,
+                e -> new ResponseStatusException(HttpStatus.CONFLICT, "The userAccount changed since version " + userAccount.getVersion()))
+            .doOnNext(accountRegistry::put)
+            .map(result -> ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(result));
+    }
+
+    /**
+     * {@code GET  /user-accounts} : get all the userAccounts.
+     *
+     * @return the userAccounts, one per line when requested as {@code application/x-ndjson}.
+     */
+    @GetMapping(value = "/user-accounts", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserAccount> getAllUserAccounts() {
+        log.debug("REST request to get all UserAccounts");
+        return userAccountRepository.findAll();
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id} : get the "id" userAccount.
+     *
+     * @param id the id of the userAccount to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the userAccount, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/user-accounts/{id}")
+    public Mono<ResponseEntity<UserAccount>> getUserAccount(@PathVariable String id) {
+        log.debug("REST request to get UserAccount : {}", id);
+        return userAccountRepository.findById(id)
+            .map(response -> ResponseEntity.ok().body(response))
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * {@code DELETE  /user-accounts/:id} : delete the "id" userAccount with its balance, transactions, aggregates and snapshots,
+     * through the blocking {@link UserAccountService} on the bounded elastic scheduler.
+     *
+     * @param id the id of the userAccount to delete.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/user-accounts/{id}")
+    public Mono<ResponseEntity<Void>> deleteUserAccount(@PathVariable String id) {
+        log.debug("REST request to delete UserAccount : {}", id);
+        return Mono.fromRunnable(() -> userAccountService.deleteAll(List.of(id)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .thenReturn(ResponseEntity.noContent().build());
+    }
+}
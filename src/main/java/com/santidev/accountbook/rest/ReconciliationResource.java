@@ -0,0 +1,34 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.service.LedgerReconciliationService;
+import com.santidev.accountbook.service.dto.ReconciliationReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for reconciling the balances against the transactions.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class ReconciliationResource {
+
+    private final LedgerReconciliationService ledgerReconciliationService;
+
+    public ReconciliationResource(LedgerReconciliationService ledgerReconciliationService) {
+        this.ledgerReconciliationService = ledgerReconciliationService;
+    }
+
+    /**
+     * {@code POST  /reconciliation} : Rebuild the balance totals from the transactions and compare.
+     *
+     * @param repair whether to fix the balances that still don't match when rechecked under their account lock.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the report of the mismatches found.
+     */
+    @PostMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> reconcile(@RequestParam(defaultValue = "false") boolean repair) {
+        log.debug("REST request to reconcile Balances, repair : {}", repair);
+        return ResponseEntity.ok().body(ledgerReconciliationService.reconcile(repair));
+    }
+}
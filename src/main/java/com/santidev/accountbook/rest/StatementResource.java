@@ -0,0 +1,94 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.StatementService;
+import com.santidev.accountbook.service.dto.StatementExportReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * REST controller for exporting the statements of user accounts.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class StatementResource {
+
+    private final StatementService statementService;
+    private final BalanceCache balanceCache;
+
+    public StatementResource(StatementService statementService, BalanceCache balanceCache) {
+        this.statementService = statementService;
+        this.balanceCache = balanceCache;
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id/statement} : get the transactions of the "id" userAccount with the balance after each one,
+     * ordered by effective date and written as they are read.
+     *
+     * @param id the id of the userAccount.
+     * @param from the first effective date to include.
+     * @param to the last effective date to include.
+     * @param format {@code csv} or {@code ndjson}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the statement in body,
+     * or with status {@code 400 (Bad Request)} if the format or the range are not valid,
+     * or with status {@code 404 (Not Found)} if the account has no balance.
+     */
+    @GetMapping("/user-accounts/{id}/statement")
+    public ResponseEntity<StreamingResponseBody> getUserAccountStatement(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = StatementService.CSV) String format) {
+        log.debug("REST request to get the {} statement of UserAccount : {}", format, id);
+        checkRequest(from, to, format);
+        if (balanceCache.findByAccountId(id).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        StreamingResponseBody body = out -> statementService.writeStatement(id, from, to, format, out);
+        return ResponseEntity.ok()
+            .contentType(StatementService.CSV.equals(format) ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("statement-" + id + "." + format).build().toString())
+            .body(body);
+    }
+
+    /**
+     * {@code POST  /statements/export} : Write the statement of every account to its own file on the server.
+     *
+     * @param from the first effective date to include.
+     * @param to the last effective date to include.
+     * @param format {@code csv} or {@code ndjson}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the directory and number of statements written,
+     * or with status {@code 400 (Bad Request)} if the format or the range are not valid.
+     */
+    @PostMapping("/statements/export")
+    public ResponseEntity<StatementExportReport> exportStatements(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = StatementService.CSV) String format) {
+        log.debug("REST request to export the {} statements of every UserAccount", format);
+        checkRequest(from, to, format);
+        return ResponseEntity.ok().body(statementService.exportAll(from, to, format));
+    }
+
+    private static void checkRequest(LocalDate from, LocalDate to, String format) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        try {
+            StatementService.checkFormat(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
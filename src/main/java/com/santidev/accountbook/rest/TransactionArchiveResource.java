@@ -0,0 +1,40 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.service.TransactionArchiveService;
+import com.santidev.accountbook.service.dto.TransactionArchiveReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * REST controller for moving old transactions out of the hot collection.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class TransactionArchiveResource {
+
+    private final TransactionArchiveService transactionArchiveService;
+
+    public TransactionArchiveResource(TransactionArchiveService transactionArchiveService) {
+        this.transactionArchiveService = transactionArchiveService;
+    }
+
+    /**
+     * {@code POST  /transaction-archive} : Archive the transactions past the horizon.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cutoff and the number of transactions archived,
+     * or with status {@code 409 (Conflict)} if an archive run is already going on.
+     */
+    @PostMapping("/transaction-archive")
+    public ResponseEntity<TransactionArchiveReport> archive() {
+        log.debug("REST request to archive Transactions");
+        try {
+            return ResponseEntity.ok().body(transactionArchiveService.archive());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+}
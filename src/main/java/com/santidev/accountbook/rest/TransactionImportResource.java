@@ -0,0 +1,78 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.model.TransactionImport;
+import com.santidev.accountbook.service.TransactionImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * REST controller for importing historical transactions in bulk with a {@link TransactionImport}.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class TransactionImportResource {
+
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final TransactionImportService transactionImportService;
+
+    public TransactionImportResource(TransactionImportService transactionImportService) {
+        this.transactionImportService = transactionImportService;
+    }
+
+    /**
+     * {@code POST  /transaction-imports} : Import the transactions of a CSV or NDJSON file, streamed in the body.
+     *
+     * @param id the id of a failed import to resume, with the same file; a new one if missing.
+     * @param contentType {@code text/csv} or {@code application/x-ndjson}.
+     * @param body the file.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the completed import,
+     * or with status {@code 400 (Bad Request)} if the file can't be read,
+     * or with status {@code 409 (Conflict)} if the import is already running,
+     * or with status {@code 500 (Internal Server Error)} and with body the failed import, to be resumed.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping(value = "/transaction-imports", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public ResponseEntity<TransactionImport> importTransactions(@RequestParam(required = false) String id,
+                                                                @RequestHeader("Content-Type") MediaType contentType,
+                                                                InputStream body) throws URISyntaxException {
+        String importId = id != null ? id : ObjectId.get().toHexString();
+        String format = MediaType.valueOf(TEXT_CSV).includes(contentType) ? TransactionImportService.CSV : TransactionImportService.NDJSON;
+        log.debug("REST request to import {} Transactions : {}", format, importId);
+        TransactionImport result;
+        try {
+            result = transactionImportService.importTransactions(importId, format, body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (TransactionImport.FAILED.equals(result.getStatus())) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        }
+        return ResponseEntity.created(new URI("/api/transaction-imports/" + result.getId()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET  /transaction-imports/:id} : get the progress of the "id" import.
+     *
+     * @param id the id of the import to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the import, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/transaction-imports/{id}")
+    public ResponseEntity<TransactionImport> getTransactionImport(@PathVariable String id) {
+        log.debug("REST request to get TransactionImport : {}", id);
+        return transactionImportService.findImport(id).map(response -> ResponseEntity.ok().body(response))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
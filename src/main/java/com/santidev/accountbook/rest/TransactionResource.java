@@ -1,16 +1,26 @@
 package com.santidev.accountbook.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.santidev.accountbook.model.Transaction;
 import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.IdempotencyService;
 import com.santidev.accountbook.service.TransactionService;
+import com.santidev.accountbook.service.dto.TransactionBatchItemResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,30 +36,63 @@ public class TransactionResource {
 
     private final TransactionRepository transactionRepository;
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final int batchMaxSize;
+    private final int pageMaxSize;
 
-    public TransactionResource(TransactionRepository transactionRepository, TransactionService transactionService) {
+    public TransactionResource(TransactionRepository transactionRepository, TransactionService transactionService,
+                               IdempotencyService idempotencyService, ObjectMapper objectMapper,
+                               @Value("${accountbook.transactions.batch-max-size:10000}") int batchMaxSize,
+                               @Value("${accountbook.transactions.page-max-size:1000}") int pageMaxSize) {
         this.transactionRepository = transactionRepository;
         this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
+        this.batchMaxSize = batchMaxSize;
+        this.pageMaxSize = pageMaxSize;
     }
 
     /**
      * {@code POST  /transactions} : Create a new transaction.
      *
      * @param transaction the transaction to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new transaction, or with status {@code 400 (Bad Request)} if the transaction has already an ID.
+     * @param idempotencyKey optional key of the request; a retry with the same key returns the transaction created by the first one.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new transaction, or with status {@code 400 (Bad Request)} if the transaction has already an ID,
+     * or with status {@code 409 (Conflict)} if a request with the same key is in progress,
+     * or with status {@code 422 (Unprocessable Entity)} if the key was used for a different transaction.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("/transactions")
-    public ResponseEntity<Transaction> createTransaction(@RequestBody Transaction transaction) throws URISyntaxException {
+    public ResponseEntity<Transaction> createTransaction(@RequestBody Transaction transaction,
+                                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) throws URISyntaxException {
         log.debug("REST request to save Transaction : {}", transaction);
         if (transaction.getId() != null) {
         	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new transaction cannot already have an ID");
         }
-        Transaction result = transactionService.processTransaction(transaction);
+        Transaction result = idempotencyKey == null
+            ? transactionService.processTransaction(transaction)
+            : idempotencyService.createOnce(idempotencyKey, transaction, () -> transactionService.processTransaction(transaction));
         return ResponseEntity.created(new URI("/api/transactions/" + result.getId()))
             .body(result);
     }
 
+    /**
+     * {@code POST  /transactions/batch} : Create a batch of new transactions.
+     *
+     * @param transactions the transactions to create.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the accept/reject result of every item,
+     * or with status {@code 400 (Bad Request)} if the batch is bigger than the configured maximum.
+     */
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<List<TransactionBatchItemResult>> createTransactions(@RequestBody List<Transaction> transactions) {
+        log.debug("REST request to save a batch of {} Transactions", transactions.size());
+        if (transactions.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch can't have more than " + batchMaxSize + " transactions");
+        }
+        return ResponseEntity.ok().body(transactionService.processBatch(transactions));
+    }
+
     /**
      * {@code PUT  /transactions} : Updates an existing transaction.
      *
@@ -81,6 +124,56 @@ public class TransactionResource {
         return transactionRepository.findAll();
     }
 
+    /**
+     * {@code GET  /transactions} : stream all the transactions as newline delimited JSON.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and one transaction per line in body.
+     */
+    @GetMapping(value = "/transactions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllTransactions() {
+        log.debug("REST request to stream all Transactions");
+        return NdjsonResponses.of(transactionRepository::streamAllBy, objectMapper);
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id/transactions} : get a page of the transactions of the "id" userAccount,
+     * ordered by effective date.
+     *
+     * @param id the id of the userAccount.
+     * @param from the first effective date to include.
+     * @param to the last effective date to include.
+     * @param afterDate the effective date of the last transaction of the previous page.
+     * @param afterId the id of the last transaction of the previous page.
+     * @param size the maximum number of transactions of the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the transactions in body, with a
+     * {@code Link} header pointing to the next page when there may be one,
+     * or with status {@code 400 (Bad Request)} if the page size is not valid.
+     */
+    @GetMapping("/user-accounts/{id}/transactions")
+    public ResponseEntity<List<Transaction>> getUserAccountTransactions(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(required = false) String afterId,
+            @RequestParam(defaultValue = "100") int size) {
+        log.debug("REST request to get a page of Transactions of UserAccount : {}", id);
+        if (size < 1 || size > pageMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + pageMaxSize);
+        }
+        List<Transaction> page = transactionRepository.findPageByAccount(id, from, to, afterDate, afterId, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == size) {
+            Transaction last = page.get(page.size() - 1);
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("afterDate", last.getEffectiveDate())
+                .replaceQueryParam("afterId", last.getId())
+                .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
     /**
      * {@code GET  /transactions/:id} : get the "id" transaction.
      *
@@ -0,0 +1,57 @@
+package com.santidev.accountbook.rest;
+
+import com.santidev.accountbook.service.TransferService;
+import com.santidev.accountbook.service.dto.Transfer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * REST controller for moving money between user accounts with a {@link Transfer}.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class TransferResource {
+
+    private final TransferService transferService;
+
+    public TransferResource(TransferService transferService) {
+        this.transferService = transferService;
+    }
+
+    /**
+     * {@code POST  /transfers} : Debit an account and credit another one as one unit.
+     *
+     * @param transfer the transfer to make.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the transfer and its two transactions,
+     * or with status {@code 400 (Bad Request)} if the transfer is not valid or the source account doesn't have enough money,
+     * or with status {@code 404 (Not Found)} if an account has no balance.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/transfers")
+    public ResponseEntity<Transfer> createTransfer(@RequestBody Transfer transfer) throws URISyntaxException {
+        log.debug("REST request to save Transfer : {}", transfer);
+        Transfer result = transferService.transfer(transfer);
+        return ResponseEntity.created(new URI("/api/transfers/" + result.getId()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET  /transfers/:id} : get the "id" transfer.
+     *
+     * @param id the id of the transfer to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the transfer, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/transfers/{id}")
+    public ResponseEntity<Transfer> getTransfer(@PathVariable String id) {
+        log.debug("REST request to get Transfer : {}", id);
+        return transferService.findTransfer(id).map(response -> ResponseEntity.ok().body(response))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
@@ -1,16 +1,27 @@
 package com.santidev.accountbook.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
 import com.santidev.accountbook.model.UserAccount;
 import com.santidev.accountbook.repository.BalanceRepository;
 import com.santidev.accountbook.repository.UserAccountRepository;
+import com.santidev.accountbook.service.AccountRegistry;
+import com.santidev.accountbook.service.UserAccountService;
+import com.santidev.accountbook.service.dto.UserAccountBatchItemResult;
+import com.santidev.accountbook.service.dto.UserAccountDeleteReport;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -29,11 +40,23 @@ public class UserAccountResource {
 
     private final UserAccountRepository userAccountRepository;
     private final BalanceRepository balanceRepository;
+    private final ObjectMapper objectMapper;
+    private final AccountRegistry accountRegistry;
+    private final UserAccountService userAccountService;
+    private final int batchMaxSize;
 
     public UserAccountResource(UserAccountRepository userAccountRepository,
-                               BalanceRepository balanceRepository) {
+                               BalanceRepository balanceRepository,
+                               ObjectMapper objectMapper,
+                               AccountRegistry accountRegistry,
+                               UserAccountService userAccountService,
+                               @Value("${accountbook.accounts.batch-max-size:100000}") int batchMaxSize) {
         this.userAccountRepository = userAccountRepository;
         this.balanceRepository = balanceRepository;
+        this.objectMapper = objectMapper;
+        this.accountRegistry = accountRegistry;
+        this.userAccountService = userAccountService;
+        this.batchMaxSize = batchMaxSize;
     }
 
     /**
@@ -54,30 +77,64 @@ public class UserAccountResource {
         
         //For testing we create a balance too. To prevent execute other request
         newBalance.setAccountId(result.getId());
-        newBalance.setTotal(new BigDecimal(0l));
+        newBalance.setTotal(Money.ZERO);
         balanceRepository.save(newBalance);
+        accountRegistry.put(result);
         
         return ResponseEntity.created(new URI("/api/user-accounts/" + result.getId()))
             .body(result);
     }
 
     /**
-     * {@code PUT  /user-accounts} : Updates an existing userAccount.
+     * {@code POST  /user-accounts/batch} : Create a batch of new userAccounts, each with a zero balance.
+     *
+     * @param userAccounts the userAccounts to create.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the created/rejected outcome of every item,
+     * or with status {@code 400 (Bad Request)} if the batch is bigger than the configured maximum.
+     */
+    @PostMapping("/user-accounts/batch")
+    public ResponseEntity<List<UserAccountBatchItemResult>> createUserAccounts(@RequestBody List<UserAccount> userAccounts) {
+        log.debug("REST request to save a batch of {} UserAccounts", userAccounts.size());
+        checkBatchSize(userAccounts.size());
+        return ResponseEntity.ok().body(userAccountService.createAll(userAccounts));
+    }
+
+    /**
+     * {@code PUT  /user-accounts} : Updates an existing userAccount, if it still has the version of the {@code If-Match}
+     * ETag or of the body. Without either, the userAccount is overwritten whatever its version.
      *
      * @param userAccount the userAccount to update.
+     * @param ifMatch the ETag of the version the update is based on.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated userAccount,
      * or with status {@code 400 (Bad Request)} if the userAccount is not valid,
+     * or with status {@code 409 (Conflict)} if the userAccount changed since the version of the body,
+     * or with status {@code 412 (Precondition Failed)} if the userAccount changed since the version of {@code If-Match},
      * or with status {@code 500 (Internal Server Error)} if the userAccount couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/user-accounts")
-    public ResponseEntity<UserAccount> updateUserAccount(@RequestBody UserAccount userAccount) throws URISyntaxException {
+    public ResponseEntity<UserAccount> updateUserAccount(@RequestBody UserAccount userAccount,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update UserAccount : {}", userAccount);
         if (userAccount.getId() == null) {
         	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        UserAccount result = userAccountRepository.save(userAccount);
+        if (ifMatch != null) {
+            userAccount.setVersion(ETags.versionOf(ifMatch));
+        } else if (userAccount.getVersion() == null) {
+            userAccount.setVersion(userAccountRepository.findVersionById(userAccount.getId())
+                .map(UserAccountRepository.VersionOnly::getVersion).orElse(null));
+        }
+        UserAccount result;
+        try {
+            result = userAccountRepository.save(userAccount);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                "The userAccount changed since version " + userAccount.getVersion());
+        }
+        accountRegistry.put(result);
         return ResponseEntity.ok()
+            .eTag(ETags.of(result.getVersion()))
             .body(result);
     }
 
@@ -93,21 +150,44 @@ public class UserAccountResource {
     }
 
     /**
-     * {@code GET  /user-accounts/:id} : get the "id" userAccount.
+     * {@code GET  /user-accounts} : stream all the userAccounts as newline delimited JSON.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and one userAccount per line in body.
+     */
+    @GetMapping(value = "/user-accounts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUserAccounts() {
+        log.debug("REST request to stream all UserAccounts");
+        return NdjsonResponses.of(userAccountRepository::streamAllBy, objectMapper);
+    }
+
+    /**
+     * {@code GET  /user-accounts/:id} : get the "id" userAccount, with its version as ETag. A request with
+     * {@code If-None-Match} reads only the version first, and the whole userAccount only if it changed.
      *
      * @param id the id of the userAccount to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the userAccount, or with status {@code 404 (Not Found)}.
+     * @param request the request, to check its {@code If-None-Match}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the userAccount,
+     * or with status {@code 304 (Not Modified)} if it still has the version of {@code If-None-Match},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/user-accounts/{id}")
-    public ResponseEntity<UserAccount> getUserAccount(@PathVariable String id) {
+    public ResponseEntity<UserAccount> getUserAccount(@PathVariable String id, WebRequest request) {
         log.debug("REST request to get UserAccount : {}", id);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String etag = userAccountRepository.findVersionById(id)
+                .map(version -> ETags.of(version.getVersion()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            if (etag != null && request.checkNotModified(etag)) {
+                return null;
+            }
+        }
         Optional<UserAccount> userAccount = userAccountRepository.findById(id);
-        return userAccount.map(response -> ResponseEntity.ok().body(response))
+        return userAccount.map(response -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
-     * {@code DELETE  /user-accounts/:id} : delete the "id" userAccount.
+     * {@code DELETE  /user-accounts/:id} : delete the "id" userAccount with its balance, transactions, aggregates and snapshots.
      *
      * @param id the id of the userAccount to delete.
      * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
@@ -115,7 +195,27 @@ public class UserAccountResource {
     @DeleteMapping("/user-accounts/{id}")
     public ResponseEntity<Void> deleteUserAccount(@PathVariable String id) {
         log.debug("REST request to delete UserAccount : {}", id);
-        userAccountRepository.deleteById(id);
+        userAccountService.deleteAll(List.of(id));
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * {@code DELETE  /user-accounts/batch} : delete a batch of userAccounts with their balances, transactions, aggregates and snapshots.
+     *
+     * @param ids the ids of the userAccounts to delete.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of documents deleted of each kind,
+     * or with status {@code 400 (Bad Request)} if the batch is bigger than the configured maximum.
+     */
+    @DeleteMapping("/user-accounts/batch")
+    public ResponseEntity<UserAccountDeleteReport> deleteUserAccounts(@RequestBody List<String> ids) {
+        log.debug("REST request to delete a batch of {} UserAccounts", ids.size());
+        checkBatchSize(ids.size());
+        return ResponseEntity.ok().body(userAccountService.deleteAll(ids));
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch can't have more than " + batchMaxSize + " userAccounts");
+        }
+    }
 }
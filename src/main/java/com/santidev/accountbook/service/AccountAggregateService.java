@@ -0,0 +1,311 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.AccountAggregateRepository;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.santidev.accountbook.model.AccountAggregate.DAY;
+import static com.santidev.accountbook.model.AccountAggregate.MONTH;
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+/**
+ * Keeps the credits and debits of every account per day and per month, so a summary over a
+ * range costs one indexed read per bucket instead of a scan of the transactions.
+ * <p>
+ * Committing transactions only merges their amounts into pending deltas, one per bucket, and
+ * wakes the writer thread, so the committer, which still holds the locks of its accounts, never
+ * waits on Mongo. The writer upserts every pending delta in one bulk write; the deltas of a
+ * bucket committed meanwhile are coalesced into one. The deltas of a write that fails with a
+ * transient error, or of the upserts of a bulk write that lost a race to create their bucket,
+ * go back to the pending ones and are written again after {@code accountbook.aggregates.retry-delay};
+ * a write cut after Mongo applied it may then count twice. Other failures drop the deltas, and
+ * {@link #backfill} brings the buckets back in line. Transactions updated or deleted through the
+ * CRUD endpoints aren't tracked either; {@link #backfill} rebuilds the buckets of every account
+ * from its transactions.
+ */
+@Service
+@Slf4j
+public class AccountAggregateService {
+
+    private static final List<String> GRANULARITIES = List.of(DAY, MONTH);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final AccountAggregateRepository accountAggregateRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceRepository balanceRepository;
+    private final AccountLockStripes accountLockStripes;
+    private final LedgerMetrics ledgerMetrics;
+    private final Duration retryDelay;
+    private final ConcurrentHashMap<List<Object>, AccountAggregate> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // not a monitor, so a virtual thread waiting on a write doesn't pin its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "account-aggregates");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AccountAggregateService(AccountAggregateRepository accountAggregateRepository,
+                                   TransactionRepository transactionRepository,
+                                   BalanceRepository balanceRepository,
+                                   AccountLockStripes accountLockStripes,
+                                   LedgerMetrics ledgerMetrics,
+                                   @Value("${accountbook.aggregates.retry-delay:1s}") Duration retryDelay) {
+        this.accountAggregateRepository = accountAggregateRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceRepository = balanceRepository;
+        this.accountLockStripes = accountLockStripes;
+        this.ledgerMetrics = ledgerMetrics;
+        this.retryDelay = retryDelay;
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @param granularity {@link AccountAggregate#DAY} or {@link AccountAggregate#MONTH}.
+     * @param from the first effective date to include, may be {@code null}.
+     * @param to the last effective date to include, may be {@code null}.
+     * @return the buckets of the account that overlap the range, ordered by bucket.
+     */
+    public List<AccountAggregate> summary(String accountId, String granularity, LocalDate from, LocalDate to) {
+        if (!GRANULARITIES.contains(granularity)) {
+            throw new IllegalArgumentException("Granularity must be one of " + GRANULARITIES);
+        }
+        return accountAggregateRepository.findBuckets(accountId, granularity,
+            from == null ? null : AccountAggregate.bucketOf(granularity, from),
+            to == null ? null : AccountAggregate.bucketOf(granularity, to));
+    }
+
+    @EventListener
+    public void onTransactionsCommitted(TransactionsCommittedEvent event) {
+        Collection<AccountAggregate> deltas = aggregate(event.transactions().stream());
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.forEach(this::addPending);
+        scheduleWrite();
+    }
+
+    private void addPending(AccountAggregate delta) {
+        pending.merge(keyOf(delta), delta, (merged, next) -> {
+            merged.setCredits(merged.getCredits().plus(next.getCredits()));
+            merged.setDebits(merged.getDebits().plus(next.getDebits()));
+            merged.setCreditCount(merged.getCreditCount() + next.getCreditCount());
+            merged.setDebitCount(merged.getDebitCount() + next.getDebitCount());
+            return merged;
+        });
+    }
+
+    private void scheduleWrite() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    scheduled.set(false);
+                    if (!flush()) {
+                        retryLater();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                scheduled.set(false);
+                log.warn("Fail scheduling the aggregates write, leaving it pending", ex);
+            }
+        }
+    }
+
+    /**
+     * Waits on the writer thread before writing the deltas that failed again, so an unavailable
+     * Mongo isn't retried in a busy loop; deltas committed meanwhile are coalesced with them.
+     */
+    private void retryLater() {
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Upserts every pending delta in one bulk write, on the calling thread. Deltas merged while
+     * it runs are left for the next write.
+     *
+     * @return {@code false} if deltas failed with a transient error and are pending again.
+     */
+    public boolean flush() {
+        writeLock.lock();
+        try {
+            List<AccountAggregate> deltas = new ArrayList<>();
+            for (List<Object> key : pending.keySet()) {
+                AccountAggregate delta = pending.remove(key);
+                if (delta != null) {
+                    deltas.add(delta);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return true;
+            }
+            try {
+                accountAggregateRepository.addToBuckets(deltas);
+                return true;
+            } catch (BulkOperationException ex) {
+                // the upserts without an error were applied, and a write concern error doesn't undo them
+                List<AccountAggregate> retried = new ArrayList<>();
+                List<AccountAggregate> dropped = new ArrayList<>();
+                ex.getErrors().forEach(error -> (error.getCode() == DUPLICATE_KEY ? retried : dropped).add(deltas.get(error.getIndex())));
+                return failed(retried, dropped, ex);
+            } catch (TransientDataAccessException | DataAccessResourceFailureException ex) {
+                return failed(deltas, List.of(), ex);
+            } catch (Exception ex) {
+                return failed(List.of(), deltas, ex);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Puts back the deltas to retry, under the write lock so a rebuild of their account still
+     * drops them, and drops the others.
+     */
+    private boolean failed(List<AccountAggregate> retried, List<AccountAggregate> dropped, Exception ex) {
+        if (!retried.isEmpty()) {
+            log.warn("Fail updating {} aggregates, retrying", retried.size(), ex);
+            retried.forEach(this::addPending);
+        }
+        if (!dropped.isEmpty()) {
+            // the transactions are committed, a backfill brings the buckets back in line
+            log.error("Fail updating {} aggregates", dropped.size(), ex);
+            ledgerMetrics.errorSwallowed("updateAggregates", ex);
+        }
+        return retried.isEmpty();
+    }
+
+    /**
+     * Rebuilds the buckets of every account with a balance from its transactions, one account
+     * at a time under its lock.
+     *
+     * @return the number of accounts rebuilt.
+     */
+    public int backfill() {
+        int rebuilt = 0;
+        try (Stream<Balance> balances = balanceRepository.streamAllBy()) {
+            Iterator<Balance> iterator = balances.iterator();
+            while (iterator.hasNext()) {
+                String accountId = iterator.next().getAccountId();
+                try {
+                    accountLockStripes.withAccountLock(accountId, () -> rebuild(accountId));
+                    rebuilt++;
+                } catch (Exception ex) {
+                    log.error("Fail rebuilding the aggregates of account {}", accountId, ex);
+                    ledgerMetrics.errorSwallowed("backfillAggregates", ex);
+                }
+            }
+        }
+        log.info("Rebuilt the aggregates of {} accounts", rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Replaces the buckets of the account with ones rebuilt from its transactions. The caller
+     * must hold the lock of the account, so every transaction of a pending delta is already
+     * committed and read by the rebuild; its pending deltas are dropped, and a write of them
+     * in flight is waited for, so they aren't counted twice.
+     *
+     * @param accountId the id of the user account.
+     * @return the number of buckets written.
+     */
+    public int rebuild(String accountId) {
+        writeLock.lock();
+        try {
+            pending.keySet().removeIf(key -> accountId.equals(key.get(0)));
+            Collection<AccountAggregate> buckets;
+            try (Stream<Transaction> transactions = transactionRepository.streamByAccount(accountId, null, null)) {
+                buckets = aggregate(transactions);
+            }
+            accountAggregateRepository.deleteByAccountId(accountId);
+            accountAggregateRepository.insert(buckets);
+            return buckets.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static List<Object> keyOf(AccountAggregate aggregate) {
+        return List.of(aggregate.getAccountId(), aggregate.getGranularity(), aggregate.getBucket());
+    }
+
+    /**
+     * @return the day and month buckets of the transactions, without ids.
+     */
+    static Collection<AccountAggregate> aggregate(Stream<Transaction> transactions) {
+        Map<List<Object>, AccountAggregate> buckets = new LinkedHashMap<>();
+        transactions.forEach(transaction -> {
+            boolean credit = CREDIT.equalsIgnoreCase(transaction.getType());
+            if (transaction.getIdUserAccount() == null || transaction.getAmount() == null || transaction.getEffectiveDate() == null
+                    || !(credit || DEBIT.equalsIgnoreCase(transaction.getType()))) {
+                return;
+            }
+            for (String granularity : GRANULARITIES) {
+                LocalDate bucket = AccountAggregate.bucketOf(granularity, transaction.getEffectiveDate());
+                AccountAggregate aggregate = buckets.computeIfAbsent(List.of(transaction.getIdUserAccount(), granularity, bucket),
+                    key -> AccountAggregate.builder()
+                        .accountId(transaction.getIdUserAccount())
+                        .granularity(granularity)
+                        .bucket(bucket)
+                        .credits(Money.ZERO)
+                        .debits(Money.ZERO)
+                        .build());
+                if (credit) {
+                    aggregate.setCredits(aggregate.getCredits().plus(transaction.getAmount()));
+                    aggregate.setCreditCount(aggregate.getCreditCount() + 1);
+                } else {
+                    aggregate.setDebits(aggregate.getDebits().plus(transaction.getAmount()));
+                    aggregate.setDebitCount(aggregate.getDebitCount() + 1);
+                }
+            }
+        });
+        return buckets.values();
+    }
+}
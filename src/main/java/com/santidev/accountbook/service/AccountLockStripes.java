@@ -0,0 +1,118 @@
+package com.santidev.accountbook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped lock table that serializes the work done for one user account while letting
+ * different accounts proceed in parallel.
+ * <p>
+ * Accounts are mapped to a fixed number of fair locks by hash, so transactions for the
+ * same account run one at a time in arrival order and the memory used doesn't grow with
+ * the number of accounts.
+ */
+@Component
+public class AccountLockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public AccountLockStripes(@Value("${accountbook.transactions.lock-stripes:256}") int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Lock stripe count must be positive");
+        }
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs {@code action} holding the lock of the stripe of {@code accountId}.
+     *
+     * @param accountId the id of the user account the action works on.
+     * @param action the work to serialize.
+     * @return the result of the action.
+     */
+    public <T> T withAccountLock(String accountId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(accountId)];
+        maxQueueDepth.accumulateAndGet(lock.getQueueLength() + 1, Math::max);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} holding the locks of every stripe the given accounts map to.
+     * Stripes are always taken in ascending order so concurrent callers can't deadlock.
+     *
+     * @param accountIds the ids of the user accounts the action works on.
+     * @param action the work to serialize.
+     * @return the result of the action.
+     */
+    public <T> T withAccountLocks(Collection<String> accountIds, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String accountId : accountIds) {
+            indexes.add(stripeOf(accountId));
+        }
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                maxQueueDepth.accumulateAndGet(lock.getQueueLength() + 1, Math::max);
+                lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int index : indexes) {
+                if (locked-- == 0) {
+                    break;
+                }
+                stripes[index].unlock();
+            }
+        }
+    }
+
+    int stripeOf(String accountId) {
+        if (accountId == null) {
+            return 0;
+        }
+        int h = accountId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @return the estimated number of threads currently waiting on any stripe.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ReentrantLock lock : stripes) {
+            depth += lock.getQueueLength();
+        }
+        return depth;
+    }
+
+    /**
+     * @return the deepest queue observed on a single stripe since startup, counting the caller.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+}
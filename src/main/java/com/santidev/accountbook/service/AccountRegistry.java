@@ -0,0 +1,191 @@
+package com.santidev.accountbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.UserAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The ids of the user accounts that exist and of the ones that are disabled, in memory, so a
+ * transaction for an unknown or disabled account is rejected before any repository call.
+ * <p>
+ * Ids that are object ids are kept as {@link ObjectId}, 12 bytes instead of a 24 character
+ * string. The registry is filled by {@link #load} at startup and kept current by the user
+ * account endpoints. Until it is loaded it knows nothing, and lets every account through, so
+ * the checks are no stricter than before.
+ * <p>
+ * Accounts created, disabled or deleted by another instance, or straight in Mongo, are picked up
+ * by reading the account again: what the registry knows of an account, that it exists or not and
+ * whether it is disabled, is trusted for {@code accountbook.accounts.registry-ttl} after it was
+ * last read or written here, so an unknown id costs one read per TTL, not one per request. At
+ * most {@code accountbook.accounts.registry-maximum-size} accounts are trusted at once; the ones
+ * past it are read again on their next check.
+ */
+@Component
+@Slf4j
+public class AccountRegistry {
+
+    private final UserAccountRepository userAccountRepository;
+    private final Set<Object> known = ConcurrentHashMap.newKeySet();
+    private final Set<Object> disabled = ConcurrentHashMap.newKeySet();
+    private final Cache<Object, Boolean> current;
+    private volatile boolean loaded;
+
+    public AccountRegistry(UserAccountRepository userAccountRepository,
+                           @Value("${accountbook.accounts.registry-ttl:30s}") Duration ttl,
+                           @Value("${accountbook.accounts.registry-maximum-size:100000}") long maximumSize) {
+        this.userAccountRepository = userAccountRepository;
+        this.current = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    /**
+     * Reads every user account from a cursor into the registry and starts enforcing it.
+     *
+     * @return the number of accounts read.
+     */
+    public int load() {
+        int accounts = 0;
+        try (Stream<UserAccount> userAccounts = userAccountRepository.streamAllBy()) {
+            Iterator<UserAccount> iterator = userAccounts.iterator();
+            while (iterator.hasNext()) {
+                put(iterator.next());
+                accounts++;
+            }
+        }
+        loaded = true;
+        log.info("Loaded {} user accounts, {} disabled, into the account registry", accounts, disabled.size());
+        return accounts;
+    }
+
+    /**
+     * @return whether the registry was loaded and is enforced.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records a user account that was created or updated.
+     *
+     * @param userAccount the saved user account.
+     */
+    public void put(UserAccount userAccount) {
+        Object key = keyOf(userAccount.getId());
+        if (Boolean.TRUE.equals(userAccount.getDisabled())) {
+            disabled.add(key);
+        } else {
+            disabled.remove(key);
+        }
+        known.add(key);
+        current.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Forgets a user account that was deleted.
+     *
+     * @param accountId the id of the user account.
+     */
+    public void remove(String accountId) {
+        Object key = keyOf(accountId);
+        known.remove(key);
+        disabled.remove(key);
+        current.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @return whether {@link #rejection} answers from memory, without reading the account.
+     */
+    public boolean isCurrent(String accountId) {
+        return !loaded || accountId == null || current.getIfPresent(keyOf(accountId)) != null;
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @return why a transaction for the account is rejected, or {@code null} if it isn't.
+     */
+    public String rejection(String accountId) {
+        if (!loaded) {
+            return null;
+        }
+        if (accountId == null) {
+            return "Missing account";
+        }
+        Object key = keyOf(accountId);
+        if (current.getIfPresent(key) == null) {
+            reload(accountId);
+        }
+        if (!known.contains(key)) {
+            return "Unknown account " + accountId;
+        }
+        if (disabled.contains(key)) {
+            return "Account " + accountId + " is disabled";
+        }
+        return null;
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @throws ResponseStatusException with status {@code 404 (Not Found)} if the account doesn't
+     * exist, or {@code 403 (Forbidden)} if it is disabled.
+     */
+    public void check(String accountId) {
+        String rejection = rejection(accountId);
+        if (rejection != null) {
+            boolean isDisabled = accountId != null && disabled.contains(keyOf(accountId));
+            throw new ResponseStatusException(isDisabled ? HttpStatus.FORBIDDEN : HttpStatus.NOT_FOUND, rejection);
+        }
+    }
+
+    /**
+     * Reads the account again into the registry. If the read fails what the registry knew is
+     * used, and the account is read again on its next check.
+     */
+    private void reload(String accountId) {
+        Optional<UserAccount> userAccount;
+        try {
+            userAccount = userAccountRepository.findById(accountId);
+        } catch (RuntimeException e) {
+            log.warn("Fail reading user account {} for the account registry", accountId, e);
+            return;
+        }
+        if (userAccount.isPresent()) {
+            put(userAccount.get());
+        } else {
+            remove(accountId);
+        }
+    }
+
+    /**
+     * @return the id as an {@link ObjectId} if it is the hex string of one, so it maps back to
+     * the same string, or else the id itself.
+     */
+    private static Object keyOf(String accountId) {
+        if (accountId.length() != 24) {
+            return accountId;
+        }
+        for (int i = 0; i < accountId.length(); i++) {
+            char c = accountId.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return accountId;
+            }
+        }
+        return new ObjectId(accountId);
+    }
+}
@@ -0,0 +1,159 @@
+package com.santidev.accountbook.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.repository.BalanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Size-bounded cache of balances keyed by user account id, in front of {@link BalanceRepository}.
+ * <p>
+ * Writers keep it coherent by putting the balance returned by their update, or by invalidating
+ * the account when they don't have it. A load publishes a pending entry that concurrent readers
+ * of the same account wait on, and runs outside of any lock so it never pins a virtual thread; a
+ * write that lands while a load is in flight replaces the pending entry, so it always wins over
+ * the value being loaded. Entries also expire after a while so balances changed by other
+ * instances are eventually picked up. Callers always get a copy, so mutating a returned
+ * balance never changes the cached one.
+ */
+@Component
+public class BalanceCache {
+
+    private final BalanceRepository balanceRepository;
+    private final AsyncCache<String, Balance> byAccountId;
+    private final Cache<String, String> accountIdByBalanceId;
+
+    public BalanceCache(BalanceRepository balanceRepository,
+                        @Value("${accountbook.balance-cache.maximum-size:100000}") long maximumSize,
+                        @Value("${accountbook.balance-cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.balanceRepository = balanceRepository;
+        this.byAccountId = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .buildAsync();
+        this.accountIdByBalanceId = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .build();
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @return the balance of the account, loading it from the repository on a miss.
+     */
+    public Optional<Balance> findByAccountId(String accountId) {
+        CompletableFuture<Balance> cached = byAccountId.getIfPresent(accountId);
+        if (cached == null) {
+            CompletableFuture<Balance> loading = new CompletableFuture<>();
+            cached = byAccountId.asMap().putIfAbsent(accountId, loading);
+            if (cached == null) {
+                cached = loading;
+                try {
+                    loading.complete(balanceRepository.findByAccountId(accountId).stream()
+                        .findFirst()
+                        .map(this::index)
+                        .orElse(null));
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    byAccountId.asMap().remove(accountId, loading);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return Optional.ofNullable(cached.join()).map(BalanceCache::copyOf);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * @param id the id of the balance.
+     * @return the balance, served from the cache once its account is known.
+     */
+    public Optional<Balance> findById(String id) {
+        String accountId = accountIdByBalanceId.getIfPresent(id);
+        if (accountId != null) {
+            Optional<Balance> balance = findByAccountId(accountId);
+            if (balance.isPresent() && id.equals(balance.get().getId())) {
+                return balance;
+            }
+        }
+        Optional<Balance> balance = balanceRepository.findById(id);
+        balance.ifPresent(this::index);
+        return balance;
+    }
+
+    /**
+     * Stores the balance as just written to the repository.
+     *
+     * @param balance the balance after the write.
+     */
+    public void put(Balance balance) {
+        if (balance.getAccountId() == null) {
+            return;
+        }
+        byAccountId.put(balance.getAccountId(), CompletableFuture.completedFuture(index(copyOf(balance))));
+    }
+
+    /**
+     * Drops the cached balance of the given account.
+     *
+     * @param accountId the id of the user account.
+     */
+    public void invalidate(String accountId) {
+        if (accountId != null) {
+            byAccountId.synchronous().invalidate(accountId);
+        }
+    }
+
+    /**
+     * Drops the given balance, whichever account it was cached under.
+     *
+     * @param balanceId the id of the balance.
+     * @param accountId the id of the user account the balance belongs to now, may be {@code null}.
+     */
+    public void invalidateBalance(String balanceId, String accountId) {
+        String previousAccountId = accountIdByBalanceId.getIfPresent(balanceId);
+        accountIdByBalanceId.invalidate(balanceId);
+        invalidate(previousAccountId);
+        invalidate(accountId);
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the cache.
+     */
+    public CacheStats stats() {
+        return byAccountId.synchronous().stats();
+    }
+
+    public long size() {
+        return byAccountId.synchronous().estimatedSize();
+    }
+
+    private Balance index(Balance balance) {
+        if (balance.getId() != null) {
+            accountIdByBalanceId.put(balance.getId(), balance.getAccountId());
+        }
+        return balance;
+    }
+
+    private static Balance copyOf(Balance balance) {
+        return Balance.builder()
+            .id(balance.getId())
+            .accountId(balance.getAccountId())
+            .total(balance.getTotal())
+            .version(balance.getVersion())
+            .build();
+    }
+}
@@ -0,0 +1,307 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Transaction;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-process fan-out of balance changes to the subscribers of an account, like the clients of the
+ * balance stream.
+ * <p>
+ * Committing transactions only flags their accounts that have subscribers as changed and hands
+ * them to the feed threads, so the cost on the write path doesn't grow with the subscribers. A
+ * feed thread reads the balance from the {@link BalanceCache} once per change and offers it to
+ * every subscriber; changes that land before that read are coalesced into it. Each subscriber
+ * has a bounded buffer drained into its sink on a writer thread, never on a feed thread: a slow
+ * subscriber loses its oldest totals, never the latest, and never holds up the others. A
+ * subscriber whose sink has been writing one balance for longer than the write timeout is closed
+ * at the next change, so a stuck client stops getting work. A subscriber only gets balances newer
+ * than the last one it got, by version.
+ */
+@Component
+@Slf4j
+public class BalanceFeed {
+
+    private final BalanceCache balanceCache;
+    private final int bufferSize;
+    private final long writeTimeoutNanos;
+    private final ExecutorService feeders;
+    private final ExecutorService writers;
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+
+    public BalanceFeed(BalanceCache balanceCache,
+                       @Value("${accountbook.balance-feed.buffer-size:16}") int bufferSize,
+                       @Value("${accountbook.balance-feed.threads:4}") int threads,
+                       @Value("${accountbook.balance-feed.write-timeout:10s}") Duration writeTimeout) {
+        this.balanceCache = balanceCache;
+        this.bufferSize = bufferSize;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        AtomicInteger feederCount = new AtomicInteger();
+        this.feeders = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "balance-feed-" + feederCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A writer blocks as long as its client doesn't read, so writers aren't bounded by a pool
+        // size that stuck clients could use up: there is at most one per subscriber writing.
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "balance-feed-writer-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        feeders.shutdownNow();
+        writers.shutdownNow();
+        try {
+            feeders.awaitTermination(10, TimeUnit.SECONDS);
+            writers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Subscribes to the balance of an account, starting with its current balance.
+     *
+     * @param accountId the id of the user account.
+     * @param sink receives the balances, one at a time, on a writer thread; if it throws the
+     * subscription is closed.
+     * @return the subscription, to close once the subscriber is gone.
+     */
+    public Subscription subscribe(String accountId, Consumer<Balance> sink) {
+        return subscribe(accountId, sink, () -> { });
+    }
+
+    /**
+     * Subscribes to the balance of an account, starting with its current balance.
+     *
+     * @param accountId the id of the user account.
+     * @param sink receives the balances, one at a time, on a writer thread; if it throws the
+     * subscription is closed.
+     * @param onClosed run on a writer thread when the feed closes the subscription itself, because
+     * the sink threw or stalled; a stalled sink may still be writing then.
+     * @return the subscription, to close once the subscriber is gone.
+     */
+    public Subscription subscribe(String accountId, Consumer<Balance> sink, Runnable onClosed) {
+        Subscription subscription = new Subscription(accountId, sink, onClosed);
+        topics.compute(accountId, (key, topic) -> {
+            Topic subscribed = topic == null ? new Topic(accountId) : topic;
+            subscribed.subscriptions.add(subscription);
+            return subscribed;
+        });
+        subscribers.incrementAndGet();
+        balanceCache.findByAccountId(accountId).ifPresent(subscription::offer);
+        return subscription;
+    }
+
+    @EventListener
+    public void onTransactionsCommitted(TransactionsCommittedEvent event) {
+        if (topics.isEmpty()) {
+            return;
+        }
+        Set<String> accountIds = event.transactions().stream()
+            .map(Transaction::getIdUserAccount)
+            .collect(Collectors.toSet());
+        accountIds.forEach(this::publish);
+    }
+
+    @EventListener
+    public void onBalancesChanged(BalancesChangedEvent event) {
+        if (topics.isEmpty()) {
+            return;
+        }
+        event.accountIds().forEach(this::publish);
+    }
+
+    /**
+     * Flags the balance of the account as changed, for the feed threads to send it to the
+     * subscribers. Returns right away.
+     *
+     * @param accountId the id of the user account.
+     */
+    public void publish(String accountId) {
+        Topic topic = accountId == null ? null : topics.get(accountId);
+        if (topic == null) {
+            return;
+        }
+        if (topic.changed.compareAndSet(false, true)) {
+            feeders.execute(() -> deliver(topic));
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    private void deliver(Topic topic) {
+        topic.changed.set(false);
+        try {
+            balanceCache.findByAccountId(topic.accountId)
+                .ifPresent(balance -> topic.subscriptions.forEach(subscription -> subscription.offer(balance)));
+        } catch (RuntimeException e) {
+            log.warn("Fail reading the balance of account {} for its subscribers", topic.accountId, e);
+        }
+    }
+
+    /**
+     * @return the subscriptions open now.
+     */
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    /**
+     * @return the changes folded into a change not yet sent, since startup.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the balances dropped from the buffer of a slow subscriber, since startup.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the subscriptions closed because their sink was writing for longer than the write
+     * timeout, since startup.
+     */
+    public long getStalled() {
+        return stalled.get();
+    }
+
+    private static final class Topic {
+
+        private final String accountId;
+        private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean changed = new AtomicBoolean();
+
+        private Topic(String accountId) {
+            this.accountId = accountId;
+        }
+    }
+
+    /**
+     * A subscriber of the balance of an account, with its buffer of balances not sent yet.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String accountId;
+        private final Consumer<Balance> sink;
+        private final Runnable onClosed;
+        private final ArrayBlockingQueue<Balance> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile long writingSince;
+        private Long lastVersion;
+
+        private Subscription(String accountId, Consumer<Balance> sink, Runnable onClosed) {
+            this.accountId = accountId;
+            this.sink = sink;
+            this.onClosed = onClosed;
+        }
+
+        private synchronized void offer(Balance balance) {
+            if (closed.get() || (lastVersion != null && balance.getVersion() != null && balance.getVersion() <= lastVersion)) {
+                return;
+            }
+            long since = writingSince;
+            if (since != 0 && System.nanoTime() - since > writeTimeoutNanos) {
+                log.debug("Closing the subscription to account {} after its sink stalled", accountId);
+                stalled.incrementAndGet();
+                end();
+                return;
+            }
+            lastVersion = balance.getVersion();
+            while (!buffer.offer(balance)) {
+                if (buffer.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Balance next;
+                while (!closed.get() && (next = buffer.poll()) != null) {
+                    writingSince = System.nanoTime();
+                    try {
+                        sink.accept(next);
+                    } catch (RuntimeException e) {
+                        log.debug("Closing the subscription to account {} after its sink failed", accountId, e);
+                        end();
+                        return;
+                    } finally {
+                        writingSince = 0;
+                    }
+                }
+                draining.set(false);
+            } while (!closed.get() && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        /**
+         * Stops sending balances to the sink. Closing it again does nothing.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                unsubscribe();
+            }
+        }
+
+        private void unsubscribe() {
+            subscribers.decrementAndGet();
+            topics.computeIfPresent(accountId, (key, topic) -> {
+                topic.subscriptions.remove(this);
+                return topic.subscriptions.isEmpty() ? null : topic;
+            });
+            buffer.clear();
+        }
+
+        /**
+         * Closes the subscription for the feed and lets the subscriber know. The callback runs on a
+         * writer thread, as it may have to wait for a sink still writing.
+         */
+        private void end() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            unsubscribe();
+            writers.execute(() -> {
+                try {
+                    onClosed.run();
+                } catch (RuntimeException e) {
+                    log.debug("Fail notifying the subscriber of account {} of its closing", accountId, e);
+                }
+            });
+        }
+    }
+}
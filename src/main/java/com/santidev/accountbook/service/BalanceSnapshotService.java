@@ -0,0 +1,176 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.BalanceSnapshotRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps periodic per-account balance checkpoints so the balance of an account at any date can
+ * be answered by replaying only the transactions after the nearest prior snapshot.
+ * <p>
+ * Snapshots are only taken for days that are over. A transaction with an earlier effective date
+ * drops the snapshots of its account from that date on, and the next run rebuilds them. Without a
+ * prior snapshot the total at a date is the stored total less the transactions after the date,
+ * so an opening balance set on the balance itself is kept; changing the stored total any other
+ * way than with a transaction must {@link #dropSnapshots drop} the snapshots of the account.
+ */
+@Service
+@Slf4j
+public class BalanceSnapshotService {
+
+	private final BalanceSnapshotRepository balanceSnapshotRepository;
+	private final TransactionRepository transactionRepository;
+	private final BalanceRepository balanceRepository;
+	private final AccountLockStripes accountLockStripes;
+	private final LedgerMetrics ledgerMetrics;
+
+	public BalanceSnapshotService(BalanceSnapshotRepository balanceSnapshotRepository,
+								  TransactionRepository transactionRepository,
+								  BalanceRepository balanceRepository,
+								  AccountLockStripes accountLockStripes,
+								  LedgerMetrics ledgerMetrics) {
+		this.balanceSnapshotRepository = balanceSnapshotRepository;
+		this.transactionRepository = transactionRepository;
+		this.balanceRepository = balanceRepository;
+		this.accountLockStripes = accountLockStripes;
+		this.ledgerMetrics = ledgerMetrics;
+	}
+
+	/**
+	 * @param accountId the id of the user account.
+	 * @param date the effective date.
+	 * @return the total of the account at the end of the date, not persisted.
+	 */
+	public BalanceSnapshot balanceAt(String accountId, LocalDate date) {
+		Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository
+			.findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(accountId, date);
+		Money total;
+		if (snapshot.isPresent()) {
+			try (Stream<Transaction> transactions = transactionRepository.streamByAccount(accountId,
+					snapshot.get().getEffectiveDate(), date)) {
+				total = transactions.map(TransactionService::signedAmount).reduce(snapshot.get().getTotal(), Money::plus);
+			}
+		} else {
+			total = accountLockStripes.withAccountLock(accountId, () -> storedTotalAt(accountId, date));
+		}
+		return BalanceSnapshot.builder().accountId(accountId).effectiveDate(date).total(total).build();
+	}
+
+	/**
+	 * Drops every snapshot of the account, after its stored total was changed without a
+	 * transaction, so they are rebuilt from the new total.
+	 *
+	 * @param accountId the id of the user account.
+	 */
+	public void dropSnapshots(String accountId) {
+		balanceSnapshotRepository.deleteByAccountIdIn(List.of(accountId));
+	}
+
+	/**
+	 * @return the stored total of the account less the transactions after the date. The caller
+	 * holds the lock of the account, so no transaction lands between the two reads.
+	 */
+	private Money storedTotalAt(String accountId, LocalDate date) {
+		Money total = balanceRepository.findByAccountId(accountId).stream()
+			.findFirst()
+			.map(Balance::getTotal)
+			.orElse(Money.ZERO);
+		try (Stream<Transaction> later = transactionRepository.streamByAccount(accountId, date, null)) {
+			return later.map(TransactionService::signedAmount).reduce(total, Money::minus);
+		}
+	}
+
+	@Scheduled(cron = "${accountbook.snapshots.cron:0 15 0 * * *}")
+	public void takeDailySnapshots() {
+		int written = takeSnapshots(LocalDate.now().minusDays(1));
+		log.info("Wrote {} balance snapshots", written);
+	}
+
+	/**
+	 * Writes a snapshot at {@code date} for every account that changed since its previous one.
+	 *
+	 * @param date a past effective date.
+	 * @return the number of snapshots written.
+	 */
+	public int takeSnapshots(LocalDate date) {
+		if (!date.isBefore(LocalDate.now())) {
+			throw new IllegalArgumentException("Snapshots can only be taken for past dates");
+		}
+		int written = 0;
+		try (Stream<Balance> balances = balanceRepository.streamAllBy()) {
+			Iterator<Balance> iterator = balances.iterator();
+			while (iterator.hasNext()) {
+				String accountId = iterator.next().getAccountId();
+				try {
+					if (accountLockStripes.withAccountLock(accountId, () -> takeSnapshot(accountId, date))) {
+						written++;
+					}
+				} catch (Exception ex) {
+					log.error("Fail taking balance snapshot of account {}", accountId, ex);
+					ledgerMetrics.errorSwallowed("takeSnapshots", ex);
+				}
+			}
+		}
+		return written;
+	}
+
+	private boolean takeSnapshot(String accountId, LocalDate date) {
+		Optional<BalanceSnapshot> previous = balanceSnapshotRepository
+			.findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(accountId, date);
+		if (previous.isPresent() && date.equals(previous.get().getEffectiveDate())) {
+			return false;
+		}
+		if (previous.isEmpty()) {
+			balanceSnapshotRepository.save(BalanceSnapshot.builder()
+				.accountId(accountId)
+				.effectiveDate(date)
+				.total(storedTotalAt(accountId, date))
+				.build());
+			return true;
+		}
+		Money total = previous.get().getTotal();
+		long replayed = 0;
+		try (Stream<Transaction> transactions = transactionRepository
+				.streamByAccount(accountId, previous.get().getEffectiveDate(), date)) {
+			Iterator<Transaction> iterator = transactions.iterator();
+			while (iterator.hasNext()) {
+				total = total.plus(TransactionService.signedAmount(iterator.next()));
+				replayed++;
+			}
+		}
+		if (replayed == 0) {
+			return false;
+		}
+		balanceSnapshotRepository.save(BalanceSnapshot.builder()
+			.accountId(accountId)
+			.effectiveDate(date)
+			.total(total)
+			.build());
+		return true;
+	}
+
+	@EventListener
+	public void onTransactionsCommitted(TransactionsCommittedEvent event) {
+		LocalDate today = LocalDate.now();
+		for (Transaction transaction : event.transactions()) {
+			if (transaction.getEffectiveDate() != null && transaction.getEffectiveDate().isBefore(today)) {
+				balanceSnapshotRepository.deleteByAccountIdAndEffectiveDateGreaterThanEqual(
+					transaction.getIdUserAccount(), transaction.getEffectiveDate());
+			}
+		}
+	}
+}
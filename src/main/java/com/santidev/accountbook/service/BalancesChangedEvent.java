@@ -0,0 +1,12 @@
+package com.santidev.accountbook.service;
+
+import java.util.Collection;
+
+/**
+ * Published once balances have been changed other than by committing transactions, like a
+ * repair, an import or the undo of a failed write, after the change has been persisted.
+ *
+ * @param accountIds the ids of the user accounts whose balance changed.
+ */
+public record BalancesChangedEvent(Collection<String> accountIds) {
+}
@@ -0,0 +1,135 @@
+package com.santidev.accountbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.santidev.accountbook.model.IdempotencyKey;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Makes transaction creation idempotent per client supplied key, so a retried request returns
+ * the transaction created by the first one instead of applying it twice.
+ * <p>
+ * A key is claimed by inserting it into Mongo before the transaction is processed, so only one
+ * request, on any instance, can run for it. Once the transaction is saved it is stored with the
+ * key, and also cached in memory so a replay on the same instance doesn't leave the process.
+ * A request that finds the key claimed but not completed gets a {@code 409 (Conflict)}, one that
+ * reuses a key with a different payload a {@code 422 (Unprocessable Entity)}. A request rejected
+ * by validation ({@code 4xx}) releases the key, as nothing was applied. Any other failure may have
+ * left the transaction applied, so the key stays claimed and retries get the {@code 409} until
+ * the claim expires after {@code accountbook.idempotency.claim-timeout}.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final LedgerMetrics ledgerMetrics;
+    private final Cache<String, IdempotencyKey> completed;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, LedgerMetrics ledgerMetrics,
+                              @Value("${accountbook.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${accountbook.idempotency.claim-timeout:5m}") Duration claimTimeout,
+                              @Value("${accountbook.idempotency.cache-maximum-size:100000}") long cacheMaximumSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ledgerMetrics = ledgerMetrics;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.completed = Caffeine.newBuilder()
+            .maximumSize(cacheMaximumSize)
+            .expireAfterWrite(ttl)
+            .build();
+    }
+
+    /**
+     * Runs {@code create} once per key.
+     *
+     * @param key the idempotency key sent by the client.
+     * @param transaction the transaction of the request, compared with the one of the first request.
+     * @param create creates the transaction.
+     * @return the transaction created by the first request with this key.
+     */
+    public Transaction createOnce(String key, Transaction transaction, Supplier<Transaction> create) {
+        String fingerprint = fingerprintOf(transaction);
+        IdempotencyKey cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return replay(cached, fingerprint);
+        }
+        try {
+            idempotencyKeyRepository.insert(IdempotencyKey.builder()
+                .key(key)
+                .fingerprint(fingerprint)
+                .expiresAt(Instant.now().plus(claimTimeout))
+                .build());
+        } catch (DuplicateKeyException e) {
+            Optional<IdempotencyKey> existing = idempotencyKeyRepository.findById(key);
+            if (existing.isEmpty() || existing.get().getTransaction() == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+            }
+            completed.put(key, existing.get());
+            return replay(existing.get(), fingerprint);
+        }
+        Transaction result;
+        try {
+            result = create.get();
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode().is4xxClientError()) {
+                idempotencyKeyRepository.deleteById(key);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Keeping Idempotency-Key {} claimed for up to {} after a failure that may have applied it", key, claimTimeout, e);
+            throw e;
+        }
+        IdempotencyKey done = IdempotencyKey.builder()
+            .key(key)
+            .fingerprint(fingerprint)
+            .transaction(result)
+            .expiresAt(Instant.now().plus(ttl))
+            .build();
+        try {
+            idempotencyKeyRepository.save(done);
+        } catch (Exception ex) {
+            log.error("Fail storing Idempotency-Key {}", key, ex);
+            ledgerMetrics.errorSwallowed("storeIdempotencyKey", ex);
+        }
+        completed.put(key, done);
+        return result;
+    }
+
+    private static Transaction replay(IdempotencyKey idempotencyKey, String fingerprint) {
+        if (!idempotencyKey.getFingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "The Idempotency-Key was already used for a different transaction");
+        }
+        Transaction transaction = idempotencyKey.getTransaction();
+        return Transaction.builder()
+            .id(transaction.getId())
+            .idUserAccount(transaction.getIdUserAccount())
+            .type(transaction.getType())
+            .amount(transaction.getAmount())
+            .effectiveDate(transaction.getEffectiveDate())
+            .build();
+    }
+
+    private static String fingerprintOf(Transaction transaction) {
+        return transaction.getIdUserAccount() + '|' + transaction.getType() + '|'
+            + transaction.getAmount() + '|'
+            + transaction.getEffectiveDate();
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.santidev.accountbook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the ledger operations, so the time spent in every step of a transaction and the
+ * failures that don't reach the client can be scraped and alerted on.
+ * <p>
+ * Every step is recorded by the {@code accountbook.ledger.operation} timer, tagged with the
+ * {@code operation} (validation, balance.lookup, balance.write, transaction.insert,
+ * journal.append, journal.flush or journal.fsync) and the {@code path} (single, batch, reactive,
+ * journal, transfer or import) it ran on. The {@code accountbook.ledger.inflight} gauges show how
+ * many ledger operations the server is running at once, waiting on a lock or not.
+ * <p>
+ * Meters are registered once and kept by their tags, the known combinations of operation and
+ * path up front, so recording on the hot path is a map lookup and not a registry lookup.
+ */
+@Component
+public class LedgerMetrics {
+
+    public static final String SINGLE = "single";
+    public static final String BATCH = "batch";
+    public static final String REACTIVE = "reactive";
+    public static final String JOURNAL = "journal";
+    public static final String TRANSFER = "transfer";
+    public static final String IMPORT = "import";
+
+    private static final List<String> PATHS = List.of(SINGLE, BATCH, REACTIVE, JOURNAL, TRANSFER, IMPORT);
+    private static final Map<String, List<String>> OPERATIONS_BY_PATH = Map.of(
+        SINGLE, List.of("validation", "balance.lookup", "balance.write", "transaction.insert", "journal.append"),
+        BATCH, List.of("validation", "balance.lookup", "balance.write", "transaction.insert", "journal.append"),
+        TRANSFER, List.of("balance.lookup", "balance.write", "transaction.insert", "journal.append"),
+        JOURNAL, List.of("journal.flush", "journal.fsync"),
+        IMPORT, List.of("transaction.insert"));
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> negativeBalanceRejections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> accountRejections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> swallowedErrors = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public LedgerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        OPERATIONS_BY_PATH.forEach((path, operations) -> operations.forEach(operation -> timer(operation, path)));
+        for (String path : PATHS) {
+            negativeBalanceRejections.put(path, rejections("negative_balance", path));
+            accountRejections.put(path, rejections("account", path));
+        }
+        Gauge.builder("accountbook.ledger.inflight", inFlight, AtomicInteger::get)
+            .description("Ledger operations currently running")
+            .register(registry);
+        Gauge.builder("accountbook.ledger.inflight.max", maxInFlight, AtomicInteger::get)
+            .description("Most ledger operations running at once since startup")
+            .register(registry);
+    }
+
+    /**
+     * Runs {@code action} counting it as an in-flight ledger operation.
+     *
+     * @param action the ledger operation.
+     * @return the result of the action.
+     */
+    public <T> T inFlight(Supplier<T> action) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            return action.get();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the most ledger operations running at once since startup.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * Times {@code action} as the given ledger operation.
+     *
+     * @param operation the name of the step.
+     * @param path the path it ran on: {@link #SINGLE}, {@link #BATCH}, {@link #REACTIVE}, {@link #JOURNAL},
+     * {@link #TRANSFER} or {@link #IMPORT}.
+     * @param action the work to time.
+     * @return the result of the action.
+     */
+    public <T> T time(String operation, String path, Supplier<T> action) {
+        return timer(operation, path).record(action);
+    }
+
+    /**
+     * Times {@code action} as the given ledger operation.
+     *
+     * @param operation the name of the step.
+     * @param path the path it ran on: {@link #SINGLE}, {@link #BATCH}, {@link #REACTIVE}, {@link #JOURNAL},
+     * {@link #TRANSFER} or {@link #IMPORT}.
+     * @param action the work to time.
+     */
+    public void time(String operation, String path, Runnable action) {
+        timer(operation, path).record(action);
+    }
+
+    /**
+     * Counts a transaction rejected because it would take its balance below zero.
+     *
+     * @param path the path it ran on: {@link #SINGLE}, {@link #BATCH}, {@link #REACTIVE}, {@link #JOURNAL},
+     * {@link #TRANSFER} or {@link #IMPORT}.
+     */
+    public void negativeBalanceRejected(String path) {
+        negativeBalanceRejections.computeIfAbsent(path, key -> rejections("negative_balance", key)).increment();
+    }
+
+    /**
+     * Counts a transaction rejected because its account doesn't exist or is disabled.
+     *
+     * @param path the path it ran on: {@link #SINGLE}, {@link #BATCH}, {@link #REACTIVE}, {@link #JOURNAL},
+     * {@link #TRANSFER} or {@link #IMPORT}.
+     */
+    public void accountRejected(String path) {
+        accountRejections.computeIfAbsent(path, key -> rejections("account", key)).increment();
+    }
+
+    /**
+     * Counts an error that was logged and not propagated to the caller.
+     *
+     * @param operation the operation that swallowed the error.
+     * @param ex the error.
+     */
+    public void errorSwallowed(String operation, Exception ex) {
+        String exception = ex.getClass().getSimpleName();
+        swallowedErrors.computeIfAbsent(operation + '/' + exception, key -> Counter.builder("accountbook.ledger.errors.swallowed")
+            .description("Errors logged without failing the operation")
+            .tag("operation", operation)
+            .tag("exception", exception)
+            .register(registry))
+            .increment();
+    }
+
+    private Timer timer(String operation, String path) {
+        return timers.computeIfAbsent(operation + '/' + path, key -> Timer.builder("accountbook.ledger.operation")
+            .description("Time spent in every step of the ledger operations")
+            .tag("operation", operation)
+            .tag("path", path)
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    private Counter rejections(String reason, String path) {
+        return Counter.builder("accountbook.ledger.rejections")
+            .description("Transactions rejected, by reason")
+            .tag("reason", reason)
+            .tag("path", path)
+            .register(registry);
+    }
+
+}
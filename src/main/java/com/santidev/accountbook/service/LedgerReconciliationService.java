@@ -0,0 +1,206 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.dto.ReconciliationReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the total of every balance matches its opening total, set when the total was set
+ * through the API, plus the sum of the credits minus the debits of its account, and optionally
+ * repairs the ones that don't.
+ * <p>
+ * The transaction collection is read once from a cursor in chunks that are summed in parallel on a
+ * fork-join pool. Only a bounded number of chunks are in flight at a time, so the memory used
+ * depends on the number of accounts, not on the number of transactions.
+ * A balance found not to match is repaired under the lock of its account: its transactions are
+ * summed and its total read again, so a transaction committed while the job ran isn't taken for
+ * a mismatch, and the new total is only set if the total is still the one read then.
+ */
+@Service
+@Slf4j
+public class LedgerReconciliationService {
+
+	private final TransactionRepository transactionRepository;
+	private final BalanceRepository balanceRepository;
+	private final BalanceCache balanceCache;
+	private final AccountLockStripes accountLockStripes;
+	private final BalanceSnapshotService balanceSnapshotService;
+	private final ApplicationEventPublisher eventPublisher;
+	private final int parallelism;
+	private final int chunkSize;
+	private final int reportLimit;
+
+	public LedgerReconciliationService(TransactionRepository transactionRepository,
+									   BalanceRepository balanceRepository,
+									   BalanceCache balanceCache,
+									   AccountLockStripes accountLockStripes,
+									   BalanceSnapshotService balanceSnapshotService,
+									   ApplicationEventPublisher eventPublisher,
+									   @Value("${accountbook.reconciliation.parallelism:0}") int parallelism,
+									   @Value("${accountbook.reconciliation.chunk-size:10000}") int chunkSize,
+									   @Value("${accountbook.reconciliation.report-limit:1000}") int reportLimit) {
+		this.transactionRepository = transactionRepository;
+		this.balanceRepository = balanceRepository;
+		this.balanceCache = balanceCache;
+		this.accountLockStripes = accountLockStripes;
+		this.balanceSnapshotService = balanceSnapshotService;
+		this.eventPublisher = eventPublisher;
+		this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.chunkSize = chunkSize;
+		this.reportLimit = reportLimit;
+	}
+
+	/**
+	 * @param repair whether to fix the balances that don't match.
+	 * @return the mismatches found, up to the report limit, and the scan throughput.
+	 */
+	public ReconciliationReport reconcile(boolean repair) {
+		long start = System.nanoTime();
+		Map<String, Money> sums = new ConcurrentHashMap<>();
+		AtomicLong skipped = new AtomicLong();
+		long scanned = sumTransactions(sums, skipped);
+
+		List<ReconciliationReport.Mismatch> mismatches = new ArrayList<>();
+		List<String> toRepair = new ArrayList<>();
+		long mismatchCount = 0;
+		try (Stream<Balance> balances = balanceRepository.streamAllBy()) {
+			Iterator<Balance> iterator = balances.iterator();
+			while (iterator.hasNext()) {
+				Balance balance = iterator.next();
+				Money expected = sums.getOrDefault(balance.getAccountId(), Money.ZERO).plus(openingTotalOf(balance));
+				Money actual = balance.getTotal() == null ? Money.ZERO : balance.getTotal();
+				if (expected.compareTo(actual) == 0) {
+					continue;
+				}
+				mismatchCount++;
+				if (mismatches.size() < reportLimit) {
+					mismatches.add(new ReconciliationReport.Mismatch(balance.getAccountId(), expected, balance.getTotal()));
+				}
+				if (repair) {
+					toRepair.add(balance.getAccountId());
+				}
+			}
+		}
+		long repairedCount = 0;
+		for (String accountId : toRepair) {
+			if (repairAccount(accountId)) {
+				repairedCount++;
+			}
+		}
+
+		long elapsedNanos = Math.max(1, System.nanoTime() - start);
+		ReconciliationReport report = ReconciliationReport.builder()
+			.scannedTransactions(scanned)
+			.skippedTransactions(skipped.get())
+			.accounts(sums.size())
+			.mismatchCount(mismatchCount)
+			.mismatches(mismatches)
+			.repaired(repair)
+			.repairedCount(repairedCount)
+			.elapsedMillis(elapsedNanos / 1_000_000)
+			.rowsPerSecond(scanned * 1_000_000_000L / elapsedNanos)
+			.build();
+		log.info("Reconciled {} transactions of {} accounts at {} rows/s, {} mismatches",
+			scanned, report.getAccounts(), report.getRowsPerSecond(), mismatchCount);
+		return report;
+	}
+
+	private long sumTransactions(Map<String, Money> sums, AtomicLong skipped) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		Semaphore inFlight = new Semaphore(parallelism * 2);
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		long scanned = 0;
+		try (Stream<Transaction> transactions = transactionRepository.streamAllBy()) {
+			Iterator<Transaction> iterator = transactions.iterator();
+			while (iterator.hasNext()) {
+				List<Transaction> chunk = new ArrayList<>(chunkSize);
+				while (iterator.hasNext() && chunk.size() < chunkSize) {
+					chunk.add(iterator.next());
+				}
+				scanned += chunk.size();
+				inFlight.acquireUninterruptibly();
+				tasks.add(pool.submit(() -> {
+					try {
+						sumChunk(chunk, sums, skipped);
+					} finally {
+						inFlight.release();
+					}
+				}));
+				tasks.removeIf(ForkJoinTask::isDone);
+			}
+			tasks.forEach(ForkJoinTask::join);
+		} finally {
+			pool.shutdown();
+		}
+		return scanned;
+	}
+
+	private static void sumChunk(List<Transaction> chunk, Map<String, Money> sums, AtomicLong skipped) {
+		Map<String, Money> local = new HashMap<>();
+		for (Transaction transaction : chunk) {
+			if (transaction.getAmount() == null || transaction.getIdUserAccount() == null) {
+				skipped.incrementAndGet();
+				continue;
+			}
+			local.merge(transaction.getIdUserAccount(), TransactionService.signedAmount(transaction), Money::plus);
+		}
+		local.forEach((accountId, sum) -> sums.merge(accountId, sum, Money::plus));
+	}
+
+	private static Money openingTotalOf(Balance balance) {
+		return balance.getOpeningTotal() == null ? Money.ZERO : balance.getOpeningTotal();
+	}
+
+	/**
+	 * Sets the total of the balance of the account to its opening total plus the sum of its
+	 * transactions, checked again under its lock.
+	 *
+	 * @return whether the balance was changed.
+	 */
+	private boolean repairAccount(String accountId) {
+		return accountLockStripes.withAccountLock(accountId, () -> {
+			Optional<Balance> balance = balanceRepository.findByAccountId(accountId).stream().findFirst();
+			if (balance.isEmpty()) {
+				return false;
+			}
+			Money actual = balance.get().getTotal() == null ? Money.ZERO : balance.get().getTotal();
+			Money expected;
+			try (Stream<Transaction> transactions = transactionRepository.streamByAccount(accountId, null, null)) {
+				expected = transactions.filter(transaction -> transaction.getAmount() != null)
+					.map(TransactionService::signedAmount)
+					.reduce(openingTotalOf(balance.get()), Money::plus);
+			}
+			if (expected.compareTo(actual) == 0) {
+				return false;
+			}
+			boolean repaired = balanceRepository.setTotalIfUnchanged(accountId, actual, expected).isPresent();
+			balanceCache.invalidate(accountId);
+			if (repaired) {
+				balanceSnapshotService.dropSnapshots(accountId);
+				eventPublisher.publishEvent(new BalancesChangedEvent(List.of(accountId)));
+				log.warn("Repaired the balance of account {} from {} to {}", accountId, actual, expected);
+			}
+			return repaired;
+		});
+	}
+}
@@ -0,0 +1,135 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.reactive.ReactiveBalanceRepository;
+import com.santidev.accountbook.repository.reactive.ReactiveTransactionRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static com.santidev.accountbook.service.LedgerMetrics.REACTIVE;
+
+/**
+ * Non-blocking counterpart of {@link TransactionService}: validation, balance update and insert
+ * are chained on the reactive repositories and no thread waits for Mongo.
+ * <p>
+ * The reactive write path is restricted to validate-and-{@code $inc}: the account is checked
+ * against the {@link AccountRegistry}, the balance gets one guarded {@code $inc} and the
+ * transaction is inserted only once it was applied. There is no account lock to take without
+ * blocking, no idempotency key and no journal, so correctness rests on the guarded
+ * {@code $inc} alone; a failed balance update fails the request instead of being logged and
+ * skipped like on the blocking path. With the {@link TransactionJournal} enabled the reactive
+ * path is refused, as its debits would not see the transactions still in the journal. Instead of putting the updated balance in the
+ * {@link BalanceCache}, where a slower concurrent update could overwrite it, the account is
+ * invalidated. The commit event is published on the bounded elastic scheduler because its
+ * listeners may block.
+ */
+@Service
+public class ReactiveTransactionService {
+
+	private final ReactiveBalanceRepository balanceRepository;
+	private final ReactiveTransactionRepository transactionRepository;
+	private final BalanceCache balanceCache;
+	private final ApplicationEventPublisher eventPublisher;
+	private final LedgerMetrics ledgerMetrics;
+	private final Optional<TransactionJournal> journal;
+	private final AccountRegistry accountRegistry;
+
+	public ReactiveTransactionService(ReactiveBalanceRepository balanceRepository,
+									  ReactiveTransactionRepository transactionRepository,
+									  BalanceCache balanceCache, ApplicationEventPublisher eventPublisher,
+									  LedgerMetrics ledgerMetrics, Optional<TransactionJournal> journal,
+									  AccountRegistry accountRegistry) {
+		this.balanceRepository = balanceRepository;
+		this.transactionRepository = transactionRepository;
+		this.balanceCache = balanceCache;
+		this.eventPublisher = eventPublisher;
+		this.ledgerMetrics = ledgerMetrics;
+		this.journal = journal;
+		this.accountRegistry = accountRegistry;
+	}
+
+	/**
+	 * @param transaction the transaction to create.
+	 * @return the saved transaction, or a {@link NegativeBalanceException} error if it is a debit
+	 * the balance of its account doesn't cover, or the error of the balance update, in which case
+	 * nothing was saved, or a {@code 405 (Method Not Allowed)} error if the journal is enabled.
+	 */
+	public Mono<Transaction> processTransaction(Transaction transaction) {
+		return Mono.defer(() -> {
+			if (journal.isPresent()) {
+				return Mono.error(new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED,
+					"Reactive transactions are disabled while the transaction journal is enabled, use /api/transactions"));
+			}
+			Mono<Void> accountCheck = Mono.fromRunnable(() -> accountRegistry.check(transaction.getIdUserAccount()));
+			if (!accountRegistry.isCurrent(transaction.getIdUserAccount())) {
+				// the registry reads the account, off the event loop
+				accountCheck = accountCheck.subscribeOn(Schedulers.boundedElastic());
+			}
+			if (transaction.getEffectiveDate() == null) {
+				transaction.setEffectiveDate(LocalDate.now());
+			}
+			return accountCheck
+				.doOnError(ResponseStatusException.class, e -> ledgerMetrics.accountRejected(REACTIVE))
+				.then(Mono.defer(() -> refreshBalance(transaction)))
+				.doOnError(NegativeBalanceException.class, e -> ledgerMetrics.negativeBalanceRejected(REACTIVE))
+				.then(Mono.defer(() -> transactionRepository.save(transaction)))
+				.flatMap(result -> Mono.fromRunnable(() -> eventPublisher.publishEvent(new TransactionsCommittedEvent(List.of(result))))
+					.subscribeOn(Schedulers.boundedElastic())
+					.thenReturn(result));
+		});
+	}
+
+	/**
+	 * Applies the transaction to the balance of its account with a single guarded update, like
+	 * {@link TransactionService#refreshBlance}: a legacy total is migrated and the update retried,
+	 * a rejected debit reads the balance back to tell a missing balance apart from an insufficient
+	 * one and is retried if a concurrent credit covered it, and it fails after
+	 * {@link TransactionService#MAX_BALANCE_ATTEMPTS} updates or for a credit an existing balance
+	 * didn't take.
+	 *
+	 * @param transaction the transaction.
+	 * @return the balance after the update, or empty if the account has no balance.
+	 */
+	public Mono<Balance> refreshBalance(Transaction transaction) {
+		Money delta = TransactionService.signedAmount(transaction);
+		if (delta.signum() == 0) {
+			return Mono.empty();
+		}
+		String accountId = transaction.getIdUserAccount();
+		return addToTotal(accountId, delta, 1)
+			.doOnNext(balance -> balanceCache.invalidate(accountId));
+	}
+
+	private Mono<Balance> addToTotal(String accountId, Money delta, int attempt) {
+		return balanceRepository.addToTotal(accountId, delta)
+			.switchIfEmpty(Mono.defer(() -> {
+				if (attempt >= TransactionService.MAX_BALANCE_ATTEMPTS) {
+					return Mono.error(TransactionService.balanceNotUpdated(accountId, delta));
+				}
+				return balanceRepository.migrateTotal(accountId)
+					.flatMap(migrated -> migrated ? addToTotal(accountId, delta, attempt + 1)
+						: balanceRepository.findByAccountId(accountId).next()
+							.flatMap(balance -> {
+								if (delta.signum() > 0) {
+									return Mono.error(TransactionService.balanceNotUpdated(accountId, delta));
+								}
+								if (balance.getTotal().compareTo(delta.negate()) < 0) {
+									return Mono.error(new NegativeBalanceException(HttpStatus.BAD_REQUEST, "Balnce can't reach negative values"));
+								}
+								return addToTotal(accountId, delta, attempt + 1);
+							}));
+			}));
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.santidev.accountbook.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.dto.StatementExportReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Writes the statement of an account over a range of effective dates: its transactions in order,
+ * each with the balance after it, as CSV or newline delimited JSON.
+ * <p>
+ * Rows are written as they are read from the Mongo cursor, so the memory used doesn't depend on
+ * the number of transactions. The balance before the range is answered from the nearest balance
+ * snapshot. Statements aren't taken under the account lock; a transaction committed while one is
+ * written may or may not be in it.
+ */
+@Service
+@Slf4j
+public class StatementService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final List<String> FORMATS = List.of(CSV, NDJSON);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final TransactionRepository transactionRepository;
+    private final BalanceRepository balanceRepository;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int exportParallelism;
+    private final int reportLimit;
+
+    public StatementService(TransactionRepository transactionRepository,
+                            BalanceRepository balanceRepository,
+                            BalanceSnapshotService balanceSnapshotService,
+                            ObjectMapper objectMapper,
+                            @Value("${accountbook.statements.directory:statements}") String directory,
+                            @Value("${accountbook.statements.export-parallelism:4}") int exportParallelism,
+                            @Value("${accountbook.statements.report-limit:100}") int reportLimit) {
+        this.transactionRepository = transactionRepository;
+        this.balanceRepository = balanceRepository;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.exportParallelism = exportParallelism;
+        this.reportLimit = reportLimit;
+    }
+
+    /**
+     * @param format the requested format.
+     * @throws IllegalArgumentException if it isn't {@link #CSV} or {@link #NDJSON}.
+     */
+    public static void checkFormat(String format) {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Format must be one of " + FORMATS);
+        }
+    }
+
+    /**
+     * Writes the statement of the account to {@code out}, which is flushed but not closed.
+     *
+     * @param accountId the id of the user account.
+     * @param from the first effective date to include, may be {@code null}.
+     * @param to the last effective date to include, may be {@code null}.
+     * @param format {@link #CSV} or {@link #NDJSON}.
+     * @param out where to write it.
+     * @return the number of transactions written.
+     */
+    public long writeStatement(String accountId, LocalDate from, LocalDate to, String format, OutputStream out) throws IOException {
+        checkFormat(format);
+        LocalDate after = from == null ? null : from.minusDays(1);
+        Money balance = after == null ? Money.ZERO : balanceSnapshotService.balanceAt(accountId, after).getTotal();
+        try (Stream<Transaction> transactions = transactionRepository.streamByAccount(accountId, after, to)) {
+            return CSV.equals(format) ? writeCsv(transactions, balance, out) : writeNdjson(transactions, balance, out);
+        }
+    }
+
+    private long writeCsv(Stream<Transaction> transactions, Money balance, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("id,effective_date,type,amount,balance\n");
+        long rows = 0;
+        Iterator<Transaction> iterator = transactions.iterator();
+        while (iterator.hasNext()) {
+            Transaction transaction = iterator.next();
+            balance = balance.plus(signedAmount(transaction));
+            writer.write(transaction.getId());
+            writer.write(',');
+            writer.write(String.valueOf(transaction.getEffectiveDate()));
+            writer.write(',');
+            writer.write(String.valueOf(transaction.getType()));
+            writer.write(',');
+            writer.write(String.valueOf(transaction.getAmount()));
+            writer.write(',');
+            writer.write(balance.toString());
+            writer.write('\n');
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Stream<Transaction> transactions, Money balance, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long rows = 0;
+        Iterator<Transaction> iterator = transactions.iterator();
+        while (iterator.hasNext()) {
+            Transaction transaction = iterator.next();
+            balance = balance.plus(signedAmount(transaction));
+            generator.writeStartObject();
+            generator.writeStringField("id", transaction.getId());
+            generator.writeStringField("effectiveDate", String.valueOf(transaction.getEffectiveDate()));
+            generator.writeStringField("type", transaction.getType());
+            generator.writeFieldName("amount");
+            generator.writeObject(transaction.getAmount());
+            generator.writeFieldName("balance");
+            generator.writeNumber(balance.toBigDecimal());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+        generator.close();
+        return rows;
+    }
+
+    private static Money signedAmount(Transaction transaction) {
+        return transaction.getAmount() == null ? Money.ZERO : TransactionService.signedAmount(transaction);
+    }
+
+    /**
+     * Writes the statement of every account with a balance to its own file, under a directory
+     * named after the range in {@code accountbook.statements.directory}. Up to
+     * {@code accountbook.statements.export-parallelism} files are written at once, and accounts
+     * are only read from the balance cursor as a writer frees up. Each file is written next to
+     * its final name and moved into place once complete.
+     *
+     * @param from the first effective date to include, may be {@code null}.
+     * @param to the last effective date to include, may be {@code null}.
+     * @param format {@link #CSV} or {@link #NDJSON}.
+     * @return the number of statements and transactions written, and the accounts that failed.
+     */
+    public StatementExportReport exportAll(LocalDate from, LocalDate to, String format) {
+        checkFormat(format);
+        long start = System.nanoTime();
+        Path target = directory.resolve((from == null ? "start" : from.toString()) + "_" + (to == null ? "end" : to.toString()));
+        try {
+            Files.createDirectories(target);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't create the statement directory " + target, e);
+        }
+        AtomicLong accounts = new AtomicLong();
+        AtomicLong rows = new AtomicLong();
+        List<String> failed = new ArrayList<>();
+        AtomicLong failedCount = new AtomicLong();
+        ExecutorService writers = Executors.newFixedThreadPool(exportParallelism);
+        Semaphore inFlight = new Semaphore(exportParallelism);
+        try (Stream<Balance> balances = balanceRepository.streamAllBy()) {
+            Iterator<Balance> iterator = balances.iterator();
+            while (iterator.hasNext()) {
+                String accountId = iterator.next().getAccountId();
+                inFlight.acquireUninterruptibly();
+                writers.execute(() -> {
+                    try {
+                        rows.addAndGet(exportStatement(accountId, from, to, format, target));
+                        accounts.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Fail writing the statement of account {}", accountId, e);
+                        failedCount.incrementAndGet();
+                        synchronized (failed) {
+                            if (failed.size() < reportLimit) {
+                                failed.add(accountId);
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            writers.shutdown();
+            try {
+                writers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        StatementExportReport report = StatementExportReport.builder()
+            .directory(target.toAbsolutePath().toString())
+            .accounts(accounts.get())
+            .transactions(rows.get())
+            .failedCount(failedCount.get())
+            .failedAccounts(failed)
+            .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+            .rowsPerSecond(rows.get() * 1_000_000_000L / elapsedNanos)
+            .build();
+        log.info("Wrote {} statements with {} transactions to {}, {} failed, {} rows/s", report.getAccounts(),
+            report.getTransactions(), report.getDirectory(), report.getFailedCount(), report.getRowsPerSecond());
+        return report;
+    }
+
+    private long exportStatement(String accountId, LocalDate from, LocalDate to, String format, Path target) throws IOException {
+        Path file = target.resolve(fileName(accountId) + "." + format);
+        Path partial = target.resolve(file.getFileName() + ".part");
+        long written;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+            written = writeStatement(accountId, from, to, format, out);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * @return the account id, or if it has anything that isn't safe in a file name, the id with
+     * those replaced by {@code _} and its hash, so two ids don't end up in the same file.
+     */
+    static String fileName(String accountId) {
+        String name = accountId.replaceAll("[^A-Za-z0-9_-]", "_");
+        return name.equals(accountId) && !name.isEmpty() ? name : name + "-" + Integer.toHexString(accountId.hashCode());
+    }
+}
@@ -0,0 +1,72 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.dto.TransactionArchiveReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the {@code transaction} collection small by moving the transactions older than
+ * {@code accountbook.archive.horizon-days} into yearly archive collections, so the working set
+ * of the hot collection and its indexes stay in memory.
+ * <p>
+ * Before moving anything the balance of every account is snapshotted at the cutoff, so the
+ * balance at a later date is answered without reading the archives. The repository reads the
+ * archives transparently wherever a range reaches them.
+ */
+@Service
+@Slf4j
+public class TransactionArchiveService {
+
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final int horizonDays;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TransactionArchiveService(TransactionRepository transactionRepository,
+                                     BalanceSnapshotService balanceSnapshotService,
+                                     @Value("${accountbook.archive.horizon-days:365}") int horizonDays,
+                                     @Value("${accountbook.archive.chunk-size:5000}") int chunkSize) {
+        this.transactionRepository = transactionRepository;
+        this.balanceSnapshotService = balanceSnapshotService;
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("The archive horizon must be at least one day");
+        }
+        this.horizonDays = horizonDays;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Snapshots the balances at the cutoff and archives the transactions up to it.
+     *
+     * @return the cutoff, the number of snapshots written and of transactions archived.
+     * @throws IllegalStateException if an archive run is already going on.
+     */
+    public TransactionArchiveReport archive() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An archive run is already going on");
+        }
+        try {
+            LocalDate cutoff = LocalDate.now().minusDays(horizonDays);
+            long start = System.nanoTime();
+            int snapshots = balanceSnapshotService.takeSnapshots(cutoff);
+            long archived = transactionRepository.archiveThrough(cutoff, chunkSize);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Archived {} transactions up to {} after writing {} balance snapshots, in {} ms", archived, cutoff,
+                snapshots, elapsedMillis);
+            return TransactionArchiveReport.builder()
+                .cutoff(cutoff)
+                .snapshots(snapshots)
+                .archived(archived)
+                .elapsedMillis(elapsedMillis)
+                .build();
+        } finally {
+            running.set(false);
+        }
+    }
+}
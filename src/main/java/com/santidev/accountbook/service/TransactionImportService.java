@@ -0,0 +1,502 @@
+package com.santidev.accountbook.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.TransactionImport;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.BalanceSnapshotRepository;
+import com.santidev.accountbook.repository.TransactionImportRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static com.santidev.accountbook.service.LedgerMetrics.IMPORT;
+
+/**
+ * Imports historical transactions from a CSV or newline delimited JSON file, in constant memory.
+ * <p>
+ * The calling thread only splits the file into chunks of lines; the chunks are parsed, validated
+ * and written with one unordered bulk insert each on a fork-join pool, with a bounded number in
+ * flight. Every row gets an id derived from the import and its row number unless it has one, so
+ * rows written again after a failure aren't duplicated. The import stores the last row up to
+ * which every chunk is done, and a failed import given again the same file and id resumes
+ * after it. Rows aren't checked against the balances, they are history: once every row is in,
+ * the sum of the rows of each account found is added to its balance, once per import, and its
+ * aggregates and snapshots are rebuilt from its transactions.
+ */
+@Service
+@Slf4j
+public class TransactionImportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionImportRepository transactionImportRepository;
+    private final BalanceRepository balanceRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountAggregateService accountAggregateService;
+    private final AccountLockStripes accountLockStripes;
+    private final BalanceCache balanceCache;
+    private final LedgerMetrics ledgerMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectReader transactionReader;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int errorLimit;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public TransactionImportService(TransactionRepository transactionRepository,
+                                    TransactionImportRepository transactionImportRepository,
+                                    BalanceRepository balanceRepository,
+                                    BalanceSnapshotRepository balanceSnapshotRepository,
+                                    AccountAggregateService accountAggregateService,
+                                    AccountLockStripes accountLockStripes,
+                                    BalanceCache balanceCache,
+                                    LedgerMetrics ledgerMetrics,
+                                    ApplicationEventPublisher eventPublisher,
+                                    ObjectMapper objectMapper,
+                                    @Value("${accountbook.import.parallelism:0}") int parallelism,
+                                    @Value("${accountbook.import.chunk-size:5000}") int chunkSize,
+                                    @Value("${accountbook.import.error-limit:100}") int errorLimit) {
+        this.transactionRepository = transactionRepository;
+        this.transactionImportRepository = transactionImportRepository;
+        this.balanceRepository = balanceRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountAggregateService = accountAggregateService;
+        this.accountLockStripes = accountLockStripes;
+        this.balanceCache = balanceCache;
+        this.ledgerMetrics = ledgerMetrics;
+        this.eventPublisher = eventPublisher;
+        this.transactionReader = objectMapper.readerFor(Transaction.class);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+        this.errorLimit = errorLimit;
+    }
+
+    /**
+     * Imports the transactions of the file, or resumes the import with the same id.
+     *
+     * @param importId the id of the import.
+     * @param format {@link #CSV}, with a header row, or {@link #NDJSON}.
+     * @param in the file.
+     * @return the import, completed, or failed with the row it can be resumed after.
+     */
+    public TransactionImport importTransactions(String importId, String format, InputStream in) {
+        if (!CSV.equals(format) && !NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported format " + format);
+        }
+        if (!running.add(importId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The import " + importId + " is running");
+        }
+        try {
+            TransactionImport state = transactionImportRepository.findById(importId)
+                .orElseGet(() -> TransactionImport.builder().id(importId).format(format).build());
+            if (TransactionImport.COMPLETED.equals(state.getStatus())) {
+                return state;
+            }
+            if (!format.equals(state.getFormat())) {
+                throw new IllegalArgumentException("The import " + importId + " was started as " + state.getFormat());
+            }
+            state.setStatus(TransactionImport.RUNNING);
+            state.setStartedAt(Instant.now());
+            Progress progress = new Progress(state);
+            progress.save();
+            try {
+                read(in, format, progress);
+            } catch (IOException | RuntimeException e) {
+                progress.fail(e);
+            }
+            if (progress.failure.get() == null) {
+                try {
+                    rebuildAccounts(importId, progress.accounts);
+                } catch (RuntimeException e) {
+                    progress.fail(e);
+                }
+            }
+            return progress.finish();
+        } finally {
+            running.remove(importId);
+        }
+    }
+
+    /**
+     * @param importId the id of the import.
+     * @return the progress of the import.
+     */
+    public Optional<TransactionImport> findImport(String importId) {
+        return transactionImportRepository.findById(importId);
+    }
+
+    private void read(InputStream in, String format, Progress progress) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        RowParser parser;
+        if (CSV.equals(format)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return;
+            }
+            parser = new CsvRowParser(header);
+        } else {
+            parser = line -> transactionReader.readValue(line);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        try {
+            long row = 0;
+            int index = 0;
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while (progress.failure.get() == null) {
+                line = reader.readLine();
+                if (line != null && !line.isBlank()) {
+                    lines.add(line);
+                    row++;
+                }
+                if (lines.size() == chunkSize || (line == null && !lines.isEmpty())) {
+                    Chunk chunk = new Chunk(index++, row - lines.size() + 1, lines);
+                    progress.rowsRead.set(row);
+                    inFlight.acquireUninterruptibly();
+                    tasks.add(pool.submit(() -> {
+                        try {
+                            importChunk(chunk, parser, progress);
+                        } catch (RuntimeException e) {
+                            progress.fail(e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                    tasks.removeIf(ForkJoinTask::isDone);
+                    lines = new ArrayList<>(chunkSize);
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void importChunk(Chunk chunk, RowParser parser, Progress progress) {
+        long resumeAfter = progress.resumeAfter;
+        List<Transaction> transactions = new ArrayList<>(chunk.lines().size());
+        Map<String, LocalDate> firstDates = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        long rejected = 0;
+        for (int i = 0; i < chunk.lines().size(); i++) {
+            long row = chunk.firstRow() + i;
+            Transaction transaction;
+            try {
+                transaction = parser.parse(chunk.lines().get(i));
+                validate(transaction);
+            } catch (IOException | RuntimeException e) {
+                if (row > resumeAfter) {
+                    rejected++;
+                    errors.add("Row " + row + ": " + e.getMessage());
+                }
+                continue;
+            }
+            firstDates.merge(transaction.getIdUserAccount(), transaction.getEffectiveDate(),
+                (a, b) -> a.isBefore(b) ? a : b);
+            if (row > resumeAfter) {
+                if (transaction.getId() == null) {
+                    transaction.setId(progress.state.getId() + ":" + row);
+                }
+                transaction.setImportId(progress.state.getId());
+                transactions.add(transaction);
+            }
+        }
+        if (!transactions.isEmpty()) {
+            ledgerMetrics.time("transaction.insert", IMPORT, () -> transactionRepository.insertIgnoringDuplicates(transactions));
+        }
+        firstDates.forEach((accountId, date) -> progress.accounts.merge(accountId, date, (a, b) -> a.isBefore(b) ? a : b));
+        progress.chunkDone(chunk.index(), chunk.firstRow() + chunk.lines().size() - 1, rejected, errors);
+    }
+
+    private static void validate(Transaction transaction) {
+        if (transaction.getIdUserAccount() == null || transaction.getIdUserAccount().isBlank()) {
+            throw new IllegalArgumentException("Missing account");
+        }
+        if (!CREDIT.equalsIgnoreCase(transaction.getType()) && !DEBIT.equalsIgnoreCase(transaction.getType())) {
+            throw new IllegalArgumentException("Invalid type " + transaction.getType());
+        }
+        if (transaction.getAmount() == null || transaction.getAmount().signum() <= 0) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+        if (transaction.getEffectiveDate() == null) {
+            throw new IllegalArgumentException("Missing effective date");
+        }
+    }
+
+    /**
+     * Adds the rows of the import to the balance of every account, creating the balances that are
+     * missing from all their transactions, and rebuilds its aggregates and snapshots, under its
+     * lock.
+     */
+    private void rebuildAccounts(String importId, Map<String, LocalDate> accounts) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> accounts.entrySet().parallelStream().forEach(account ->
+                accountLockStripes.withAccountLock(account.getKey(), () -> {
+                    rebuildAccount(importId, account.getKey(), account.getValue());
+                    return null;
+                }))).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A row written by an earlier attempt of the import carries its id too, so it is counted; a
+     * row whose id was already taken by another transaction wasn't written, and isn't.
+     */
+    private void rebuildAccount(String importId, String accountId, LocalDate firstDate) {
+        Money total = Money.ZERO;
+        Money imported = Money.ZERO;
+        try (Stream<Transaction> transactions = transactionRepository.streamByAccount(accountId, null, null)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                Money amount = TransactionService.signedAmount(transaction);
+                total = total.plus(amount);
+                if (importId.equals(transaction.getImportId())) {
+                    imported = imported.plus(amount);
+                }
+            }
+        }
+        if (balanceRepository.findByAccountId(accountId).isEmpty()) {
+            balanceRepository.insert(Balance.builder().accountId(accountId).total(total).importIds(Set.of(importId)).build());
+        } else {
+            balanceRepository.addImportedTotal(accountId, importId, imported);
+        }
+        balanceCache.invalidate(accountId);
+        accountAggregateService.rebuild(accountId);
+        balanceSnapshotRepository.deleteByAccountIdAndEffectiveDateGreaterThanEqual(accountId, firstDate);
+        eventPublisher.publishEvent(new BalancesChangedEvent(List.of(accountId)));
+    }
+
+    /**
+     * Parses one line of the file.
+     */
+    @FunctionalInterface
+    interface RowParser {
+        Transaction parse(String line) throws IOException;
+    }
+
+    /**
+     * Parses the rows of a CSV file with the columns named in its header: {@code id_user_account},
+     * {@code type}, {@code amount}, {@code effective_date} and optionally {@code id}, in any order.
+     * Fields are read in place, the only objects made per row are the transaction and its ids.
+     * Quoted fields aren't supported.
+     */
+    static final class CsvRowParser implements RowParser {
+
+        private final int columns;
+        private int account = -1;
+        private int type = -1;
+        private int amount = -1;
+        private int date = -1;
+        private int id = -1;
+
+        CsvRowParser(String header) {
+            String[] names = header.split(",");
+            columns = names.length;
+            for (int i = 0; i < names.length; i++) {
+                switch (names[i].trim().replace("\uFEFF", "").replace("_", "").toLowerCase()) {
+                    case "iduseraccount" -> account = i;
+                    case "type" -> type = i;
+                    case "amount" -> amount = i;
+                    case "effectivedate" -> date = i;
+                    case "id" -> id = i;
+                    default -> {
+                        // not a transaction column, ignored
+                    }
+                }
+            }
+            if (account < 0 || type < 0 || amount < 0 || date < 0) {
+                throw new IllegalArgumentException("The CSV header must name the id_user_account, type, amount and effective_date columns");
+            }
+        }
+
+        @Override
+        public Transaction parse(String line) {
+            Transaction transaction = new Transaction();
+            int start = 0;
+            for (int column = 0; column < columns; column++) {
+                if (start > line.length()) {
+                    throw new IllegalArgumentException("Expected " + columns + " columns");
+                }
+                int end = line.indexOf(',', start);
+                if (end < 0) {
+                    end = line.length();
+                }
+                int from = start;
+                int to = end;
+                while (from < to && line.charAt(from) == ' ') {
+                    from++;
+                }
+                while (to > from && line.charAt(to - 1) == ' ') {
+                    to--;
+                }
+                if (column == account) {
+                    transaction.setIdUserAccount(line.substring(from, to));
+                } else if (column == type) {
+                    transaction.setType(typeOf(line, from, to));
+                } else if (column == amount) {
+                    transaction.setAmount(Money.parse(line, from, to));
+                } else if (column == date) {
+                    transaction.setEffectiveDate(dateOf(line, from, to));
+                } else if (column == id && to > from) {
+                    transaction.setId(line.substring(from, to));
+                }
+                start = end + 1;
+            }
+            return transaction;
+        }
+
+        private static String typeOf(String line, int from, int to) {
+            if (to - from == CREDIT.length() && line.regionMatches(true, from, CREDIT, 0, CREDIT.length())) {
+                return CREDIT;
+            }
+            if (to - from == DEBIT.length() && line.regionMatches(true, from, DEBIT, 0, DEBIT.length())) {
+                return DEBIT;
+            }
+            throw new IllegalArgumentException("Invalid type " + line.substring(from, to));
+        }
+
+        /**
+         * Reads an ISO date, {@code yyyy-MM-dd}.
+         */
+        private static LocalDate dateOf(String line, int from, int to) {
+            if (to - from != 10 || line.charAt(from + 4) != '-' || line.charAt(from + 7) != '-') {
+                throw new IllegalArgumentException("Invalid effective date " + line.substring(from, to));
+            }
+            return LocalDate.of(digits(line, from, from + 4), digits(line, from + 5, from + 7), digits(line, from + 8, to));
+        }
+
+        private static int digits(String line, int from, int to) {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Invalid effective date");
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+    }
+
+    private record Chunk(int index, long firstRow, List<String> lines) {
+    }
+
+    /**
+     * The state of a running import. Chunks finish in any order; the checkpoint only moves past a
+     * chunk once every chunk before it is done too.
+     */
+    private final class Progress {
+
+        private final TransactionImport state;
+        private final long resumeAfter;
+        private final long start = System.nanoTime();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final Map<String, LocalDate> accounts = new ConcurrentHashMap<>();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final TreeMap<Integer, ChunkResult> done = new TreeMap<>();
+        private int nextChunk;
+        private long lastLog = start;
+
+        Progress(TransactionImport state) {
+            this.state = state;
+            this.resumeAfter = state.getCheckpointRow();
+        }
+
+        synchronized void chunkDone(int index, long lastRow, long rejected, List<String> errors) {
+            done.put(index, new ChunkResult(lastRow, rejected, errors));
+            boolean moved = false;
+            ChunkResult next;
+            while ((next = done.remove(nextChunk)) != null) {
+                nextChunk++;
+                if (next.lastRow() <= state.getCheckpointRow()) {
+                    continue;
+                }
+                state.setCheckpointRow(next.lastRow());
+                state.setRowsRejected(state.getRowsRejected() + next.rejected());
+                for (String error : next.errors()) {
+                    if (state.getErrors().size() < errorLimit) {
+                        state.getErrors().add(error);
+                    }
+                }
+                moved = true;
+            }
+            if (moved) {
+                save();
+                if (System.nanoTime() - lastLog > 5_000_000_000L) {
+                    lastLog = System.nanoTime();
+                    log.info("Import {}: {} rows at {} rows/s", state.getId(), state.getCheckpointRow(), state.getRowsPerSecond());
+                }
+            }
+        }
+
+        void fail(Exception e) {
+            if (failure.compareAndSet(null, e)) {
+                log.error("Fail importing {} after row {}", state.getId(), state.getCheckpointRow(), e);
+            }
+        }
+
+        synchronized void save() {
+            state.setRowsRead(Math.max(state.getRowsRead(), rowsRead.get()));
+            state.setAccounts(accounts.size());
+            long elapsedNanos = Math.max(1, System.nanoTime() - start);
+            state.setRowsPerSecond((state.getCheckpointRow() - resumeAfter) * 1_000_000_000L / elapsedNanos);
+            state.setUpdatedAt(Instant.now());
+            transactionImportRepository.save(state);
+        }
+
+        synchronized TransactionImport finish() {
+            state.setStatus(failure.get() == null ? TransactionImport.COMPLETED : TransactionImport.FAILED);
+            save();
+            log.info("Import {} {} at row {}, {} rejected, {} accounts, {} rows/s", state.getId(), state.getStatus(),
+                state.getCheckpointRow(), state.getRowsRejected(), state.getAccounts(), state.getRowsPerSecond());
+            return state;
+        }
+    }
+
+    private record ChunkResult(long lastRow, long rejected, List<String> errors) {
+    }
+}
@@ -0,0 +1,737 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.BalanceRepositoryCustom.JournaledDelta;
+import com.santidev.accountbook.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static com.santidev.accountbook.service.LedgerMetrics.JOURNAL;
+
+/**
+ * Append-only journal of created transactions on a memory-mapped file, so a transaction can be
+ * acknowledged once it is durable on local disk and written to Mongo later, in bulk.
+ * <p>
+ * Every record carries a sequence number and a CRC. Appenders that wait for durability share
+ * the same {@code fsync}: whoever syncs covers every record appended so far (group commit). A
+ * background flusher applies the pending records to the balances and transactions under the
+ * account locks, then moves the checkpoint stored in the file header past them. It only takes
+ * records already synced, and never splits the records appended together. If a sync fails,
+ * the records it covered are dropped, their appenders get a {@code 503}, and so does every
+ * later append: the journal can't tell what reached the disk anymore, so the instance has to be
+ * restarted, which replays what did.
+ * <p>
+ * The file is a ring: the space behind the checkpoint is reused once the flusher moved past it,
+ * and a record that doesn't fit before the end of the file is written from the start, after a
+ * wrap marker. Appends are only refused, with a {@code 503}, when the records not yet flushed
+ * fill the whole file. On startup the records after the checkpoint are replayed, reading from
+ * the position stored with it; each balance remembers the last sequence of every journal applied
+ * to it, by the id stored in the file header, and transactions keep the id given on append, so
+ * a record is never applied twice, even after a restart with another journal file.
+ * Records appended together, like the two legs of a transfer, are only replayed if the last
+ * one is intact.
+ * <p>
+ * Debits are only checked against the cached balance plus the records of this journal, and the
+ * flusher adds them to the balances without a guard on the total: a debit was acknowledged, so
+ * it can't be rejected anymore. Journal mode therefore needs a single instance writing
+ * transactions; another instance, with or without a journal, could overdraw an account meanwhile.
+ * <p>
+ * Until its record is flushed, a transaction is only visible through {@link #pendingDelta},
+ * which {@link TransactionService} adds to the cached balance when checking debits. The records
+ * of deleted accounts are {@link #discard discarded}, so they don't bring back transactions of
+ * an account that is gone.
+ */
+@Component
+@ConditionalOnProperty(name = "accountbook.journal.enabled", havingValue = "true")
+@Slf4j
+public class TransactionJournal {
+
+    private static final int MAGIC = 0x4A524E4C;
+    private static final int HEADER_SIZE = 32;
+    private static final int TAIL_OFFSET = 4;
+    private static final int CHECKPOINT_OFFSET = 8;
+    private static final int ID_OFFSET = 16;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int WRAP = -1;
+
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLockStripes accountLockStripes;
+    private final BalanceCache balanceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LedgerMetrics ledgerMetrics;
+    private final Duration flushInterval;
+    private final int flushBatchSize;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final String journalId;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<Record> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, Money> pendingDeltas = new ConcurrentHashMap<>();
+    private final Map<String, Long> discardedThrough = new ConcurrentHashMap<>();
+    private long nextSeq;
+    private long appendedSeq;
+    private int appendPosition;
+    private long checkpointSeq;
+    private int tailPosition;
+    private List<Frame> unwritten = new ArrayList<>();
+    private volatile long syncedSeq;
+    private volatile boolean failed;
+    private ScheduledExecutorService flusher;
+
+    public TransactionJournal(BalanceRepository balanceRepository, TransactionRepository transactionRepository,
+                              AccountLockStripes accountLockStripes, BalanceCache balanceCache,
+                              ApplicationEventPublisher eventPublisher, LedgerMetrics ledgerMetrics,
+                              @Value("${accountbook.journal.path:data/transactions.journal}") Path path,
+                              @Value("${accountbook.journal.size:64MB}") DataSize size,
+                              @Value("${accountbook.journal.flush-interval:20ms}") Duration flushInterval,
+                              @Value("${accountbook.journal.flush-batch-size:5000}") int flushBatchSize) throws IOException {
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLockStripes = accountLockStripes;
+        this.balanceCache = balanceCache;
+        this.eventPublisher = eventPublisher;
+        this.ledgerMetrics = ledgerMetrics;
+        this.flushInterval = flushInterval;
+        this.flushBatchSize = flushBatchSize;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size.toBytes()));
+        this.journalId = initialize();
+        recover();
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "transaction-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (!pending.isEmpty() && flush() > 0) {
+            // drain what was acknowledged before stopping
+        }
+        channel.close();
+    }
+
+    /**
+     * Appends the transaction to the journal, giving it an id if it has none. The caller must
+     * hold the lock of the account and then wait with {@link #awaitDurable} before acknowledging.
+     *
+     * @param transaction the validated transaction.
+     * @return the sequence of its record.
+     */
+    public long append(Transaction transaction) {
+        return appendAll(List.of(transaction));
+    }
+
+    /**
+     * Appends the transactions as one unit: their records are written together and on replay
+     * either all of them are applied or, if the last one didn't reach the disk, none. The
+     * caller must hold the locks of the accounts and then wait with {@link #awaitDurable}.
+     *
+     * @param transactions the validated transactions.
+     * @return the sequence of the record of the last one.
+     */
+    public long appendAll(List<Transaction> transactions) {
+        List<byte[]> payloads = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getId() == null) {
+                transaction.setId(ObjectId.get().toHexString());
+            }
+            byte[] payload = encode(transaction, i < transactions.size() - 1);
+            payloads.add(payload);
+        }
+        appendLock.lock();
+        try {
+            if (failed) {
+                throw syncFailed();
+            }
+            if (!fits(payloads)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The transaction journal is full");
+            }
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                byte[] payload = payloads.get(i);
+                long seq = nextSeq++;
+                byte[] frame = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                    .putInt(payload.length).putInt(crcOf(seq, payload)).putLong(seq).put(payload)
+                    .array();
+                if (appendPosition + frame.length > buffer.capacity()) {
+                    if (appendPosition + Integer.BYTES <= buffer.capacity()) {
+                        unwritten.add(new Frame(appendPosition, ByteBuffer.allocate(Integer.BYTES).putInt(WRAP).array()));
+                    }
+                    appendPosition = HEADER_SIZE;
+                }
+                unwritten.add(new Frame(appendPosition, frame));
+                appendPosition += frame.length;
+                pending.add(new Record(seq, copyOf(transaction), appendPosition, i < transactions.size() - 1));
+                pendingDeltas.merge(transaction.getIdUserAccount(), deltaOf(transaction), Money::plus);
+                appendedSeq = seq;
+            }
+            return appendedSeq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Tells whether the frames fit in the free part of the ring, from the append position up to
+     * the first record not yet flushed, wrapping at the end of the file like the append will.
+     * The append position never catches up with the tail, so they are only equal when every
+     * record is flushed. Called with the append lock held.
+     */
+    private boolean fits(List<byte[]> payloads) {
+        int position = appendPosition;
+        boolean wrapped = checkpointSeq != appendedSeq && position < tailPosition;
+        for (byte[] payload : payloads) {
+            int length = RECORD_HEADER_SIZE + payload.length;
+            if (position + length > buffer.capacity()) {
+                if (wrapped) {
+                    return false;
+                }
+                position = HEADER_SIZE;
+                wrapped = true;
+            }
+            position += length;
+            if (wrapped && position >= tailPosition) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Blocks until the record of the given sequence is on disk, syncing it and every record
+     * appended before it unless a concurrent caller already did.
+     *
+     * @param seq the sequence returned by {@link #append}.
+     * @throws ResponseStatusException {@code 503} if the sync failed, the record is then dropped.
+     */
+    public void awaitDurable(long seq) {
+        while (syncedSeq < seq) {
+            syncLock.lock();
+            try {
+                if (syncedSeq < seq) {
+                    if (failed) {
+                        throw syncFailed();
+                    }
+                    long target;
+                    List<Frame> frames;
+                    appendLock.lock();
+                    try {
+                        target = appendedSeq;
+                        frames = unwritten;
+                        unwritten = new ArrayList<>();
+                    } finally {
+                        appendLock.unlock();
+                    }
+                    if (!frames.isEmpty()) {
+                        try {
+                            // only the syncing thread writes to the mapped pages, so appenders never
+                            // wait on a page that is being written back
+                            for (Frame frame : frames) {
+                                buffer.put(frame.position(), frame.bytes());
+                            }
+                            ledgerMetrics.time("journal.fsync", JOURNAL, () -> force(frames));
+                        } catch (RuntimeException e) {
+                            log.error("Fail syncing the transaction journal, dropping the records after sequence {}", syncedSeq, e);
+                            dropUnsynced(frames.get(0).position());
+                            throw syncFailed();
+                        }
+                    }
+                    syncedSeq = target;
+                }
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Syncs the frames, one range per contiguous run; a run ends where the ring wraps.
+     */
+    private void force(List<Frame> frames) {
+        int start = frames.get(0).position();
+        int end = start;
+        for (Frame frame : frames) {
+            if (frame.position() != end) {
+                force(start, end - start);
+                start = frame.position();
+            }
+            end = frame.position() + frame.bytes().length;
+        }
+        force(start, end - start);
+    }
+
+    void force(int position, int length) {
+        buffer.force(position, length);
+    }
+
+    /**
+     * Fails the journal after a sync failed: drops the records not synced, which their appenders
+     * are told about, with their pending deltas and the frames not written yet, and marks the
+     * first frame that failed as the end of the journal, so a restart doesn't replay them if
+     * they reached the disk anyway. Called with the sync lock held.
+     *
+     * @param position the position of the first frame that failed.
+     */
+    private void dropUnsynced(int position) {
+        appendLock.lock();
+        try {
+            failed = true;
+            unwritten = new ArrayList<>();
+            long synced = syncedSeq;
+            for (Record record : pending) {
+                if (record.seq() <= synced) {
+                    continue;
+                }
+                pending.remove(record);
+                String accountId = record.transaction().getIdUserAccount();
+                Long discarded = discardedThrough.get(accountId);
+                if (discarded == null || record.seq() > discarded) {
+                    pendingDeltas.computeIfPresent(accountId, (key, sum) -> {
+                        Money rest = sum.minus(deltaOf(record.transaction()));
+                        return rest.signum() == 0 ? null : rest;
+                    });
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            buffer.putInt(position, 0);
+            force(position, Integer.BYTES);
+        } catch (RuntimeException e) {
+            log.error("Fail marking the end of the transaction journal at {}", position, e);
+        }
+    }
+
+    private static ResponseStatusException syncFailed() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The transaction journal couldn't be synced to disk");
+    }
+
+    /**
+     * @param accountId the id of the user account.
+     * @return the sum of the amounts of the journaled transactions of the account not yet written to its balance.
+     */
+    public Money pendingDelta(String accountId) {
+        return pendingDeltas.getOrDefault(accountId, Money.ZERO);
+    }
+
+    /**
+     * Drops the records of the accounts appended so far: they are never written to Mongo. The
+     * caller must hold the locks of the accounts, so none of them is appended meanwhile.
+     *
+     * @param accountIds the ids of the user accounts, being deleted.
+     * @return the sequence of the last record appended, to {@link #flushThrough}.
+     */
+    public long discard(Collection<String> accountIds) {
+        long seq;
+        appendLock.lock();
+        try {
+            seq = appendedSeq;
+        } finally {
+            appendLock.unlock();
+        }
+        for (String accountId : accountIds) {
+            discardedThrough.put(accountId, seq);
+            pendingDeltas.remove(accountId);
+        }
+        return seq;
+    }
+
+    /**
+     * Flushes the pending records until the checkpoint reaches the sequence, so they aren't
+     * replayed after a restart. Must not be called under account locks.
+     *
+     * @param seq the sequence of a record.
+     */
+    public void flushThrough(long seq) {
+        while (checkpointSeq() < seq && flush() > 0) {
+            // keep going until the record is flushed
+        }
+    }
+
+    private long checkpointSeq() {
+        appendLock.lock();
+        try {
+            return checkpointSeq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the id of the journal, kept in its file, under which balances record the last sequence applied.
+     */
+    public String getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * @return the number of journaled transactions not yet written to Mongo.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes up to a batch of pending records already synced to Mongo and moves the checkpoint
+     * past them. A batch that would end inside a group of records appended together takes the
+     * rest of the group too, so a checkpoint never falls between them.
+     *
+     * @return the number of records written.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            long synced = syncedSeq;
+            List<Record> batch = new ArrayList<>();
+            // a group is synced as a whole, so it is never cut by the synced sequence
+            for (Record record : pending) {
+                if (record.seq() > synced
+                    || (batch.size() >= flushBatchSize && !batch.get(batch.size() - 1).continued())) {
+                    break;
+                }
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            ledgerMetrics.time("journal.flush", JOURNAL, () -> apply(batch, true));
+            for (int i = 0; i < batch.size(); i++) {
+                pending.poll();
+            }
+            checkpoint(batch.get(batch.size() - 1));
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            while (flush() >= flushBatchSize) {
+                // keep going while there is a backlog
+            }
+        } catch (Exception ex) {
+            log.error("Fail flushing the transaction journal, retrying", ex);
+            ledgerMetrics.errorSwallowed("flushJournal", ex);
+        }
+    }
+
+    /**
+     * Writes the records to Mongo under the locks of their accounts, skipping the discarded ones,
+     * which are only known once the locks are held.
+     *
+     * @param records the records, in sequence order.
+     * @param pendingInMemory whether the records are counted in the pending deltas.
+     */
+    void apply(List<Record> records, boolean pendingInMemory) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Set<String> accountIds = new LinkedHashSet<>();
+        records.forEach(record -> accountIds.add(record.transaction().getIdUserAccount()));
+        accountLockStripes.withAccountLocks(accountIds, () -> {
+            Map<String, JournaledDelta> deltas = new LinkedHashMap<>();
+            List<Transaction> transactions = new ArrayList<>(records.size());
+            for (Record record : records) {
+                Transaction transaction = record.transaction();
+                Long discarded = discardedThrough.get(transaction.getIdUserAccount());
+                if (discarded != null && record.seq() <= discarded) {
+                    continue;
+                }
+                transactions.add(transaction);
+                deltas.merge(transaction.getIdUserAccount(),
+                    new JournaledDelta(transaction.getIdUserAccount(), deltaOf(transaction), record.seq(), record.seq()),
+                    (a, b) -> new JournaledDelta(a.accountId(), a.delta().plus(b.delta()), a.firstSeq(), b.lastSeq()));
+            }
+            if (transactions.isEmpty()) {
+                return null;
+            }
+            balanceRepository.addJournaledTotals(journalId, deltas.values());
+            transactionRepository.insertIgnoringDuplicates(transactions);
+            for (JournaledDelta delta : deltas.values()) {
+                if (pendingInMemory) {
+                    pendingDeltas.computeIfPresent(delta.accountId(), (accountId, sum) -> {
+                        Money rest = sum.minus(delta.delta());
+                        return rest.signum() == 0 ? null : rest;
+                    });
+                }
+                balanceCache.invalidate(delta.accountId());
+            }
+            eventPublisher.publishEvent(new TransactionsCommittedEvent(transactions));
+            return null;
+        });
+    }
+
+    /**
+     * Moves the checkpoint past the record, freeing the space of the ring up to its end.
+     */
+    private void checkpoint(Record record) {
+        appendLock.lock();
+        try {
+            // the position first: read with an older sequence it only replays records Mongo already has
+            buffer.putInt(TAIL_OFFSET, record.end());
+            buffer.putLong(CHECKPOINT_OFFSET, record.seq());
+            tailPosition = record.end();
+            checkpointSeq = record.seq();
+        } finally {
+            appendLock.unlock();
+        }
+        discardedThrough.values().removeIf(seq -> seq <= record.seq());
+        // a lost checkpoint only makes the next start replay records Mongo already has
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Writes the header of a new journal file, with a new id.
+     *
+     * @return the id of the journal.
+     */
+    private String initialize() {
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(TAIL_OFFSET, HEADER_SIZE);
+            buffer.putLong(CHECKPOINT_OFFSET, 0);
+            buffer.put(ID_OFFSET, ObjectId.get().toByteArray());
+            buffer.force();
+        }
+        byte[] id = new byte[12];
+        buffer.get(ID_OFFSET, id);
+        return new ObjectId(id).toHexString();
+    }
+
+    /**
+     * Reads the records after the checkpoint and writes the ones Mongo is missing.
+     */
+    private void recover() {
+        long checkpoint = buffer.getLong(CHECKPOINT_OFFSET);
+        int tail = buffer.getInt(TAIL_OFFSET);
+        List<Record> records = new ArrayList<>();
+        List<Record> group = new ArrayList<>();
+        // records of an earlier lap of the ring have older sequences and end the scan
+        long readSeq = checkpoint;
+        long lastSeq = 0;
+        int position = tail;
+        int end = tail;
+        boolean wrapped = false;
+        while (true) {
+            if (position + RECORD_HEADER_SIZE > buffer.capacity() || buffer.getInt(position) == WRAP) {
+                if (wrapped) {
+                    break;
+                }
+                position = HEADER_SIZE;
+                wrapped = true;
+                continue;
+            }
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            int crc = buffer.getInt(position + 4);
+            long seq = buffer.getLong(position + 8);
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            if (crc != crcOf(seq, payload) || seq <= readSeq) {
+                break;
+            }
+            readSeq = seq;
+            position += RECORD_HEADER_SIZE + length;
+            group.add(new Record(seq, decode(payload), position, continues(payload)));
+            if (continues(payload)) {
+                continue;
+            }
+            // a unit is only replayed once its last record is read
+            lastSeq = seq;
+            records.addAll(group);
+            end = position;
+            group.clear();
+        }
+        appendPosition = end;
+        nextSeq = Math.max(checkpoint, lastSeq) + 1;
+        appendedSeq = nextSeq - 1;
+        syncedSeq = appendedSeq;
+        checkpointSeq = checkpoint;
+        tailPosition = tail;
+        if (records.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} transaction journal records after sequence {}", records.size(), checkpoint);
+        Map<String, Long> appliedSeqs = new HashMap<>();
+        balanceRepository.findByAccountIdIn(records.stream().map(r -> r.transaction().getIdUserAccount()).distinct().toList())
+            .forEach(balance -> {
+                if (balance.getJournalSeqs() != null && balance.getJournalSeqs().containsKey(journalId)) {
+                    appliedSeqs.put(balance.getAccountId(), balance.getJournalSeqs().get(journalId));
+                }
+            });
+        List<Record> missing = new ArrayList<>();
+        List<Transaction> applied = new ArrayList<>();
+        for (Record record : records) {
+            Long appliedSeq = appliedSeqs.get(record.transaction().getIdUserAccount());
+            if (appliedSeq == null || appliedSeq < record.seq()) {
+                missing.add(record);
+            } else {
+                // its balance was written, the transaction may have not
+                applied.add(record.transaction());
+            }
+        }
+        if (!applied.isEmpty()) {
+            transactionRepository.insertIgnoringDuplicates(applied);
+        }
+        apply(missing, false);
+        checkpoint(records.get(records.size() - 1));
+    }
+
+    private static Money deltaOf(Transaction transaction) {
+        return transaction.getAmount() == null ? Money.ZERO : TransactionService.signedAmount(transaction);
+    }
+
+    private static int crcOf(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, seq));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(Transaction transaction, boolean continued) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(transaction.getId());
+            writeNullable(out, transaction.getIdUserAccount());
+            writeNullable(out, transaction.getType());
+            out.writeBoolean(transaction.getAmount() != null);
+            if (transaction.getAmount() != null) {
+                out.writeLong(transaction.getAmount().getMinorUnits());
+            }
+            out.writeLong(transaction.getEffectiveDate() == null ? Long.MIN_VALUE : transaction.getEffectiveDate().toEpochDay());
+            writeNullable(out, transaction.getTransferId());
+            out.writeBoolean(continued);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Transaction decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Transaction transaction = new Transaction();
+            transaction.setId(in.readUTF());
+            transaction.setIdUserAccount(readNullable(in));
+            transaction.setType(readNullable(in));
+            if (in.readBoolean()) {
+                transaction.setAmount(Money.ofMinor(in.readLong()));
+            }
+            long epochDay = in.readLong();
+            transaction.setEffectiveDate(epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay));
+            transaction.setTransferId(readNullable(in));
+            return transaction;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return whether the record is followed by more records of the same unit, the flag is the
+     * last byte of the payload.
+     */
+    private static boolean continues(byte[] payload) {
+        return payload[payload.length - 1] != 0;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Transaction copyOf(Transaction transaction) {
+        return Transaction.builder()
+            .id(transaction.getId())
+            .idUserAccount(transaction.getIdUserAccount())
+            .type(transaction.getType())
+            .amount(transaction.getAmount())
+            .effectiveDate(transaction.getEffectiveDate())
+            .transferId(transaction.getTransferId())
+            .build();
+    }
+
+    /**
+     * @param end the position in the file right after the record.
+     * @param continued whether the next record was appended together with it.
+     */
+    record Record(long seq, Transaction transaction, int end, boolean continued) {
+    }
+
+    private record Frame(int position, byte[] bytes) {
+    }
+
+}
@@ -2,79 +2,322 @@ package com.santidev.accountbook.service;
 
 
 import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
 import com.santidev.accountbook.model.Transaction;
 import com.santidev.accountbook.repository.BalanceRepository;
 import com.santidev.accountbook.repository.TransactionRepository;
 import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.TransactionBatchItemResult;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.santidev.accountbook.model.Transaction.CREDIT;
 import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static com.santidev.accountbook.service.LedgerMetrics.BATCH;
+import static com.santidev.accountbook.service.LedgerMetrics.SINGLE;
 
 @Service
 @Slf4j
 public class TransactionService {
 
+	private static final String NEGATIVE_BALANCE = "Balnce can't reach negative values";
+	static final int MAX_BALANCE_ATTEMPTS = 3;
+
 	private final BalanceRepository balanceRepository;
 	private final TransactionRepository transactionRepository;
+	private final AccountLockStripes accountLockStripes;
+	private final BalanceCache balanceCache;
+	private final ApplicationEventPublisher eventPublisher;
+	private final LedgerMetrics ledgerMetrics;
+	private final Optional<TransactionJournal> journal;
+	private final AccountRegistry accountRegistry;
 
-	public TransactionService(BalanceRepository balanceRepository, TransactionRepository transactionRepository) {
+	public TransactionService(BalanceRepository balanceRepository, TransactionRepository transactionRepository,
+							  AccountLockStripes accountLockStripes, BalanceCache balanceCache,
+							  ApplicationEventPublisher eventPublisher, LedgerMetrics ledgerMetrics,
+							  Optional<TransactionJournal> journal, AccountRegistry accountRegistry) {
 		this.balanceRepository = balanceRepository;
 		this.transactionRepository = transactionRepository;
+		this.accountLockStripes = accountLockStripes;
+		this.balanceCache = balanceCache;
+		this.eventPublisher = eventPublisher;
+		this.ledgerMetrics = ledgerMetrics;
+		this.journal = journal;
+		this.accountRegistry = accountRegistry;
 	}
 
 
-	public void customTransactionValidations(Transaction transaction) {
-		if (!DEBIT.equalsIgnoreCase(transaction.getType())) {
-			return;
-		}
-		List<Balance> balances = balanceRepository.findByAccountId(transaction.getIdUserAccount());
-		balances.stream().findFirst().ifPresent(b -> checkNegativeBalnce(b, transaction));
-    }
-	
-
-	private void checkNegativeBalnce(Balance balance, Transaction transaction) {
-		if (balance.getTotal().subtract(transaction.getAmount()).compareTo(BigDecimal.ZERO) < 0) {
-			throw new NegativeBalanceException(HttpStatus.BAD_REQUEST, "Balnce can't reach negative values");
+	private void checkNegativeBalnce(Money total, Transaction transaction) {
+		if (total.compareTo(transaction.getAmount()) < 0) {
+			throw new NegativeBalanceException(HttpStatus.BAD_REQUEST, NEGATIVE_BALANCE);
 		}
     }
 
 	public Transaction processTransaction(Transaction transaction) {
 		try {
-			customTransactionValidations(transaction);
-			refreshBlance(transaction);
-		} catch (NegativeBalanceException e) {
+			accountRegistry.check(transaction.getIdUserAccount());
+		} catch (ResponseStatusException e) {
+			ledgerMetrics.accountRejected(SINGLE);
 			throw e;
-		} catch (Exception ex) {
-			log.error("Fail in createTransaction", ex);
 		}
-		return transactionRepository.save(transaction);
+		defaultEffectiveDate(transaction);
+		if (journal.isPresent()) {
+			return processJournaled(transaction, journal.get());
+		}
+		return ledgerMetrics.inFlight(() -> accountLockStripes.withAccountLock(transaction.getIdUserAccount(), () -> {
+			try {
+				refreshBlance(transaction);
+			} catch (NegativeBalanceException e) {
+				ledgerMetrics.negativeBalanceRejected(SINGLE);
+				throw e;
+			} catch (ResponseStatusException e) {
+				throw e;
+			} catch (Exception ex) {
+				log.error("Fail in createTransaction", ex);
+				ledgerMetrics.errorSwallowed("createTransaction", ex);
+			}
+			Transaction result = ledgerMetrics.time("transaction.insert", SINGLE, () -> transactionRepository.save(transaction));
+			eventPublisher.publishEvent(new TransactionsCommittedEvent(List.of(result)));
+			return result;
+		}));
 	}
 
-	
+	/**
+	 * Validates the transaction against the cached balance plus what is still in the journal,
+	 * appends it and returns once its record is on disk. The flusher of the journal writes it
+	 * to the balance and the transactions later.
+	 */
+	private Transaction processJournaled(Transaction transaction, TransactionJournal journal) {
+		long seq = ledgerMetrics.inFlight(() -> accountLockStripes.withAccountLock(transaction.getIdUserAccount(), () -> {
+			if (DEBIT.equalsIgnoreCase(transaction.getType()) && transaction.getAmount() != null) {
+				Optional<Balance> balance = ledgerMetrics.time("balance.lookup", SINGLE,
+					() -> balanceCache.findByAccountId(transaction.getIdUserAccount()));
+				if (balance.isPresent()) {
+					try {
+						checkNegativeBalnce(balance.get().getTotal().plus(journal.pendingDelta(transaction.getIdUserAccount())), transaction);
+					} catch (NegativeBalanceException e) {
+						ledgerMetrics.negativeBalanceRejected(SINGLE);
+						throw e;
+					}
+				}
+			}
+			return ledgerMetrics.time("journal.append", SINGLE, () -> journal.append(transaction));
+		}));
+		journal.awaitDurable(seq);
+		return transaction;
+	}
+
+	/**
+	 * Applies the transaction to the balance of its account with a single guarded update.
+	 * When it matches nothing, a total still stored the legacy way is migrated and the update
+	 * retried; otherwise the balance is read back, to tell a missing balance apart from an
+	 * insufficient one, and a debit a concurrent credit covered meanwhile is retried. After
+	 * {@link #MAX_BALANCE_ATTEMPTS} updates, or for a credit an existing balance didn't take,
+	 * it fails, so the transaction isn't saved without its balance change.
+	 */
 	public void refreshBlance(Transaction transaction) {
-		List<Balance> balances = balanceRepository.findByAccountId(transaction.getIdUserAccount());
-		Optional<Balance> balance = Optional.ofNullable(balances.stream().findFirst().orElse(null));
-		balance.ifPresent(b -> {
-			refreshTotal(transaction, b);
-			balanceRepository.save(b);
+		Money delta = signedAmount(transaction);
+		if (delta.signum() == 0) {
+			return;
+		}
+		String accountId = transaction.getIdUserAccount();
+		for (int attempt = 1; ; attempt++) {
+			Optional<Balance> updated = ledgerMetrics.time("balance.write", SINGLE,
+				() -> balanceRepository.addToTotal(accountId, delta));
+			if (updated.isPresent()) {
+				balanceCache.put(updated.get());
+				return;
+			}
+			if (attempt >= MAX_BALANCE_ATTEMPTS) {
+				throw balanceNotUpdated(accountId, delta);
+			}
+			if (ledgerMetrics.time("balance.write", SINGLE, () -> balanceRepository.migrateTotal(accountId))) {
+				continue;
+			}
+			Optional<Balance> balance = ledgerMetrics.time("balance.lookup", SINGLE,
+				() -> balanceRepository.findByAccountId(accountId)).stream().findFirst();
+			if (balance.isEmpty()) {
+				return;
+			}
+			if (delta.signum() > 0) {
+				throw balanceNotUpdated(accountId, delta);
+			}
+			ledgerMetrics.time("validation", SINGLE, () -> checkNegativeBalnce(balance.get().getTotal(), transaction));
+		}
+	}
+
+	static ResponseStatusException balanceNotUpdated(String accountId, Money delta) {
+		log.error("The balance of account {} didn't take {}", accountId, delta);
+		return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "The balance of the account couldn't be updated");
+	}
+
+	/**
+	 * Validates and persists a batch of transactions with one bulk insert for the transactions
+	 * and one update per account for the balances. Items are grouped by account and each running
+	 * balance is checked in memory, in the order the items were sent, on minor units. The debit
+	 * of each account is also guarded in Mongo, so the items of an account another instance
+	 * spent meanwhile are rejected; if the insert fails the balance updates are undone.
+	 *
+	 * @param transactions the transactions to create.
+	 * @return the accept/reject outcome of every item, in the same order.
+	 */
+	public List<TransactionBatchItemResult> processBatch(List<Transaction> transactions) {
+		TransactionBatchItemResult[] results = new TransactionBatchItemResult[transactions.size()];
+		Map<String, List<Integer>> byAccount = new LinkedHashMap<>();
+		ledgerMetrics.time("validation", BATCH, () -> {
+			for (int i = 0; i < transactions.size(); i++) {
+				Transaction transaction = transactions.get(i);
+				String accountRejection = accountRegistry.rejection(transaction.getIdUserAccount());
+				if (transaction.getId() != null) {
+					results[i] = TransactionBatchItemResult.rejected(i, transaction, "A new transaction cannot already have an ID");
+				} else if (transaction.getAmount() == null) {
+					results[i] = TransactionBatchItemResult.rejected(i, transaction, "Invalid amount");
+				} else if (accountRejection != null) {
+					ledgerMetrics.accountRejected(BATCH);
+					results[i] = TransactionBatchItemResult.rejected(i, transaction, accountRejection);
+				} else {
+					defaultEffectiveDate(transaction);
+					byAccount.computeIfAbsent(transaction.getIdUserAccount(), k -> new ArrayList<>()).add(i);
+				}
+			}
 		});
+		if (byAccount.isEmpty()) {
+			return Arrays.asList(results);
+		}
+		long lastSeq = ledgerMetrics.inFlight(() -> accountLockStripes.withAccountLocks(byAccount.keySet(), () -> {
+			Map<String, Balance> balances = new HashMap<>();
+			ledgerMetrics.time("balance.lookup", BATCH, () -> balanceRepository.findByAccountIdIn(byAccount.keySet()))
+				.forEach(b -> balances.putIfAbsent(b.getAccountId(), b));
+			Map<String, Money> deltas = new HashMap<>();
+			List<Integer> accepted = new ArrayList<>();
+			byAccount.forEach((accountId, indexes) -> {
+				Balance balance = balances.get(accountId);
+				long initial = balance == null ? 0 : balance.getTotal().getMinorUnits();
+				long total = journal.isPresent() && balance != null
+					? Math.addExact(initial, journal.get().pendingDelta(accountId).getMinorUnits())
+					: initial;
+				long delta = 0;
+				for (int i : indexes) {
+					Transaction transaction = transactions.get(i);
+					if (balance != null) {
+						long amount = transaction.getAmount().getMinorUnits();
+						if (DEBIT.equalsIgnoreCase(transaction.getType())) {
+							if (total < amount) {
+								ledgerMetrics.negativeBalanceRejected(BATCH);
+								results[i] = TransactionBatchItemResult.rejected(i, transaction, NEGATIVE_BALANCE);
+								continue;
+							}
+							amount = -amount;
+						} else if (!CREDIT.equalsIgnoreCase(transaction.getType())) {
+							amount = 0;
+						}
+						total = Math.addExact(total, amount);
+						delta = Math.addExact(delta, amount);
+					}
+					accepted.add(i);
+				}
+				if (delta != 0) {
+					deltas.put(accountId, Money.ofMinor(delta));
+				}
+			});
+			if (journal.isPresent()) {
+				long seq = 0;
+				for (int i : accepted) {
+					seq = ledgerMetrics.time("journal.append", BATCH, () -> journal.get().append(transactions.get(i)));
+					results[i] = TransactionBatchItemResult.accepted(i, transactions.get(i));
+				}
+				return seq;
+			}
+			Set<String> uncovered;
+			try {
+				uncovered = ledgerMetrics.time("balance.write", BATCH, () -> balanceRepository.addToTotalsIfCovered(deltas));
+			} finally {
+				deltas.keySet().forEach(balanceCache::invalidate);
+			}
+			deltas.keySet().removeAll(uncovered);
+			accepted.removeIf(i -> {
+				Transaction transaction = transactions.get(i);
+				if (!uncovered.contains(transaction.getIdUserAccount())) {
+					return false;
+				}
+				ledgerMetrics.negativeBalanceRejected(BATCH);
+				results[i] = TransactionBatchItemResult.rejected(i, transaction, NEGATIVE_BALANCE);
+				return true;
+			});
+			if (!accepted.isEmpty()) {
+				List<Transaction> toInsert = accepted.stream().map(transactions::get).toList();
+				toInsert.forEach(transaction -> transaction.setId(ObjectId.get().toHexString()));
+				List<Transaction> saved;
+				try {
+					saved = ledgerMetrics.time("transaction.insert", BATCH, () -> transactionRepository.insert(toInsert));
+				} catch (RuntimeException e) {
+					undoBatch(toInsert, deltas);
+					throw e;
+				}
+				for (int k = 0; k < accepted.size(); k++) {
+					results[accepted.get(k)] = TransactionBatchItemResult.accepted(accepted.get(k), saved.get(k));
+				}
+				eventPublisher.publishEvent(new TransactionsCommittedEvent(saved));
+			}
+			return 0L;
+		}));
+		if (lastSeq > 0) {
+			journal.get().awaitDurable(lastSeq);
+		}
+		return Arrays.asList(results);
 	}
 
-	
-	private void refreshTotal(Transaction transaction, Balance b) {
+	/**
+	 * Takes back the balance updates of a batch whose insert failed, with what of it was inserted.
+	 */
+	private void undoBatch(List<Transaction> transactions, Map<String, Money> deltas) {
+		Map<String, Money> undo = new HashMap<>();
+		deltas.forEach((accountId, delta) -> undo.put(accountId, delta.negate()));
+		try {
+			transactionRepository.deleteAllById(transactions.stream().map(Transaction::getId).toList());
+			balanceRepository.addToTotals(undo);
+		} catch (Exception ex) {
+			log.error("Fail undoing the balance updates {} of a batch that wasn't inserted", undo, ex);
+			ledgerMetrics.errorSwallowed("undoBatch", ex);
+		} finally {
+			undo.keySet().forEach(balanceCache::invalidate);
+			eventPublisher.publishEvent(new BalancesChangedEvent(undo.keySet()));
+		}
+		transactions.forEach(transaction -> transaction.setId(null));
+	}
+
+	private static void defaultEffectiveDate(Transaction transaction) {
+		if (transaction.getEffectiveDate() == null) {
+			transaction.setEffectiveDate(LocalDate.now());
+		}
+	}
+
+	/**
+	 * @param transaction the transaction.
+	 * @return the amount the transaction adds to the balance of its account, negative for debits.
+	 */
+	public static Money signedAmount(Transaction transaction) {
 		if (DEBIT.equalsIgnoreCase(transaction.getType())) {
-			b.setTotal(b.getTotal().subtract(transaction.getAmount()));
+			return transaction.getAmount().negate();
 		}
 		if (CREDIT.equalsIgnoreCase(transaction.getType())) {
-			b.setTotal(b.getTotal().add(transaction.getAmount()));
+			return transaction.getAmount();
 		}
-	} 
+		return Money.ZERO;
+	}
 
 }
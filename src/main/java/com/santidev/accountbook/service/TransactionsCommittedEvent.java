@@ -0,0 +1,14 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Published synchronously once transactions and their balance changes have been persisted,
+ * by a thread holding the locks of their accounts.
+ *
+ * @param transactions the committed transactions.
+ */
+public record TransactionsCommittedEvent(List<Transaction> transactions) {
+}
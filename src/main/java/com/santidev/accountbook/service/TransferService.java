@@ -0,0 +1,284 @@
+package com.santidev.accountbook.service;
+
+import com.mongodb.MongoException;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.Transfer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static com.santidev.accountbook.service.LedgerMetrics.TRANSFER;
+
+/**
+ * Moves money between two user accounts as one unit: a debit of the source and a credit of the
+ * destination, linked by the id of the transfer.
+ * <p>
+ * The locks of both accounts are taken in stripe order, so transfers in opposite directions
+ * can't deadlock. With a {@link MongoTransactionManager} both balances and both transactions are
+ * written in one multi-document transaction, retried on transient errors. Without one, every
+ * write that succeeded is undone, with retries, when a later one fails. With the
+ * {@link TransactionJournal} both legs are appended as one unit.
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private static final String NEGATIVE_BALANCE = "Balnce can't reach negative values";
+
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLockStripes accountLockStripes;
+    private final BalanceCache balanceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LedgerMetrics ledgerMetrics;
+    private final Optional<TransactionJournal> journal;
+    private final Optional<TransactionTemplate> transactionTemplate;
+    private final int maxAttempts;
+    private final AccountRegistry accountRegistry;
+
+    public TransferService(BalanceRepository balanceRepository, TransactionRepository transactionRepository,
+                           AccountLockStripes accountLockStripes, BalanceCache balanceCache,
+                           ApplicationEventPublisher eventPublisher, LedgerMetrics ledgerMetrics,
+                           Optional<TransactionJournal> journal, Optional<MongoTransactionManager> transactionManager,
+                           @Value("${accountbook.transfers.max-attempts:3}") int maxAttempts,
+                           AccountRegistry accountRegistry) {
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLockStripes = accountLockStripes;
+        this.balanceCache = balanceCache;
+        this.eventPublisher = eventPublisher;
+        this.ledgerMetrics = ledgerMetrics;
+        this.journal = journal;
+        this.transactionTemplate = transactionManager.map(TransactionTemplate::new);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.accountRegistry = accountRegistry;
+    }
+
+    /**
+     * Debits the amount from the source account and credits it to the destination account.
+     *
+     * @param transfer the transfer to make.
+     * @return the transfer, with its id and both transactions.
+     */
+    public Transfer transfer(Transfer transfer) {
+        validate(transfer);
+        try {
+            accountRegistry.check(transfer.getFromAccountId());
+            accountRegistry.check(transfer.getToAccountId());
+        } catch (ResponseStatusException e) {
+            ledgerMetrics.accountRejected(TRANSFER);
+            throw e;
+        }
+        String transferId = ObjectId.get().toHexString();
+        LocalDate effectiveDate = transfer.getEffectiveDate() == null ? LocalDate.now() : transfer.getEffectiveDate();
+        Transaction debit = leg(transferId, transfer.getFromAccountId(), DEBIT, transfer.getAmount(), effectiveDate);
+        Transaction credit = leg(transferId, transfer.getToAccountId(), CREDIT, transfer.getAmount(), effectiveDate);
+        List<String> accountIds = List.of(transfer.getFromAccountId(), transfer.getToAccountId());
+        if (journal.isPresent()) {
+            long seq = ledgerMetrics.inFlight(() -> accountLockStripes.withAccountLocks(accountIds,
+                () -> appendJournaled(debit, credit, journal.get())));
+            journal.get().awaitDurable(seq);
+        } else {
+            ledgerMetrics.inFlight(() -> accountLockStripes.withAccountLocks(accountIds, () -> {
+                Applied applied = transactionTemplate.isPresent()
+                    ? inMongoTransaction(debit, credit, transactionTemplate.get())
+                    : withCompensation(debit, credit);
+                balanceCache.put(applied.debited());
+                balanceCache.put(applied.credited());
+                eventPublisher.publishEvent(new TransactionsCommittedEvent(List.of(debit, credit)));
+                return applied;
+            }));
+        }
+        return Transfer.builder()
+            .id(transferId)
+            .fromAccountId(transfer.getFromAccountId())
+            .toAccountId(transfer.getToAccountId())
+            .amount(transfer.getAmount())
+            .effectiveDate(effectiveDate)
+            .debit(debit)
+            .credit(credit)
+            .build();
+    }
+
+    /**
+     * @param transferId the id of the transfer.
+     * @return the transfer, rebuilt from its two transactions.
+     */
+    public Optional<Transfer> findTransfer(String transferId) {
+        List<Transaction> legs = transactionRepository.findByTransferId(transferId);
+        Optional<Transaction> debit = legs.stream().filter(t -> DEBIT.equalsIgnoreCase(t.getType())).findFirst();
+        Optional<Transaction> credit = legs.stream().filter(t -> CREDIT.equalsIgnoreCase(t.getType())).findFirst();
+        if (debit.isEmpty() || credit.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(Transfer.builder()
+            .id(transferId)
+            .fromAccountId(debit.get().getIdUserAccount())
+            .toAccountId(credit.get().getIdUserAccount())
+            .amount(debit.get().getAmount())
+            .effectiveDate(debit.get().getEffectiveDate())
+            .debit(debit.get())
+            .credit(credit.get())
+            .build());
+    }
+
+    private static void validate(Transfer transfer) {
+        if (transfer.getId() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new transfer cannot already have an ID");
+        }
+        if (transfer.getFromAccountId() == null || transfer.getToAccountId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A transfer needs a source and a destination account");
+        }
+        if (transfer.getFromAccountId().equals(transfer.getToAccountId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The source and destination accounts must be different");
+        }
+        if (transfer.getAmount() == null || transfer.getAmount().signum() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid amount");
+        }
+    }
+
+    private static Transaction leg(String transferId, String accountId, String type, Money amount, LocalDate effectiveDate) {
+        return Transaction.builder()
+            .id(ObjectId.get().toHexString())
+            .idUserAccount(accountId)
+            .type(type)
+            .amount(amount)
+            .effectiveDate(effectiveDate)
+            .transferId(transferId)
+            .build();
+    }
+
+    private long appendJournaled(Transaction debit, Transaction credit, TransactionJournal journal) {
+        Balance from = ledgerMetrics.time("balance.lookup", TRANSFER, () -> balanceCache.findByAccountId(debit.getIdUserAccount()))
+            .orElseThrow(() -> unknownAccount(debit.getIdUserAccount()));
+        if (balanceCache.findByAccountId(credit.getIdUserAccount()).isEmpty()) {
+            throw unknownAccount(credit.getIdUserAccount());
+        }
+        if (from.getTotal().plus(journal.pendingDelta(debit.getIdUserAccount())).compareTo(debit.getAmount()) < 0) {
+            ledgerMetrics.negativeBalanceRejected(TRANSFER);
+            throw new NegativeBalanceException(HttpStatus.BAD_REQUEST, NEGATIVE_BALANCE);
+        }
+        return ledgerMetrics.time("journal.append", TRANSFER, () -> journal.appendAll(List.of(debit, credit)));
+    }
+
+    /**
+     * Runs both legs in a Mongo transaction, so a failure rolls every write back. A transaction
+     * aborted by a transient error, like a write conflict or an election, is run again.
+     */
+    private Applied inMongoTransaction(Transaction debit, Transaction credit, TransactionTemplate template) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> apply(debit, credit, new ArrayDeque<>()));
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    balanceCache.invalidate(debit.getIdUserAccount());
+                    balanceCache.invalidate(credit.getIdUserAccount());
+                    throw e;
+                }
+                log.warn("Transfer {} aborted by a transient error, retrying", debit.getTransferId());
+            }
+        }
+    }
+
+    private Applied withCompensation(Transaction debit, Transaction credit) {
+        Deque<Runnable> undo = new ArrayDeque<>();
+        try {
+            return apply(debit, credit, undo);
+        } catch (RuntimeException e) {
+            while (!undo.isEmpty()) {
+                compensate(debit.getTransferId(), undo.pop(), e);
+            }
+            balanceCache.invalidate(debit.getIdUserAccount());
+            balanceCache.invalidate(credit.getIdUserAccount());
+            eventPublisher.publishEvent(new BalancesChangedEvent(List.of(debit.getIdUserAccount(), credit.getIdUserAccount())));
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the debit, the credit and both transactions, pushing the action that undoes every
+     * write once it succeeded.
+     */
+    private Applied apply(Transaction debit, Transaction credit, Deque<Runnable> undo) {
+        String from = debit.getIdUserAccount();
+        String to = credit.getIdUserAccount();
+        Money amount = debit.getAmount();
+        Optional<Balance> debited = ledgerMetrics.time("balance.write", TRANSFER, () -> balanceRepository.addToTotal(from, amount.negate()));
+        if (debited.isEmpty()) {
+            boolean exists = !ledgerMetrics.time("balance.lookup", TRANSFER, () -> balanceRepository.findByAccountId(from)).isEmpty();
+            if (!exists) {
+                throw unknownAccount(from);
+            }
+            ledgerMetrics.negativeBalanceRejected(TRANSFER);
+            throw new NegativeBalanceException(HttpStatus.BAD_REQUEST, NEGATIVE_BALANCE);
+        }
+        undo.push(() -> reverse(from, amount));
+        Balance credited = ledgerMetrics.time("balance.write", TRANSFER, () -> balanceRepository.addToTotal(to, amount))
+            .orElseThrow(() -> unknownAccount(to));
+        undo.push(() -> reverse(to, amount.negate()));
+        undo.push(() -> transactionRepository.deleteAllById(List.of(debit.getId(), credit.getId())));
+        ledgerMetrics.time("transaction.insert", TRANSFER, () -> transactionRepository.insert(List.of(debit, credit)));
+        return new Applied(debited.get(), credited);
+    }
+
+    /**
+     * Adds the delta that undoes a balance write. An update that matched no balance, like a
+     * debit the account can't cover anymore, didn't undo anything, so it fails like an error.
+     */
+    private void reverse(String accountId, Money delta) {
+        if (balanceRepository.addToTotal(accountId, delta).isEmpty()) {
+            throw new IllegalStateException("The balance of account " + accountId + " didn't take the reversal of " + delta);
+        }
+    }
+
+    private void compensate(String transferId, Runnable action, RuntimeException cause) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                action.run();
+                return;
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts) {
+                    log.error("Fail undoing transfer {}, the ledger needs a reconciliation", transferId, ex);
+                    ledgerMetrics.errorSwallowed("compensateTransfer", ex);
+                    cause.addSuppressed(ex);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MongoException mongo && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseStatusException unknownAccount(String accountId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown account " + accountId);
+    }
+
+    private record Applied(Balance debited, Balance credited) {
+    }
+}
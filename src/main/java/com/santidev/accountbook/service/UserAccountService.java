@@ -0,0 +1,222 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.AccountAggregateRepository;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.BalanceSnapshotRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.repository.UserAccountRepository;
+import com.santidev.accountbook.service.dto.UserAccountBatchItemResult;
+import com.santidev.accountbook.service.dto.UserAccountDeleteReport;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates and deletes user accounts in bulk, together with what belongs to them.
+ * <p>
+ * New accounts get their ids here, so the accounts of a chunk and their zero balances are
+ * written with one bulk insert each instead of two round trips per account. Deleting an account
+ * removes its balance, transactions, aggregates and snapshots with one remove per collection for
+ * a whole chunk of accounts.
+ */
+@Service
+@Slf4j
+public class UserAccountService {
+
+    private final UserAccountRepository userAccountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountAggregateRepository accountAggregateRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountLockStripes accountLockStripes;
+    private final BalanceCache balanceCache;
+    private final AccountRegistry accountRegistry;
+    private final Optional<TransactionJournal> journal;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public UserAccountService(UserAccountRepository userAccountRepository,
+                              BalanceRepository balanceRepository,
+                              TransactionRepository transactionRepository,
+                              AccountAggregateRepository accountAggregateRepository,
+                              BalanceSnapshotRepository balanceSnapshotRepository,
+                              AccountLockStripes accountLockStripes,
+                              BalanceCache balanceCache,
+                              AccountRegistry accountRegistry,
+                              Optional<TransactionJournal> journal,
+                              @Value("${accountbook.accounts.batch-chunk-size:1000}") int chunkSize,
+                              @Value("${accountbook.accounts.batch-parallelism:4}") int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Account batch chunk size and parallelism must be positive");
+        }
+        this.userAccountRepository = userAccountRepository;
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountAggregateRepository = accountAggregateRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountLockStripes = accountLockStripes;
+        this.balanceCache = balanceCache;
+        this.accountRegistry = accountRegistry;
+        this.journal = journal;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates the user accounts, each with a zero balance. Accounts that already have an id are
+     * rejected; the rest are written in chunks of {@code accountbook.accounts.batch-chunk-size},
+     * up to {@code accountbook.accounts.batch-parallelism} chunks at once. If a chunk fails, what
+     * was written of it is removed and all of its accounts are rejected with the cause.
+     *
+     * @param userAccounts the user accounts to create.
+     * @return the outcome of every item, in the same order.
+     */
+    public List<UserAccountBatchItemResult> createAll(List<UserAccount> userAccounts) {
+        UserAccountBatchItemResult[] results = new UserAccountBatchItemResult[userAccounts.size()];
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < userAccounts.size(); i++) {
+            UserAccount userAccount = userAccounts.get(i);
+            if (userAccount.getId() != null) {
+                results[i] = UserAccountBatchItemResult.rejected(i, userAccount, "A new userAccount cannot already have an ID");
+            } else {
+                userAccount.setId(ObjectId.get().toHexString());
+                accepted.add(i);
+            }
+        }
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            chunks.add(accepted.subList(from, Math.min(from + chunkSize, accepted.size())));
+        }
+        if (chunks.size() <= 1 || parallelism == 1) {
+            chunks.forEach(chunk -> createChunk(userAccounts, chunk, results));
+        } else {
+            ExecutorService writers = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()));
+            try {
+                List<Future<?>> written = new ArrayList<>();
+                chunks.forEach(chunk -> written.add(writers.submit(() -> createChunk(userAccounts, chunk, results))));
+                for (Future<?> chunk : written) {
+                    chunk.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted creating user accounts", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Fail creating user accounts", e.getCause());
+            } finally {
+                writers.shutdown();
+            }
+        }
+        log.info("Created {} of {} user accounts in {} chunks", Arrays.stream(results)
+            .filter(result -> UserAccountBatchItemResult.CREATED.equals(result.getStatus())).count(), userAccounts.size(), chunks.size());
+        return Arrays.asList(results);
+    }
+
+    private void createChunk(List<UserAccount> userAccounts, List<Integer> indexes, UserAccountBatchItemResult[] results) {
+        List<UserAccount> accounts = indexes.stream().map(userAccounts::get).toList();
+        List<String> ids = accounts.stream().map(UserAccount::getId).toList();
+        try {
+            userAccountRepository.insert(accounts);
+            balanceRepository.insert(accounts.stream()
+                .map(account -> Balance.builder().accountId(account.getId()).total(Money.ZERO).build())
+                .toList());
+        } catch (RuntimeException e) {
+            log.error("Fail creating a chunk of {} user accounts, removing what was written of it", accounts.size(), e);
+            try {
+                balanceRepository.deleteByAccountIdIn(ids);
+                userAccountRepository.deleteAllById(ids);
+            } catch (RuntimeException undo) {
+                log.error("Fail removing the user accounts of a failed chunk: {}", ids, undo);
+            }
+            for (int index : indexes) {
+                UserAccount userAccount = userAccounts.get(index);
+                userAccount.setId(null);
+                results[index] = UserAccountBatchItemResult.rejected(index, userAccount, "Not created: " + e.getMessage());
+            }
+            return;
+        }
+        for (int index : indexes) {
+            UserAccount userAccount = userAccounts.get(index);
+            accountRegistry.put(userAccount);
+            results[index] = UserAccountBatchItemResult.created(index, userAccount);
+        }
+    }
+
+    /**
+     * Deletes the user accounts and their balances, transactions, aggregates and snapshots, a
+     * chunk of accounts at a time, each under the locks of its accounts. The accounts leave the
+     * {@link AccountRegistry} first, so no new transaction is accepted for them meanwhile, and the
+     * ones still there go back in if the chunk fails. With the {@link TransactionJournal}, the
+     * records of the accounts not yet written to Mongo are discarded, before the locks are released.
+     *
+     * @param accountIds the ids of the user accounts.
+     * @return the number of documents removed of each kind.
+     */
+    public UserAccountDeleteReport deleteAll(List<String> accountIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        UserAccountDeleteReport report = new UserAccountDeleteReport();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            chunk.forEach(accountRegistry::remove);
+            long discardedSeq;
+            try {
+                discardedSeq = accountLockStripes.withAccountLocks(chunk, () -> {
+                    report.setBalances(report.getBalances() + balanceRepository.deleteByAccountIdIn(chunk));
+                    report.setTransactions(report.getTransactions() + transactionRepository.deleteByAccountIdIn(chunk));
+                    report.setAggregates(report.getAggregates() + accountAggregateRepository.deleteByAccountIdIn(chunk));
+                    report.setSnapshots(report.getSnapshots() + balanceSnapshotRepository.deleteByAccountIdIn(chunk));
+                    report.setAccounts(report.getAccounts() + userAccountRepository.deleteByIdIn(chunk));
+                    chunk.forEach(balanceCache::invalidate);
+                    // the flusher waits on these locks, so no record of the accounts was written meanwhile
+                    return journal.map(j -> j.discard(chunk)).orElse(0L);
+                });
+            } catch (RuntimeException e) {
+                chunk.forEach(balanceCache::invalidate);
+                restore(chunk, e);
+                throw e;
+            }
+            journal.ifPresent(j -> flushDiscarded(j, discardedSeq));
+        }
+        log.info("Deleted {} user accounts with {} balances, {} transactions, {} aggregates and {} snapshots",
+            report.getAccounts(), report.getBalances(), report.getTransactions(), report.getAggregates(), report.getSnapshots());
+        return report;
+    }
+
+    /**
+     * Puts back into the registry the accounts of a chunk that failed to delete that still exist.
+     */
+    private void restore(List<String> chunk, RuntimeException cause) {
+        try {
+            userAccountRepository.findAllById(chunk).forEach(accountRegistry::put);
+        } catch (RuntimeException ex) {
+            // the registry reads the accounts again once they aren't current anymore
+            log.warn("Fail restoring user accounts {} into the account registry", chunk, ex);
+            cause.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Flushes the journal past the discarded records, so a restart doesn't replay them.
+     */
+    private void flushDiscarded(TransactionJournal journal, long seq) {
+        try {
+            journal.flushThrough(seq);
+        } catch (RuntimeException ex) {
+            // the flusher gets there too, the window is only a restart meanwhile
+            log.warn("Fail flushing the transaction journal after deleting user accounts", ex);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.santidev.accountbook.service.dto;
+
+import com.santidev.accountbook.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a reconciliation of the balances against the transactions.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+
+    private long scannedTransactions;
+
+    private long skippedTransactions;
+
+    private long accounts;
+
+    private long mismatchCount;
+
+    private List<Mismatch> mismatches;
+
+    private boolean repaired;
+
+    private long repairedCount;
+
+    private long elapsedMillis;
+
+    private long rowsPerSecond;
+
+    /**
+     * A balance whose total doesn't match the sum of the transactions of its account.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mismatch {
+
+        private String accountId;
+
+        private Money expected;
+
+        private Money actual;
+    }
+}
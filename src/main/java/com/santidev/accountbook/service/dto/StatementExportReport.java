@@ -0,0 +1,32 @@
+package com.santidev.accountbook.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of writing the statements of every account to files.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementExportReport {
+
+    private String directory;
+
+    private long accounts;
+
+    private long transactions;
+
+    private long failedCount;
+
+    private List<String> failedAccounts;
+
+    private long elapsedMillis;
+
+    private long rowsPerSecond;
+}
@@ -0,0 +1,26 @@
+package com.santidev.accountbook.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of moving the transactions past the horizon to the archives.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionArchiveReport {
+
+    private LocalDate cutoff;
+
+    private int snapshots;
+
+    private long archived;
+
+    private long elapsedMillis;
+}
@@ -0,0 +1,36 @@
+package com.santidev.accountbook.service.dto;
+
+import com.santidev.accountbook.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a transaction batch.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchItemResult {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED = "rejected";
+
+    private int index;
+
+    private String status;
+
+    private Transaction transaction;
+
+    private String reason;
+
+    public static TransactionBatchItemResult accepted(int index, Transaction transaction) {
+        return new TransactionBatchItemResult(index, ACCEPTED, transaction, null);
+    }
+
+    public static TransactionBatchItemResult rejected(int index, Transaction transaction, String reason) {
+        return new TransactionBatchItemResult(index, REJECTED, transaction, reason);
+    }
+}
@@ -0,0 +1,38 @@
+package com.santidev.accountbook.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A movement of money from one user account to another, stored as a debit and a credit
+ * transaction that share the id of the transfer.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Transfer {
+
+    private String id;
+
+    private String fromAccountId;
+
+    private String toAccountId;
+
+    private Money amount;
+
+    private LocalDate effectiveDate;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Transaction debit;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Transaction credit;
+}
@@ -0,0 +1,36 @@
+package com.santidev.accountbook.service.dto;
+
+import com.santidev.accountbook.model.UserAccount;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a user account batch.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAccountBatchItemResult {
+
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+
+    private int index;
+
+    private String status;
+
+    private UserAccount userAccount;
+
+    private String reason;
+
+    public static UserAccountBatchItemResult created(int index, UserAccount userAccount) {
+        return new UserAccountBatchItemResult(index, CREATED, userAccount, null);
+    }
+
+    public static UserAccountBatchItemResult rejected(int index, UserAccount userAccount, String reason) {
+        return new UserAccountBatchItemResult(index, REJECTED, userAccount, reason);
+    }
+}
@@ -0,0 +1,26 @@
+package com.santidev.accountbook.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of documents removed with a batch of user accounts.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAccountDeleteReport {
+
+    private long accounts;
+
+    private long balances;
+
+    private long transactions;
+
+    private long aggregates;
+
+    private long snapshots;
+}
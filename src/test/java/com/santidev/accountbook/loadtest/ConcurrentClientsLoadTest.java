@@ -0,0 +1,124 @@
+package com.santidev.accountbook.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santidev.accountbook.config.VirtualThreadConfiguration;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryRepositoryConfiguration;
+import com.santidev.accountbook.service.LedgerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+
+/**
+ * Sends {@code loadtest.clients} transactions (10000 by default) at once, each from its own
+ * connection and to its own account, and reports how many of them the server ran concurrently
+ * and their latencies to {@code target/loadtest-concurrency-<mode>.json}. Subclasses boot the
+ * application in one execution mode each so both reports can be compared.
+ * <p>
+ * Repository calls are slowed down by {@link SimulatedLatencyConfiguration} so requests block
+ * like they do against Mongo. 10000 clients need about 20000 open files, raise {@code ulimit -n}
+ * if connections fail.
+ */
+@Tag("loadtest")
+@Import({InMemoryRepositoryConfiguration.class, SimulatedLatencyConfiguration.class})
+@TestPropertySource(properties = {
+        "server.tomcat.max-connections=30000",
+        "server.tomcat.accept-count=10000"
+})
+@Slf4j
+abstract class ConcurrentClientsLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 10_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    @Autowired
+    private LedgerMetrics ledgerMetrics;
+
+    @Autowired
+    private ObjectProvider<VirtualThreadConfiguration> virtualThreadConfiguration;
+
+    abstract String mode();
+
+    @Test
+    public void concurrentClientsTest() throws Exception {
+        List<String> accountIds = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            String accountId = "concurrent-" + i;
+            balanceRepository.save(Balance.builder().accountId(accountId).total(Money.ZERO).build());
+            accountIds.add(accountId);
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        LatencyRecorder recorder = new LatencyRecorder("POST /api/transactions", CLIENTS);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> requests = new ArrayList<>(CLIENTS);
+        for (String accountId : accountIds) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/transactions"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(Transaction.builder()
+                            .idUserAccount(accountId).type(CREDIT).amount(Money.of(10)).build())))
+                    .build();
+            requests.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, ex) -> {
+                if (ex != null || response.statusCode() >= 500) {
+                    recorder.error();
+                }
+                recorder.record(System.nanoTime() - start);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).get(10, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        boolean virtualThreads = virtualThreadConfiguration.stream().anyMatch(VirtualThreadConfiguration::isActive);
+        long[] p = recorder.percentilesMicros(50, 99, 99.9);
+        log.info("{} mode, virtual threads {}: {} clients in {}ms, {} errors, max in flight {}, p50 {}us, p99 {}us, p999 {}us",
+                mode(), virtualThreads, CLIENTS, elapsedMillis, recorder.errors(), ledgerMetrics.getMaxInFlight(), p[0], p[1], p[2]);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", mode());
+        report.put("virtualThreads", virtualThreads);
+        report.put("clients", CLIENTS);
+        report.put("mongoLatencyMillis", SimulatedLatencyConfiguration.MONGO_LATENCY_MILLIS);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("errors", recorder.errors());
+        report.put("maxInFlight", ledgerMetrics.getMaxInFlight());
+        report.put("p50Micros", p[0]);
+        report.put("p99Micros", p[1]);
+        report.put("p999Micros", p[2]);
+        Files.write(Path.of("target", "loadtest-concurrency-" + mode() + ".json"),
+                objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+
+        Assertions.assertTrue(recorder.errors() <= CLIENTS / 100, "More than 1% of the requests failed");
+    }
+}
@@ -0,0 +1,74 @@
+package com.santidev.accountbook.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed capacity, lock free record of the latencies of one kind of request.
+ */
+class LatencyRecorder {
+
+    private final String name;
+    private final AtomicLongArray latencies;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.latencies = new AtomicLongArray(capacity);
+    }
+
+    void record(long nanos) {
+        int index = count.getAndIncrement();
+        if (index < latencies.length()) {
+            latencies.set(index, nanos);
+        }
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    String name() {
+        return name;
+    }
+
+    long count() {
+        return Math.min(count.get(), latencies.length());
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    long rejections() {
+        return rejected.get();
+    }
+
+    /**
+     * @return the latencies at each of the given percentiles, in microseconds.
+     */
+    long[] percentilesMicros(double... percentiles) {
+        int size = (int) count();
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int p = 0; p < percentiles.length; p++) {
+            if (size > 0) {
+                int rank = (int) Math.ceil(percentiles[p] / 100.0 * size) - 1;
+                result[p] = sorted[Math.max(0, Math.min(size - 1, rank))] / 1_000;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+package com.santidev.accountbook.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryRepositoryConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+/**
+ * End to end load test: boots the application on a random port with the in memory repositories
+ * and drives a mix of requests at a fixed rate, open loop, so latencies include the time requests
+ * wait when the server falls behind.
+ * <p>
+ * Tagged {@code loadtest}, it only runs with {@code ./mvnw -Ploadtest test}. Every knob is a
+ * {@code loadtest.*} system property; the run fails when the p99 of any request kind goes over
+ * {@code loadtest.p99BudgetMillis} or more than 1% of the requests fail.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(InMemoryRepositoryConfiguration.class)
+@Slf4j
+public class LedgerLoadTest {
+
+    private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.durationSeconds", 15);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmupSeconds", 30);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 64);
+    private static final int ACCOUNTS = Integer.getInteger("loadtest.accounts", 1_000);
+    private static final int HOT_ACCOUNTS = Integer.getInteger("loadtest.hotAccounts", 10);
+    private static final double HOT_SHARE = Double.parseDouble(System.getProperty("loadtest.hotShare", "0.8"));
+    private static final int TRANSACTIONS_WEIGHT = Integer.getInteger("loadtest.mix.transactions", 70);
+    private static final int BALANCES_WEIGHT = Integer.getInteger("loadtest.mix.balances", 25);
+    private static final int ACCOUNTS_WEIGHT = Integer.getInteger("loadtest.mix.userAccounts", 5);
+    private static final long P99_BUDGET_MILLIS = Long.getLong("loadtest.p99BudgetMillis", 50);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    private HttpClient client;
+    private final List<String> accountIds = new ArrayList<>();
+    private final List<String> balanceIds = new ArrayList<>();
+
+    @Test
+    public void ledgerMixWithinLatencyBudgetTest() throws Exception {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        seedAccounts();
+
+        run(WARMUP_SECONDS, false);
+        Map<String, LatencyRecorder> recorders = run(DURATION_SECONDS, true);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        long total = 0;
+        long errors = 0;
+        for (LatencyRecorder recorder : recorders.values()) {
+            long[] p = recorder.percentilesMicros(50, 99, 99.9);
+            log.info("{}: {} requests, {} rejected, {} errors, p50 {}us, p99 {}us, p999 {}us",
+                    recorder.name(), recorder.count(), recorder.rejections(), recorder.errors(), p[0], p[1], p[2]);
+            report.put(recorder.name(), Map.of("count", recorder.count(), "rejected", recorder.rejections(),
+                    "errors", recorder.errors(), "p50Micros", p[0], "p99Micros", p[1], "p999Micros", p[2]));
+            total += recorder.count();
+            errors += recorder.errors();
+        }
+        long throughput = total / DURATION_SECONDS;
+        report.put("throughputPerSecond", throughput);
+        report.put("targetRatePerSecond", RATE);
+        log.info("Throughput {} req/s for a target of {} req/s", throughput, RATE);
+        Files.write(Path.of("target", "loadtest-result.json"), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+
+        Assertions.assertTrue(errors <= total / 100, "More than 1% of the requests failed");
+        for (LatencyRecorder recorder : recorders.values()) {
+            long p99Millis = recorder.percentilesMicros(99)[0] / 1_000;
+            Assertions.assertTrue(p99Millis <= P99_BUDGET_MILLIS,
+                    recorder.name() + " p99 " + p99Millis + "ms is over the budget of " + P99_BUDGET_MILLIS + "ms");
+        }
+    }
+
+    private void seedAccounts() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            UserAccount account = objectMapper.readValue(send(createAccount(i)).body(), UserAccount.class);
+            accountIds.add(account.getId());
+            balanceIds.add(balanceRepository.findByAccountId(account.getId()).get(0).getId());
+            send(createTransaction(account.getId(), CREDIT, Money.of(1_000_000)));
+        }
+    }
+
+    private Map<String, LatencyRecorder> run(int seconds, boolean measure) throws InterruptedException {
+        int requests = RATE * seconds;
+        int capacity = requests + requests / 10;
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        recorders.put("POST /api/transactions", new LatencyRecorder("POST /api/transactions", capacity));
+        recorders.put("GET /api/balances/{id}", new LatencyRecorder("GET /api/balances/{id}", capacity));
+        recorders.put("POST /api/user-accounts", new LatencyRecorder("POST /api/user-accounts", capacity));
+        int weights = TRANSACTIONS_WEIGHT + BALANCES_WEIGHT + ACCOUNTS_WEIGHT;
+
+        ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int pick = ThreadLocalRandom.current().nextInt(weights);
+            workers.execute(() -> {
+                LatencyRecorder recorder;
+                HttpRequest request;
+                int account = pickAccount();
+                if (pick < TRANSACTIONS_WEIGHT) {
+                    recorder = recorders.get("POST /api/transactions");
+                    String type = ThreadLocalRandom.current().nextBoolean() ? CREDIT : DEBIT;
+                    request = createTransaction(accountIds.get(account), type, Money.of(1 + ThreadLocalRandom.current().nextInt(100)));
+                } else if (pick < TRANSACTIONS_WEIGHT + BALANCES_WEIGHT) {
+                    recorder = recorders.get("GET /api/balances/{id}");
+                    request = HttpRequest.newBuilder(uri("/api/balances/" + balanceIds.get(account))).GET().build();
+                } else {
+                    recorder = recorders.get("POST /api/user-accounts");
+                    request = createAccount(account);
+                }
+                try {
+                    int status = send(request).statusCode();
+                    if (status >= 500) {
+                        recorder.error();
+                    } else if (status >= 400) {
+                        recorder.rejected();
+                    }
+                } catch (Exception e) {
+                    recorder.error();
+                }
+                if (measure) {
+                    recorder.record(System.nanoTime() - intended);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+        return recorders;
+    }
+
+    private int pickAccount() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (HOT_ACCOUNTS > 0 && random.nextDouble() < HOT_SHARE) {
+            return random.nextInt(Math.min(HOT_ACCOUNTS, ACCOUNTS));
+        }
+        return random.nextInt(ACCOUNTS);
+    }
+
+    private HttpRequest createAccount(int index) {
+        return postJson("/api/user-accounts", UserAccount.builder().name("Load test " + index).disabled(Boolean.FALSE).build());
+    }
+
+    private HttpRequest createTransaction(String accountId, String type, Money amount) {
+        return postJson("/api/transactions", Transaction.builder().idUserAccount(accountId).type(type).amount(amount).build());
+    }
+
+    private HttpRequest postJson(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,16 @@
+package com.santidev.accountbook.loadtest;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * {@link ConcurrentClientsLoadTest} on the default Tomcat platform-thread pool.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "accountbook.threads.virtual=false")
+public class PlatformThreadConcurrentClientsLoadTest extends ConcurrentClientsLoadTest {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+}
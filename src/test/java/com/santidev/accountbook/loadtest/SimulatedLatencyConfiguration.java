@@ -0,0 +1,45 @@
+package com.santidev.accountbook.loadtest;
+
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Makes every call to the balance and transaction repositories block for
+ * {@code loadtest.mongoLatencyMillis} (5 by default) before running, like a Mongo round trip
+ * would, so the in memory repositories hold request threads the way the real ones do.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class SimulatedLatencyConfiguration {
+
+    static final long MONGO_LATENCY_MILLIS = Long.getLong("loadtest.mongoLatencyMillis", 5);
+
+    @Bean
+    public static BeanPostProcessor simulatedMongoLatency() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof BalanceRepository) && !(bean instanceof TransactionRepository)) {
+                    return bean;
+                }
+                return Proxy.newProxyInstance(bean.getClass().getClassLoader(),
+                        ClassUtils.getAllInterfaces(bean), (proxy, method, args) -> {
+                            if (method.getDeclaringClass() != Object.class) {
+                                Thread.sleep(MONGO_LATENCY_MILLIS);
+                            }
+                            try {
+                                return method.invoke(bean, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.santidev.accountbook.loadtest;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * {@link ConcurrentClientsLoadTest} with requests served on virtual threads. Skipped on a runtime
+ * older than JDK 21, where the mode would fall back to the platform-thread pool and only repeat
+ * {@link PlatformThreadConcurrentClientsLoadTest}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "accountbook.threads.virtual=true")
+public class VirtualThreadConcurrentClientsLoadTest extends ConcurrentClientsLoadTest {
+
+    @BeforeAll
+    static void requireVirtualThreads() {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need JDK 21 or later, running on " + Runtime.version());
+    }
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+}
@@ -0,0 +1,70 @@
+package com.santidev.accountbook.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Jackson (de)serialization of the models done by the REST layer, with a mapper
+ * configured like the one of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Transaction transaction;
+    private Balance balance;
+    private byte[] transactionJson;
+    private byte[] balanceJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transaction = Transaction.builder()
+                .id("651d7b3f2a1c4e0b9d8f7a61")
+                .idUserAccount("651d7b3f2a1c4e0b9d8f7a62")
+                .type(Transaction.DEBIT)
+                .amount(Money.of(new BigDecimal("125.50")))
+                .effectiveDate(LocalDate.of(2023, 10, 4))
+                .build();
+        balance = Balance.builder()
+                .id("651d7b3f2a1c4e0b9d8f7a63")
+                .accountId("651d7b3f2a1c4e0b9d8f7a62")
+                .total(Money.of(new BigDecimal("98765.43")))
+                .build();
+        transactionJson = objectMapper.writeValueAsBytes(transaction);
+        balanceJson = objectMapper.writeValueAsBytes(balance);
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() throws Exception {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public Transaction deserializeTransaction() throws Exception {
+        return objectMapper.readValue(transactionJson, Transaction.class);
+    }
+
+    @Benchmark
+    public byte[] serializeBalance() throws Exception {
+        return objectMapper.writeValueAsBytes(balance);
+    }
+
+    @Benchmark
+    public Balance deserializeBalance() throws Exception {
+        return objectMapper.readValue(balanceJson, Balance.class);
+    }
+}
@@ -0,0 +1,101 @@
+package com.santidev.accountbook.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per transaction of keeping a running balance, checking every debit against it, the way
+ * {@code TransactionService} validates a batch: with the {@link BigDecimal} amounts used before,
+ * with {@link Money} and with its minor units. Run with {@code -prof gc} to see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyBenchmark {
+
+    private static final int TRANSACTIONS = 1024;
+
+    private BigDecimal[] decimalAmounts;
+    private Money[] moneyAmounts;
+    private boolean[] debits;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimalAmounts = new BigDecimal[TRANSACTIONS];
+        moneyAmounts = new Money[TRANSACTIONS];
+        debits = new boolean[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long cents = 1 + random.nextInt(100_000);
+            decimalAmounts[i] = BigDecimal.valueOf(cents, 2);
+            moneyAmounts[i] = Money.ofMinor(cents);
+            debits[i] = random.nextBoolean();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public BigDecimal bigDecimal() {
+        BigDecimal total = new BigDecimal("500.00");
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            if (debits[i]) {
+                if (total.subtract(decimalAmounts[i]).compareTo(BigDecimal.ZERO) < 0) {
+                    continue;
+                }
+                total = total.subtract(decimalAmounts[i]);
+            } else {
+                total = total.add(decimalAmounts[i]);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public Money money() {
+        Money total = Money.of(500);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            if (debits[i]) {
+                if (total.compareTo(moneyAmounts[i]) < 0) {
+                    continue;
+                }
+                total = total.minus(moneyAmounts[i]);
+            } else {
+                total = total.plus(moneyAmounts[i]);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public long minorUnits() {
+        long total = Money.of(500).getMinorUnits();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long amount = moneyAmounts[i].getMinorUnits();
+            if (debits[i]) {
+                if (total < amount) {
+                    continue;
+                }
+                amount = -amount;
+            }
+            total = Math.addExact(total, amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money parse() {
+        return Money.of(decimalAmounts[TRANSACTIONS / 2]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.santidev.accountbook.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    public void arithmeticIsOnMinorUnitsTest() {
+        //Given
+        Money total = Money.of(new BigDecimal("10.05"));
+
+        //When
+        Money result = total.plus(Money.ofMinor(95)).minus(Money.of(3));
+
+        //Then
+        Assertions.assertEquals(800, result.getMinorUnits());
+        Assertions.assertEquals(Money.of(8), result);
+        Assertions.assertEquals("8.00", result.toString());
+        Assertions.assertTrue(result.compareTo(Money.of(9)) < 0);
+    }
+
+    @Test
+    public void overflowFailsInsteadOfWrappingTest() {
+        //Given
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        //When / Then
+        Assertions.assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).negate());
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    public void moreDecimalsThanTheScaleAreRejectedTest() {
+        //Given
+        BigDecimal amount = new BigDecimal("10.005");
+
+        //When / Then
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.of(amount));
+        Assertions.assertEquals(Money.ofMinor(1000), Money.rounded(amount));
+        Assertions.assertEquals(Money.ofMinor(1000), Money.of(new BigDecimal("10.000")));
+    }
+
+    @Test
+    public void parseReadsPlainDecimalsInPlaceTest() {
+        //Given
+        String row = "2,credit,125.5,2023-03-01";
+
+        //When / Then
+        Assertions.assertEquals(Money.ofMinor(12550), Money.parse(row, 9, 14));
+        Assertions.assertEquals(Money.of(-3), Money.parse("-3", 0, 2));
+        Assertions.assertEquals(Money.ofMinor(5), Money.parse("+0.05", 0, 5));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("10.005", 0, 6));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("1e3", 0, 3));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("-", 0, 1));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("99999999999999999999", 0, 20));
+    }
+
+    @Test
+    public void scaleComesFromTheCurrencyTest() {
+        //Given
+        Money yen = Money.of(new BigDecimal("150"), Currency.getInstance("JPY"));
+
+        //When / Then
+        Assertions.assertEquals(0, yen.getScale());
+        Assertions.assertEquals(150, yen.getMinorUnits());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> yen.plus(Money.of(1)));
+    }
+
+    @Test
+    public void jsonIsADecimalNumberTest() throws Exception {
+        //Given
+        Transaction transaction = Transaction.builder().amount(Money.ofMinor(12550)).build();
+
+        //When
+        String json = objectMapper.writeValueAsString(transaction);
+        Transaction read = objectMapper.readValue("{\"amount\":125.5}", Transaction.class);
+
+        //Then
+        Assertions.assertTrue(json.contains("\"amount\":125.50"));
+        Assertions.assertEquals(Money.ofMinor(12550), read.getAmount());
+        Assertions.assertEquals(Money.ofMinor(12550), objectMapper.readValue("{\"amount\":\"125.50\"}", Transaction.class).getAmount());
+        Assertions.assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"amount\":1.001}", Transaction.class));
+    }
+}
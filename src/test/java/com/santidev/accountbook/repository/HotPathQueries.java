@@ -0,0 +1,87 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.Transaction;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The filters and sorts the repositories send to Mongo on the paths that run per transaction or
+ * per account, written like the repositories write them, for the index checks.
+ */
+final class HotPathQueries {
+
+    private static final String ACCOUNT = "651d7b3f2a1c4e0b9d8f7a61";
+    private static final List<String> ACCOUNTS = List.of(ACCOUNT, "651d7b3f2a1c4e0b9d8f7a62");
+    private static final LocalDate DATE = LocalDate.of(2023, 6, 30);
+
+    private HotPathQueries() {
+    }
+
+    /**
+     * A query of a repository method on the collection of {@code document}.
+     */
+    record HotPathQuery(String name, Class<?> document, Query query) {
+
+        Document filter(MongoConverter converter) {
+            return new QueryMapper(converter).getMappedObject(query.getQueryObject(),
+                converter.getMappingContext().getPersistentEntity(document));
+        }
+
+        Document sort(MongoConverter converter) {
+            return new QueryMapper(converter).getMappedSort(query.getSortObject(),
+                converter.getMappingContext().getPersistentEntity(document));
+        }
+    }
+
+    static List<HotPathQuery> all() {
+        return List.of(
+            new HotPathQuery("BalanceRepository.findByAccountId, addToTotal, addToTotals", Balance.class,
+                Query.query(Criteria.where("accountId").is(ACCOUNT))),
+            new HotPathQuery("BalanceRepository.findByAccountIdIn, deleteByAccountIdIn", Balance.class,
+                Query.query(Criteria.where("accountId").in(ACCOUNTS))),
+            new HotPathQuery("TransactionRepository.findPageByAccount", Transaction.class,
+                Query.query(new Criteria().andOperator(
+                        Criteria.where("idUserAccount").is(ACCOUNT),
+                        Criteria.where("effectiveDate").gte(DATE.minusMonths(1)),
+                        Criteria.where("effectiveDate").lte(DATE),
+                        new Criteria().orOperator(
+                            Criteria.where("effectiveDate").gt(DATE.minusDays(7)),
+                            Criteria.where("effectiveDate").is(DATE.minusDays(7)).and("id").gt(ACCOUNT))))
+                    .with(Sort.by("effectiveDate").ascending().and(Sort.by("id").ascending()))
+                    .limit(100)),
+            new HotPathQuery("TransactionRepository.streamByAccount", Transaction.class,
+                Query.query(Criteria.where("idUserAccount").is(ACCOUNT).and("effectiveDate").gt(DATE.minusYears(1)).lte(DATE))
+                    .with(Sort.by("effectiveDate").ascending().and(Sort.by("id").ascending()))),
+            new HotPathQuery("TransactionRepository.findByTransferId", Transaction.class,
+                Query.query(Criteria.where("transferId").is(ACCOUNT))),
+            new HotPathQuery("TransactionRepository.archiveThrough", Transaction.class,
+                Query.query(Criteria.where("effectiveDate").lte(DATE)).limit(5000)),
+            new HotPathQuery("TransactionRepository.deleteByAccountIdIn", Transaction.class,
+                Query.query(Criteria.where("idUserAccount").in(ACCOUNTS))),
+            new HotPathQuery("BalanceSnapshotRepository.findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc",
+                BalanceSnapshot.class,
+                Query.query(Criteria.where("accountId").is(ACCOUNT).and("effectiveDate").lte(DATE))
+                    .with(Sort.by("effectiveDate").descending())
+                    .limit(1)),
+            new HotPathQuery("BalanceSnapshotRepository.deleteByAccountIdIn", BalanceSnapshot.class,
+                Query.query(Criteria.where("accountId").in(ACCOUNTS))),
+            new HotPathQuery("AccountAggregateRepository.findBuckets", AccountAggregate.class,
+                Query.query(Criteria.where("accountId").is(ACCOUNT).and("granularity").is(AccountAggregate.DAY)
+                        .and("bucket").gte(DATE.minusMonths(1)).lte(DATE))
+                    .with(Sort.by("bucket").ascending())),
+            new HotPathQuery("AccountAggregateRepository.addToBuckets", AccountAggregate.class,
+                Query.query(Criteria.where("accountId").is(ACCOUNT).and("granularity").is(AccountAggregate.DAY).and("bucket").is(DATE))),
+            new HotPathQuery("AccountAggregateRepository.deleteByAccountIdIn", AccountAggregate.class,
+                Query.query(Criteria.where("accountId").in(ACCOUNTS))));
+    }
+}
@@ -0,0 +1,95 @@
+package com.santidev.accountbook.repository;
+
+import com.santidev.accountbook.config.MongoConversionsConfiguration;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.repository.HotPathQueries.HotPathQuery;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.StreamSupport;
+
+/**
+ * Checks, without a Mongo server, that every hot path query constrains the leading key of an
+ * index declared on its model, which is what lets the query planner pick an index scan over a
+ * collection scan. {@link MongoQueryPlanTest} checks the actual plans against a Mongo server.
+ */
+public class IndexCoverageTest {
+
+    private static MongoMappingContext mappingContext;
+    private static MappingMongoConverter converter;
+
+    @BeforeAll
+    static void setUp() {
+        MongoCustomConversions conversions = new MongoConversionsConfiguration().mongoCustomConversions();
+        mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    public void everyHotPathQueryHasAnIndexTest() {
+        //Given
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        List<String> unindexed = new ArrayList<>();
+
+        //When
+        for (HotPathQuery query : HotPathQueries.all()) {
+            Set<String> fields = constrainedFields(query.filter(converter));
+            boolean indexed = fields.contains("_id") || StreamSupport.stream(resolver.resolveIndexFor(query.document()).spliterator(), false)
+                .map(IndexDefinition::getIndexKeys)
+                .anyMatch(keys -> fields.contains(keys.keySet().iterator().next()));
+            if (!indexed) {
+                unindexed.add(query.name() + " " + query.filter(converter).toJson());
+            }
+        }
+
+        //Then
+        Assertions.assertEquals(List.of(), unindexed, "Queries without an index on the leading field");
+    }
+
+    @Test
+    public void balanceAccountIndexIsUniqueTest() {
+        //Given
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        //When
+        Document options = StreamSupport.stream(resolver.resolveIndexFor(Balance.class).spliterator(), false)
+            .filter(index -> index.getIndexKeys().keySet().equals(Set.of("account_id")))
+            .findFirst()
+            .orElseThrow()
+            .getIndexOptions();
+
+        //Then
+        Assertions.assertEquals(Boolean.TRUE, options.get("unique"));
+    }
+
+    /**
+     * @return the fields the filter constrains on every document it matches: its own keys and
+     * those of its {@code $and} clauses, but not the ones only under an {@code $or}.
+     */
+    private static Set<String> constrainedFields(Document filter) {
+        Set<String> fields = new HashSet<>();
+        filter.forEach((key, value) -> {
+            if ("$and".equals(key)) {
+                ((List<?>) value).forEach(clause -> fields.addAll(constrainedFields((Document) clause)));
+            } else if (!key.startsWith("$")) {
+                fields.add(key);
+            }
+        });
+        return fields;
+    }
+}
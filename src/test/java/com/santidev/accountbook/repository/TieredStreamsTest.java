@@ -0,0 +1,32 @@
+package com.santidev.accountbook.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TieredStreamsTest {
+
+    @Test
+    public void mergeKeepsTheOrderAndDropsRepeatedIdsTest() {
+        //Given
+        List<String> closed = new ArrayList<>();
+        Stream<String> hot = Stream.of("a", "c", "e").onClose(() -> closed.add("hot"));
+        Stream<String> archive = Stream.of("b", "c", "d").onClose(() -> closed.add("archive"));
+
+        //When
+        List<String> merged;
+        try (Stream<String> stream = TieredStreams.mergeDistinct(List.of(hot, archive), Comparator.naturalOrder(), Function.identity())) {
+            merged = stream.collect(Collectors.toList());
+        }
+
+        //Then
+        Assertions.assertEquals(List.of("a", "b", "c", "d", "e"), merged);
+        Assertions.assertEquals(List.of("hot", "archive"), closed);
+    }
+}
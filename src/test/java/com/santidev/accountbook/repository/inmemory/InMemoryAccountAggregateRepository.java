@@ -0,0 +1,102 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.repository.AccountAggregateRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory {@link AccountAggregateRepository}, with the buckets indexed by account, granularity
+ * and bucket. Range lookups scan every aggregate.
+ */
+public class InMemoryAccountAggregateRepository extends InMemoryMongoRepository<AccountAggregate> implements AccountAggregateRepository {
+
+    private final Map<List<Object>, String> idByKey = new ConcurrentHashMap<>();
+
+    public InMemoryAccountAggregateRepository() {
+        super(AccountAggregate::getId, AccountAggregate::setId, a -> AccountAggregate.builder()
+                .id(a.getId())
+                .accountId(a.getAccountId())
+                .granularity(a.getGranularity())
+                .bucket(a.getBucket())
+                .credits(a.getCredits())
+                .debits(a.getDebits())
+                .creditCount(a.getCreditCount())
+                .debitCount(a.getDebitCount())
+                .build());
+    }
+
+    @Override
+    public <S extends AccountAggregate> S save(S entity) {
+        S saved = super.save(entity);
+        idByKey.put(keyOf(saved), saved.getId());
+        return saved;
+    }
+
+    @Override
+    public <S extends AccountAggregate> S insert(S entity) {
+        S inserted = super.insert(entity);
+        idByKey.put(keyOf(inserted), inserted.getId());
+        return inserted;
+    }
+
+    @Override
+    public void deleteAll() {
+        super.deleteAll();
+        idByKey.clear();
+    }
+
+    @Override
+    public synchronized void deleteByAccountId(String accountId) {
+        documents.values().removeIf(a -> Objects.equals(accountId, a.getAccountId()));
+        idByKey.keySet().removeIf(key -> Objects.equals(accountId, key.get(0)));
+    }
+
+    @Override
+    public synchronized long deleteByAccountIdIn(Collection<String> accountIds) {
+        int before = documents.size();
+        documents.values().removeIf(a -> accountIds.contains(a.getAccountId()));
+        idByKey.keySet().removeIf(key -> accountIds.contains(key.get(0)));
+        return before - documents.size();
+    }
+
+    @Override
+    public List<AccountAggregate> findBuckets(String accountId, String granularity, LocalDate from, LocalDate to) {
+        return documents()
+                .filter(a -> Objects.equals(accountId, a.getAccountId()) && Objects.equals(granularity, a.getGranularity()))
+                .filter(a -> from == null || !a.getBucket().isBefore(from))
+                .filter(a -> to == null || !a.getBucket().isAfter(to))
+                .sorted(Comparator.comparing(AccountAggregate::getBucket))
+                .toList();
+    }
+
+    @Override
+    public synchronized void addToBuckets(Collection<AccountAggregate> deltas) {
+        for (AccountAggregate delta : deltas) {
+            String id = idByKey.get(keyOf(delta));
+            AccountAggregate bucket = id == null ? null : documents.get(id);
+            if (bucket == null) {
+                AccountAggregate created = copy(delta);
+                created.setId(null);
+                save(created);
+                continue;
+            }
+            AccountAggregate next = copy(bucket);
+            next.setCredits(bucket.getCredits().plus(delta.getCredits()));
+            next.setDebits(bucket.getDebits().plus(delta.getDebits()));
+            next.setCreditCount(bucket.getCreditCount() + delta.getCreditCount());
+            next.setDebitCount(bucket.getDebitCount() + delta.getDebitCount());
+            documents.put(id, next);
+        }
+    }
+
+    private static List<Object> keyOf(AccountAggregate aggregate) {
+        return List.of(aggregate.getAccountId(), aggregate.getGranularity(), aggregate.getBucket());
+    }
+}
@@ -0,0 +1,220 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.repository.BalanceRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * In memory {@link BalanceRepository}, with the guarded update applied atomically per document.
+ */
+public class InMemoryBalanceRepository extends InMemoryMongoRepository<Balance> implements BalanceRepository {
+
+    private final Map<String, String> idByAccountId = new ConcurrentHashMap<>();
+
+    public InMemoryBalanceRepository() {
+        super(Balance::getId, Balance::setId, b -> Balance.builder()
+                .id(b.getId())
+                .accountId(b.getAccountId())
+                .total(b.getTotal())
+                .journalSeqs(b.getJournalSeqs() == null ? null : new HashMap<>(b.getJournalSeqs()))
+                .importIds(b.getImportIds() == null ? null : new HashSet<>(b.getImportIds()))
+                .version(b.getVersion())
+                .build());
+    }
+
+    @Override
+    public <S extends Balance> S save(S entity) {
+        S saved = saveVersioned(entity, Balance::getVersion, Balance::setVersion);
+        index(saved);
+        return saved;
+    }
+
+    @Override
+    public <S extends Balance> S insert(S entity) {
+        if (entity.getVersion() == null) {
+            entity.setVersion(0L);
+        }
+        S inserted = super.insert(entity);
+        index(inserted);
+        return inserted;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Balance removed = documents.remove(id);
+        if (removed != null && removed.getAccountId() != null) {
+            idByAccountId.remove(removed.getAccountId(), id);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        super.deleteAll();
+        idByAccountId.clear();
+    }
+
+    private void index(Balance balance) {
+        if (balance.getAccountId() != null) {
+            idByAccountId.put(balance.getAccountId(), balance.getId());
+        }
+    }
+
+    @Override
+    public List<Balance> findByAccountId(String idUserAccount) {
+        String id = idUserAccount == null ? null : idByAccountId.get(idUserAccount);
+        return id == null ? List.of() : findById(id).stream().toList();
+    }
+
+    @Override
+    public List<Balance> findByAccountIdIn(Collection<String> accountIds) {
+        return accountIds.stream().flatMap(accountId -> findByAccountId(accountId).stream()).toList();
+    }
+
+    @Override
+    public Stream<Balance> streamAllBy() {
+        return documents();
+    }
+
+    @Override
+    public long deleteByAccountIdIn(Collection<String> accountIds) {
+        long removed = 0;
+        for (String accountId : accountIds) {
+            String id = idByAccountId.remove(accountId);
+            if (id != null && documents.remove(id) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<Balance> addToTotal(String accountId, Money delta) {
+        String id = idByAccountId.get(accountId);
+        if (id == null) {
+            return Optional.empty();
+        }
+        AtomicReference<Balance> updated = new AtomicReference<>();
+        documents.computeIfPresent(id, (key, balance) -> {
+            updated.set(null);
+            Money total = balance.getTotal().plus(delta);
+            if (delta.signum() < 0 && total.signum() < 0) {
+                return balance;
+            }
+            Balance next = copy(balance);
+            next.setTotal(total);
+            next.setVersion(balance.getVersion() + 1);
+            updated.set(next);
+            return next;
+        });
+        return Optional.ofNullable(updated.get()).map(this::copy);
+    }
+
+    @Override
+    public boolean migrateTotal(String accountId) {
+        return false;
+    }
+
+    @Override
+    public Optional<Balance> addImportedTotal(String accountId, String importId, Money delta) {
+        String id = idByAccountId.get(accountId);
+        if (id == null) {
+            return Optional.empty();
+        }
+        AtomicReference<Balance> updated = new AtomicReference<>();
+        documents.computeIfPresent(id, (key, balance) -> {
+            if (balance.getImportIds() != null && balance.getImportIds().contains(importId)) {
+                return balance;
+            }
+            Balance next = copy(balance);
+            next.setTotal(balance.getTotal().plus(delta));
+            if (next.getImportIds() == null) {
+                next.setImportIds(new HashSet<>());
+            }
+            next.getImportIds().add(importId);
+            next.setVersion(balance.getVersion() + 1);
+            updated.set(next);
+            return next;
+        });
+        return Optional.ofNullable(updated.get()).map(this::copy);
+    }
+
+    @Override
+    public void addJournaledTotals(String journalId, Collection<JournaledDelta> deltas) {
+        for (JournaledDelta delta : deltas) {
+            String id = idByAccountId.get(delta.accountId());
+            if (id != null) {
+                documents.computeIfPresent(id, (key, balance) -> {
+                    Long journalSeq = balance.getJournalSeqs() == null ? null : balance.getJournalSeqs().get(journalId);
+                    if (journalSeq != null && journalSeq >= delta.firstSeq()) {
+                        return balance;
+                    }
+                    Balance next = copy(balance);
+                    next.setTotal(balance.getTotal().plus(delta.delta()));
+                    if (next.getJournalSeqs() == null) {
+                        next.setJournalSeqs(new HashMap<>());
+                    }
+                    next.getJournalSeqs().put(journalId, delta.lastSeq());
+                    next.setVersion(balance.getVersion() + 1);
+                    return next;
+                });
+            }
+        }
+    }
+
+    @Override
+    public Optional<Balance> setTotalIfUnchanged(String accountId, Money current, Money total) {
+        String id = idByAccountId.get(accountId);
+        if (id == null) {
+            return Optional.empty();
+        }
+        AtomicReference<Balance> updated = new AtomicReference<>();
+        documents.computeIfPresent(id, (key, balance) -> {
+            if (balance.getTotal().compareTo(current) != 0) {
+                return balance;
+            }
+            Balance next = copy(balance);
+            next.setTotal(total);
+            next.setVersion(balance.getVersion() + 1);
+            updated.set(next);
+            return next;
+        });
+        return Optional.ofNullable(updated.get()).map(this::copy);
+    }
+
+    @Override
+    public Set<String> addToTotalsIfCovered(Map<String, Money> deltas) {
+        Set<String> uncovered = new HashSet<>();
+        deltas.forEach((accountId, delta) -> {
+            if (addToTotal(accountId, delta).isEmpty() && delta.signum() < 0) {
+                uncovered.add(accountId);
+            }
+        });
+        return uncovered;
+    }
+
+    @Override
+    public void addToTotals(Map<String, Money> deltas) {
+        deltas.forEach((accountId, delta) -> {
+            String id = idByAccountId.get(accountId);
+            if (id != null) {
+                documents.computeIfPresent(id, (key, balance) -> {
+                    Balance next = copy(balance);
+                    next.setTotal(balance.getTotal().plus(delta));
+                    next.setVersion(balance.getVersion() + 1);
+                    return next;
+                });
+            }
+        });
+    }
+}
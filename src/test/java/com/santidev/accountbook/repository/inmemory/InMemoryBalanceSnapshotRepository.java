@@ -0,0 +1,44 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.repository.BalanceSnapshotRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * In memory {@link BalanceSnapshotRepository}. Account queries scan every snapshot.
+ */
+public class InMemoryBalanceSnapshotRepository extends InMemoryMongoRepository<BalanceSnapshot> implements BalanceSnapshotRepository {
+
+    public InMemoryBalanceSnapshotRepository() {
+        super(BalanceSnapshot::getId, BalanceSnapshot::setId, s -> BalanceSnapshot.builder()
+                .id(s.getId())
+                .accountId(s.getAccountId())
+                .effectiveDate(s.getEffectiveDate())
+                .total(s.getTotal())
+                .build());
+    }
+
+    @Override
+    public Optional<BalanceSnapshot> findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String accountId, LocalDate date) {
+        return documents()
+                .filter(s -> Objects.equals(accountId, s.getAccountId()) && !s.getEffectiveDate().isAfter(date))
+                .max(Comparator.comparing(BalanceSnapshot::getEffectiveDate));
+    }
+
+    @Override
+    public void deleteByAccountIdAndEffectiveDateGreaterThanEqual(String accountId, LocalDate date) {
+        documents.values().removeIf(s -> Objects.equals(accountId, s.getAccountId()) && !s.getEffectiveDate().isBefore(date));
+    }
+
+    @Override
+    public long deleteByAccountIdIn(Collection<String> accountIds) {
+        int before = documents.size();
+        documents.values().removeIf(s -> accountIds.contains(s.getAccountId()));
+        return before - documents.size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.IdempotencyKey;
+import com.santidev.accountbook.repository.IdempotencyKeyRepository;
+
+/**
+ * In memory {@link IdempotencyKeyRepository}. Keys don't expire.
+ */
+public class InMemoryIdempotencyKeyRepository extends InMemoryMongoRepository<IdempotencyKey> implements IdempotencyKeyRepository {
+
+    public InMemoryIdempotencyKeyRepository() {
+        super(IdempotencyKey::getKey, IdempotencyKey::setKey, k -> IdempotencyKey.builder()
+                .key(k.getKey())
+                .fingerprint(k.getFingerprint())
+                .transaction(k.getTransaction())
+                .expiresAt(k.getExpiresAt())
+                .build());
+    }
+}
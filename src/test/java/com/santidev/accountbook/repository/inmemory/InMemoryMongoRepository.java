@@ -0,0 +1,216 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Process local stand-in for a {@link MongoRepository}, for benchmarks and load tests that need
+ * the repositories without a Mongo server.
+ * <p>
+ * Documents are kept by id in insertion order, as copies, so callers can't change stored state
+ * by mutating the entities they passed or got back. Query by example isn't supported.
+ */
+public abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    protected final ConcurrentNavigableMap<String, T> documents = new ConcurrentSkipListMap<>();
+
+    private final Function<T, String> idGetter;
+    private final BiConsumer<T, String> idSetter;
+    private final UnaryOperator<T> copier;
+
+    protected InMemoryMongoRepository(Function<T, String> idGetter, BiConsumer<T, String> idSetter, UnaryOperator<T> copier) {
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+        this.copier = copier;
+    }
+
+    protected T copy(T document) {
+        return copier.apply(document);
+    }
+
+    protected Stream<T> documents() {
+        return documents.values().stream().map(copier);
+    }
+
+    private String assignId(T entity) {
+        String id = idGetter.apply(entity);
+        if (id == null) {
+            id = ObjectId.get().toHexString();
+            idSetter.accept(entity, id);
+        }
+        return id;
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        documents.put(assignId(entity), copier.apply(entity));
+        return entity;
+    }
+
+    /**
+     * Saves like Spring Data saves a document with a {@code @Version}: without a version it is
+     * inserted at version 0, with one it replaces the stored document only if that still has the
+     * same version, and the version is incremented.
+     */
+    protected <S extends T> S saveVersioned(S entity, Function<T, Long> versionGetter, BiConsumer<T, Long> versionSetter) {
+        Long expected = versionGetter.apply(entity);
+        if (expected == null) {
+            versionSetter.accept(entity, 0L);
+            return insert(entity);
+        }
+        documents.compute(assignId(entity), (id, current) -> {
+            if (current == null || !expected.equals(versionGetter.apply(current))) {
+                throw new OptimisticLockingFailureException("Version " + expected + " of " + id + " isn't the stored one");
+            }
+            versionSetter.accept(entity, expected + 1);
+            return copier.apply(entity);
+        });
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S insert(S entity) {
+        if (documents.putIfAbsent(assignId(entity), copier.apply(entity)) != null) {
+            throw new DuplicateKeyException("Duplicate id " + idGetter.apply(entity));
+        }
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        entities.forEach(entity -> inserted.add(insert(entity)));
+        return inserted;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(documents.get(id)).map(copier);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return documents().toList();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        if (sort.isSorted()) {
+            throw new UnsupportedOperationException("Sorting isn't supported in memory");
+        }
+        return findAll();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> all = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return documents.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        documents.remove(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        deleteById(idGetter.apply(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        documents.clear();
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException("Query by example isn't supported in memory");
+    }
+}
@@ -0,0 +1,55 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Replaces the Mongo backed repositories with the in memory ones, so the whole application can
+ * run without a Mongo server.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class InMemoryRepositoryConfiguration {
+
+    @Bean
+    @Primary
+    public InMemoryUserAccountRepository inMemoryUserAccountRepository() {
+        return new InMemoryUserAccountRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryBalanceRepository inMemoryBalanceRepository() {
+        return new InMemoryBalanceRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryTransactionRepository inMemoryTransactionRepository() {
+        return new InMemoryTransactionRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryBalanceSnapshotRepository inMemoryBalanceSnapshotRepository() {
+        return new InMemoryBalanceSnapshotRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryIdempotencyKeyRepository inMemoryIdempotencyKeyRepository() {
+        return new InMemoryIdempotencyKeyRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryAccountAggregateRepository inMemoryAccountAggregateRepository() {
+        return new InMemoryAccountAggregateRepository();
+    }
+
+    @Bean
+    @Primary
+    public InMemoryTransactionImportRepository inMemoryTransactionImportRepository() {
+        return new InMemoryTransactionImportRepository();
+    }
+}
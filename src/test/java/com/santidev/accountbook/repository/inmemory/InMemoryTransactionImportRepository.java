@@ -0,0 +1,28 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.TransactionImport;
+import com.santidev.accountbook.repository.TransactionImportRepository;
+
+import java.util.ArrayList;
+
+/**
+ * In memory {@link TransactionImportRepository}.
+ */
+public class InMemoryTransactionImportRepository extends InMemoryMongoRepository<TransactionImport> implements TransactionImportRepository {
+
+    public InMemoryTransactionImportRepository() {
+        super(TransactionImport::getId, TransactionImport::setId, i -> TransactionImport.builder()
+                .id(i.getId())
+                .format(i.getFormat())
+                .status(i.getStatus())
+                .checkpointRow(i.getCheckpointRow())
+                .rowsRead(i.getRowsRead())
+                .rowsRejected(i.getRowsRejected())
+                .accounts(i.getAccounts())
+                .rowsPerSecond(i.getRowsPerSecond())
+                .errors(new ArrayList<>(i.getErrors()))
+                .startedAt(i.getStartedAt())
+                .updatedAt(i.getUpdatedAt())
+                .build());
+    }
+}
@@ -0,0 +1,166 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.TransactionRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In memory {@link TransactionRepository}. Account queries scan every transaction. Archived
+ * transactions are kept apart and, like in Mongo, only the operations of
+ * {@link com.santidev.accountbook.repository.TransactionRepositoryCustom} see them.
+ */
+public class InMemoryTransactionRepository extends InMemoryMongoRepository<Transaction> implements TransactionRepository {
+
+    private static final Comparator<Transaction> ACCOUNT_HISTORY_ORDER = Comparator
+            .comparing(Transaction::getEffectiveDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Transaction::getId);
+
+    private final Map<String, Transaction> archived = new ConcurrentSkipListMap<>();
+
+    public InMemoryTransactionRepository() {
+        super(Transaction::getId, Transaction::setId, t -> Transaction.builder()
+                .id(t.getId())
+                .idUserAccount(t.getIdUserAccount())
+                .type(t.getType())
+                .amount(t.getAmount())
+                .effectiveDate(t.getEffectiveDate())
+                .transferId(t.getTransferId())
+                .importId(t.getImportId())
+                .build());
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        return super.findById(id).or(() -> Optional.ofNullable(archived.get(id)).map(this::copy));
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        try (Stream<Transaction> all = streamAllBy()) {
+            return all.toList();
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamAllBy() {
+        return allTiers().sorted(Comparator.comparing(Transaction::getId));
+    }
+
+    @Override
+    public <S extends Transaction> S save(S transaction) {
+        Transaction stored = transaction.getId() == null || documents.containsKey(transaction.getId())
+                ? null : archived.get(transaction.getId());
+        if (stored == null) {
+            return super.save(transaction);
+        }
+        if (transaction.getEffectiveDate() != null
+                && transaction.getEffectiveDate().getYear() == stored.getEffectiveDate().getYear()) {
+            archived.put(transaction.getId(), copy(transaction));
+            return transaction;
+        }
+        S saved = super.save(transaction);
+        archived.remove(transaction.getId());
+        return saved;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        super.deleteById(id);
+        archived.remove(id);
+    }
+
+    @Override
+    public List<Transaction> findPageByAccount(String accountId, LocalDate from, LocalDate to,
+                                               LocalDate afterDate, String afterId, int size) {
+        return allTiers()
+                .filter(t -> Objects.equals(accountId, t.getIdUserAccount()))
+                .filter(t -> from == null || (t.getEffectiveDate() != null && !t.getEffectiveDate().isBefore(from)))
+                .filter(t -> to == null || (t.getEffectiveDate() != null && !t.getEffectiveDate().isAfter(to)))
+                .filter(t -> isAfter(t, afterDate, afterId))
+                .sorted(ACCOUNT_HISTORY_ORDER)
+                .limit(size)
+                .toList();
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccount(String accountId, LocalDate after, LocalDate to) {
+        return allTiers()
+                .filter(t -> Objects.equals(accountId, t.getIdUserAccount()))
+                .filter(t -> after == null || (t.getEffectiveDate() != null && t.getEffectiveDate().isAfter(after)))
+                .filter(t -> to == null || (t.getEffectiveDate() != null && !t.getEffectiveDate().isAfter(to)))
+                .sorted(ACCOUNT_HISTORY_ORDER);
+    }
+
+    @Override
+    public List<Transaction> findByTransferId(String transferId) {
+        return allTiers()
+                .filter(t -> transferId != null && transferId.equals(t.getTransferId()))
+                .toList();
+    }
+
+    @Override
+    public void insertIgnoringDuplicates(List<Transaction> transactions) {
+        transactions.forEach(transaction -> documents.putIfAbsent(transaction.getId(), copy(transaction)));
+    }
+
+    @Override
+    public long archiveThrough(LocalDate cutoff, int chunkSize) {
+        long moved = 0;
+        for (Transaction transaction : documents.values()) {
+            if (transaction.getEffectiveDate() != null && !transaction.getEffectiveDate().isAfter(cutoff)) {
+                archived.putIfAbsent(transaction.getId(), transaction);
+                documents.remove(transaction.getId());
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    @Override
+    public long deleteByAccountIdIn(Collection<String> accountIds) {
+        long removed = 0;
+        for (Map<String, Transaction> tier : List.of(documents, archived)) {
+            int before = tier.size();
+            tier.values().removeIf(t -> accountIds.contains(t.getIdUserAccount()));
+            removed += before - tier.size();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of archived transactions.
+     */
+    public int archivedCount() {
+        return archived.size();
+    }
+
+    private Stream<Transaction> allTiers() {
+        return Stream.concat(documents(), archived.values().stream()
+                .filter(t -> !documents.containsKey(t.getId()))
+                .map(this::copy));
+    }
+
+    private static boolean isAfter(Transaction transaction, LocalDate afterDate, String afterId) {
+        LocalDate date = transaction.getEffectiveDate();
+        if (afterDate == null && afterId == null) {
+            return true;
+        }
+        if (afterDate == null) {
+            return date != null || transaction.getId().compareTo(afterId) > 0;
+        }
+        if (date == null) {
+            return false;
+        }
+        int byDate = date.compareTo(afterDate);
+        return byDate > 0 || (byDate == 0 && afterId != null && transaction.getId().compareTo(afterId) > 0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.santidev.accountbook.repository.inmemory;
+
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.UserAccountRepository;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * In memory {@link UserAccountRepository}.
+ */
+public class InMemoryUserAccountRepository extends InMemoryMongoRepository<UserAccount> implements UserAccountRepository {
+
+    public InMemoryUserAccountRepository() {
+        super(UserAccount::getId, UserAccount::setId, u -> UserAccount.builder()
+                .id(u.getId())
+                .name(u.getName())
+                .disabled(u.getDisabled())
+                .version(u.getVersion())
+                .build());
+    }
+
+    @Override
+    public <S extends UserAccount> S save(S entity) {
+        return saveVersioned(entity, UserAccount::getVersion, UserAccount::setVersion);
+    }
+
+    @Override
+    public <S extends UserAccount> S insert(S entity) {
+        if (entity.getVersion() == null) {
+            entity.setVersion(0L);
+        }
+        return super.insert(entity);
+    }
+
+    @Override
+    public Optional<VersionOnly> findVersionById(String id) {
+        return Optional.ofNullable(documents.get(id)).map(userAccount -> userAccount::getVersion);
+    }
+
+    @Override
+    public Stream<UserAccount> streamAllBy() {
+        return documents();
+    }
+
+    @Override
+    public long deleteByIdIn(Collection<String> ids) {
+        return ids.stream().filter(id -> documents.remove(id) != null).count();
+    }
+}
@@ -0,0 +1,125 @@
+package com.santidev.accountbook.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.BalanceFeed;
+import com.santidev.accountbook.service.BalanceSnapshotService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BalanceResource.class)
+public class BalanceResourceTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private BalanceRepository balanceRepository;
+    @MockBean
+    private BalanceCache balanceCache;
+    @MockBean
+    private BalanceSnapshotService balanceSnapshotService;
+    @MockBean
+    private BalanceFeed balanceFeed;
+
+    static ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+
+    @Test
+    void conditionalGetAnswersNotModifiedForTheCurrentVersionTest() throws Exception {
+        // Given
+        when(balanceCache.findById("1")).thenReturn(Optional.of(getBalance(7L)));
+
+        // When
+        mvc.perform(get("/api/balances/1"))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+                .andExpect(jsonPath("$.total").value(10));
+        mvc.perform(get("/api/balances/1").header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/api/balances/1").header(HttpHeaders.IF_NONE_MATCH, "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""));
+
+        verify(balanceRepository, never()).findById(any());
+    }
+
+    @Test
+    void putWithCurrentIfMatchWritesThatVersionTest() throws Exception {
+        // Given a stored total of 10 from an opening balance of 4 and transactions of 6
+        Balance stored = getBalance(7L);
+        stored.setOpeningTotal(Money.of(4));
+        when(balanceRepository.findById("1")).thenReturn(Optional.of(stored));
+        when(balanceRepository.save(any())).thenReturn(getBalance(8L));
+
+        // When
+        mvc.perform(put("/api/balances").contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .content(objectMapper.writeValueAsString(Balance.builder().id("1").accountId("2").total(Money.of(25)).build())))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"8\""));
+
+        verify(balanceRepository).save(argThat(balance -> Long.valueOf(7L).equals(balance.getVersion())
+                && Money.of(19).compareTo(balance.getOpeningTotal()) == 0));
+        verify(balanceCache).invalidateBalance("1", "2");
+        verify(balanceFeed).publish("2");
+    }
+
+    @Test
+    void putWithStaleIfMatchIsRejectedTest() throws Exception {
+        // Given
+        when(balanceRepository.save(any())).thenThrow(new OptimisticLockingFailureException("stale"));
+
+        // When
+        mvc.perform(put("/api/balances").contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"6\"")
+                        .content(objectMapper.writeValueAsString(getBalance(null))))
+                // Then
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/balances").contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .content(objectMapper.writeValueAsString(getBalance(null))))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/balances").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(getBalance(6L))))
+                .andExpect(status().isConflict());
+
+        verify(balanceRepository, times(2)).save(any());
+        verify(balanceSnapshotService, never()).dropSnapshots(any());
+        verify(balanceFeed, never()).publish(any());
+    }
+
+    private static Balance getBalance(Long version) {
+        return Balance.builder().id("1").accountId("2").total(Money.of(10)).version(version).build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.santidev.accountbook.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryIdempotencyKeyRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.service.AccountLockStripes;
+import com.santidev.accountbook.service.AccountRegistry;
+import com.santidev.accountbook.service.BalanceCache;
+import com.santidev.accountbook.service.BalanceFeed;
+import com.santidev.accountbook.service.BalanceSnapshotService;
+import com.santidev.accountbook.service.IdempotencyService;
+import com.santidev.accountbook.service.LedgerMetrics;
+import com.santidev.accountbook.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Round trip through the MVC layer, message conversion included, of the busiest endpoints,
+ * with the in memory repositories behind them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RestLayerBenchmark {
+
+    private MockMvc mvc;
+    private String balanceId;
+    private byte[] credit;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        AccountLockStripes accountLockStripes = new AccountLockStripes(256);
+        BalanceCache balanceCache = new BalanceCache(balanceRepository, 1000, Duration.ofMinutes(5));
+        LedgerMetrics ledgerMetrics = new LedgerMetrics(new SimpleMeterRegistry());
+        TransactionService transactionService = new TransactionService(balanceRepository, transactionRepository,
+                accountLockStripes, balanceCache, event -> { }, ledgerMetrics, Optional.empty(),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+        BalanceSnapshotService balanceSnapshotService = new BalanceSnapshotService(new InMemoryBalanceSnapshotRepository(),
+                transactionRepository, balanceRepository, accountLockStripes, ledgerMetrics);
+        IdempotencyService idempotencyService = new IdempotencyService(new InMemoryIdempotencyKeyRepository(), ledgerMetrics,
+                Duration.ofHours(24), Duration.ofMinutes(5), 100_000);
+
+        balanceId = balanceRepository.save(Balance.builder().accountId("2").total(Money.ZERO).build()).getId();
+        credit = objectMapper.writeValueAsBytes(Transaction.builder()
+                .idUserAccount("2")
+                .type(Transaction.CREDIT)
+                .amount(Money.of(10))
+                .build());
+
+        mvc = MockMvcBuilders.standaloneSetup(
+                        new TransactionResource(transactionRepository, transactionService, idempotencyService, objectMapper, 10_000, 1000),
+                        new BalanceResource(balanceRepository, balanceCache, balanceSnapshotService, objectMapper,
+                                new BalanceFeed(balanceCache, 16, 1, Duration.ofSeconds(10)), Duration.ofMinutes(30)))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Benchmark
+    public MvcResult postTransaction() throws Exception {
+        return mvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(credit)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult postTransactionWithNewIdempotencyKey() throws Exception {
+        return mvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(credit)
+                .header("Idempotency-Key", UUID.randomUUID().toString())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult replayTransactionWithIdempotencyKey() throws Exception {
+        return mvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(credit)
+                .header("Idempotency-Key", "replayed")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getBalance() throws Exception {
+        return mvc.perform(get("/api/balances/" + balanceId).accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+}
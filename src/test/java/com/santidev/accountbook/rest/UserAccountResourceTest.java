@@ -4,24 +4,37 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.santidev.accountbook.model.UserAccount;
 import com.santidev.accountbook.repository.BalanceRepository;
 import com.santidev.accountbook.repository.UserAccountRepository;
+import com.santidev.accountbook.service.AccountRegistry;
+import com.santidev.accountbook.service.UserAccountService;
+import com.santidev.accountbook.service.dto.UserAccountBatchItemResult;
+import com.santidev.accountbook.service.dto.UserAccountDeleteReport;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserAccountResource.class)
@@ -35,6 +48,10 @@ public class UserAccountResourceTest {
     private UserAccountRepository userAccountRepository;
     @MockBean
     private BalanceRepository balanceRepository;
+    @MockBean
+    private AccountRegistry accountRegistry;
+    @MockBean
+    private UserAccountService userAccountService;
 
     static ObjectMapper objectMapper;
 
@@ -88,6 +105,118 @@ public class UserAccountResourceTest {
         verify(userAccountRepository).findAll();
     }
 
+    @Test
+    void streamAllAsNdjsonTest() throws Exception {
+        // Given
+        when(userAccountRepository.streamAllBy()).thenReturn(Stream.of(getNewAccount(), getNewAccount()));
+
+        // When
+        MvcResult result = mvc.perform(get("/api/user-accounts").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String line = objectMapper.writeValueAsString(getNewAccount());
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(line + "\n" + line + "\n"));
+    }
+
+    @Test
+    void listDefaultsToJsonArrayTest() throws Exception {
+        // Given
+        when(userAccountRepository.findAll()).thenReturn(List.of(getNewAccount()));
+
+        // When
+        mvc.perform(get("/api/user-accounts").accept(MediaType.ALL))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void postBatchReportsEveryItemTest() throws Exception {
+        // Given
+        when(userAccountService.createAll(any())).thenReturn(List.of(
+                UserAccountBatchItemResult.created(0, getNewAccount()),
+                UserAccountBatchItemResult.rejected(1, getNewAccount(), "A new userAccount cannot already have an ID")));
+
+        // When
+        mvc.perform(post("/api/user-accounts/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(getNewAccountWithOutId(), getNewAccount()))))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value(UserAccountBatchItemResult.CREATED))
+                .andExpect(jsonPath("$[1].status").value(UserAccountBatchItemResult.REJECTED));
+    }
+
+    @Test
+    void deleteCascadesThroughTheServiceTest() throws Exception {
+        // Given
+        when(userAccountService.deleteAll(List.of("2", "3"))).thenReturn(
+                UserAccountDeleteReport.builder().accounts(2).balances(2).transactions(5).build());
+
+        // When
+        mvc.perform(delete("/api/user-accounts/2"))
+                // Then
+                .andExpect(status().isNoContent());
+        mvc.perform(delete("/api/user-accounts/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of("2", "3"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts").value(2))
+                .andExpect(jsonPath("$.transactions").value(5));
+
+        verify(userAccountService).deleteAll(List.of("2"));
+    }
+
+    @Test
+    void conditionalGetChecksOnlyTheVersionTest() throws Exception {
+        // Given
+        UserAccount userAccount = getNewAccount();
+        userAccount.setVersion(4L);
+        when(userAccountRepository.findById("2")).thenReturn(Optional.of(userAccount));
+        when(userAccountRepository.findVersionById("2")).thenReturn(Optional.of(() -> 4L));
+
+        // When
+        mvc.perform(get("/api/user-accounts/2"))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+        mvc.perform(get("/api/user-accounts/2").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/api/user-accounts/2").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+        verify(userAccountRepository, times(2)).findById("2");
+    }
+
+    @Test
+    void putWithStaleIfMatchIsRejectedTest() throws Exception {
+        // Given
+        when(userAccountRepository.save(any())).thenThrow(new OptimisticLockingFailureException("stale"));
+
+        // When
+        mvc.perform(put("/api/user-accounts").contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content(objectMapper.writeValueAsString(getNewAccount())))
+                // Then
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/user-accounts").contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .content(objectMapper.writeValueAsString(getNewAccount())))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/user-accounts").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(getNewAccount())))
+                .andExpect(status().isConflict());
+
+        verify(accountRegistry, never()).put(any());
+    }
+
     private UserAccount getNewAccount() {
         return UserAccount.builder().id("2").name("Test test").disabled(Boolean.FALSE).build();
     }
@@ -0,0 +1,213 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryAccountAggregateRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.santidev.accountbook.model.AccountAggregate.DAY;
+import static com.santidev.accountbook.model.AccountAggregate.MONTH;
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+public class AccountAggregateServiceTest {
+
+    private InMemoryAccountAggregateRepository accountAggregateRepository;
+    private InMemoryTransactionRepository transactionRepository;
+    private AccountAggregateService accountAggregateService;
+
+    @BeforeEach
+    void setUp() {
+        accountAggregateRepository = new InMemoryAccountAggregateRepository();
+        transactionRepository = new InMemoryTransactionRepository();
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        balanceRepository.save(Balance.builder().accountId("2").total(Money.ZERO).build());
+        accountAggregateService = new AccountAggregateService(accountAggregateRepository, transactionRepository,
+                balanceRepository, new AccountLockStripes(16), new LedgerMetrics(new SimpleMeterRegistry()), Duration.ofMillis(10));
+    }
+
+    @Test
+    public void committedTransactionsAreAddedToTheirDayAndMonthTest() {
+        //Given
+        List<Transaction> transactions = List.of(
+                getTransaction(CREDIT, 50, "2023-03-01"),
+                getTransaction(DEBIT, 20, "2023-03-01"),
+                getTransaction(CREDIT, 5, "2023-03-15"));
+
+        //When
+        accountAggregateService.onTransactionsCommitted(new TransactionsCommittedEvent(transactions.subList(0, 2)));
+        accountAggregateService.onTransactionsCommitted(new TransactionsCommittedEvent(transactions.subList(2, 3)));
+        accountAggregateService.flush();
+
+        //Then
+        List<AccountAggregate> days = accountAggregateService.summary("2", DAY, null, null);
+        Assertions.assertEquals(2, days.size());
+        Assertions.assertEquals(Money.of(50), days.get(0).getCredits());
+        Assertions.assertEquals(Money.of(20), days.get(0).getDebits());
+        Assertions.assertEquals(1, days.get(0).getDebitCount());
+        List<AccountAggregate> months = accountAggregateService.summary("2", MONTH, null, null);
+        Assertions.assertEquals(1, months.size());
+        Assertions.assertEquals(LocalDate.parse("2023-03-01"), months.get(0).getBucket());
+        Assertions.assertEquals(Money.of(55), months.get(0).getCredits());
+        Assertions.assertEquals(2, months.get(0).getCreditCount());
+    }
+
+    @Test
+    public void backfillRebuildsTheBucketsFromTheTransactionsTest() {
+        //Given
+        transactionRepository.insert(List.of(
+                getTransaction(CREDIT, 50, "2023-03-01"),
+                getTransaction(DEBIT, 20, "2023-04-02")));
+        accountAggregateService.onTransactionsCommitted(new TransactionsCommittedEvent(
+                List.of(getTransaction(CREDIT, 50, "2023-03-01"))));
+
+        //When
+        accountAggregateService.backfill();
+        int accounts = accountAggregateService.backfill();
+
+        //Then
+        Assertions.assertEquals(1, accounts);
+        List<AccountAggregate> months = accountAggregateService.summary("2", MONTH, null, null);
+        Assertions.assertEquals(2, months.size());
+        Assertions.assertEquals(Money.of(50), months.get(0).getCredits());
+        Assertions.assertEquals(Money.of(20), months.get(1).getDebits());
+        Assertions.assertEquals(4, accountAggregateRepository.count());
+    }
+
+    @Test
+    public void committerDoesNotWaitForTheAggregatesWriteTest() throws Exception {
+        //Given
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccountAggregateService slowService = new AccountAggregateService(new InMemoryAccountAggregateRepository() {
+            @Override
+            public synchronized void addToBuckets(Collection<AccountAggregate> deltas) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.addToBuckets(deltas);
+            }
+        }, transactionRepository, new InMemoryBalanceRepository(), new AccountLockStripes(16),
+                new LedgerMetrics(new SimpleMeterRegistry()), Duration.ofMillis(10));
+
+        //When
+        slowService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(getTransaction(CREDIT, 1, "2023-03-01"))));
+        Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            slowService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(getTransaction(CREDIT, 1, "2023-03-01"))));
+        }
+        release.countDown();
+        slowService.close();
+
+        //Then
+        List<AccountAggregate> days = slowService.summary("2", DAY, null, null);
+        Assertions.assertEquals(1, days.size());
+        Assertions.assertEquals(Money.of(11), days.get(0).getCredits());
+        Assertions.assertEquals(11, days.get(0).getCreditCount());
+    }
+
+    @Test
+    public void deltasOfATransientFailureAreWrittenAgainTest() throws Exception {
+        //Given
+        AtomicInteger attempts = new AtomicInteger();
+        AccountAggregateService flakyService = new AccountAggregateService(new InMemoryAccountAggregateRepository() {
+            @Override
+            public synchronized void addToBuckets(Collection<AccountAggregate> deltas) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new DataAccessResourceFailureException("Timed out");
+                }
+                super.addToBuckets(deltas);
+            }
+        }, transactionRepository, new InMemoryBalanceRepository(), new AccountLockStripes(16),
+                new LedgerMetrics(new SimpleMeterRegistry()), Duration.ofMillis(10));
+
+        //When
+        flakyService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(getTransaction(CREDIT, 3, "2023-03-01"))));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (attempts.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        flakyService.close();
+
+        //Then
+        Assertions.assertEquals(2, attempts.get());
+        List<AccountAggregate> days = flakyService.summary("2", DAY, null, null);
+        Assertions.assertEquals(1, days.size());
+        Assertions.assertEquals(Money.of(3), days.get(0).getCredits());
+    }
+
+    @Test
+    public void deltasOfAPermanentFailureAreDroppedTest() {
+        //Given
+        AtomicInteger attempts = new AtomicInteger();
+        AccountAggregateService failingService = new AccountAggregateService(new InMemoryAccountAggregateRepository() {
+            @Override
+            public synchronized void addToBuckets(Collection<AccountAggregate> deltas) {
+                attempts.incrementAndGet();
+                throw new InvalidDataAccessApiUsageException("Invalid update");
+            }
+        }, transactionRepository, new InMemoryBalanceRepository(), new AccountLockStripes(16),
+                new LedgerMetrics(new SimpleMeterRegistry()), Duration.ofMillis(10));
+
+        //When
+        failingService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(getTransaction(CREDIT, 3, "2023-03-01"))));
+        failingService.close();
+
+        //Then
+        Assertions.assertEquals(1, attempts.get());
+        Assertions.assertTrue(failingService.flush());
+    }
+
+    @Test
+    public void summaryReturnsTheBucketsOverlappingTheRangeTest() {
+        //Given
+        accountAggregateService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(
+                getTransaction(CREDIT, 1, "2023-01-31"),
+                getTransaction(CREDIT, 2, "2023-02-10"),
+                getTransaction(CREDIT, 3, "2023-03-05"))));
+        accountAggregateService.flush();
+
+        //When
+        List<AccountAggregate> months = accountAggregateService.summary("2", MONTH,
+                LocalDate.parse("2023-01-15"), LocalDate.parse("2023-02-01"));
+        List<AccountAggregate> days = accountAggregateService.summary("2", DAY,
+                LocalDate.parse("2023-02-01"), LocalDate.parse("2023-03-31"));
+
+        //Then
+        Assertions.assertEquals(List.of(LocalDate.parse("2023-01-01"), LocalDate.parse("2023-02-01")),
+                months.stream().map(AccountAggregate::getBucket).toList());
+        Assertions.assertEquals(List.of(LocalDate.parse("2023-02-10"), LocalDate.parse("2023-03-05")),
+                days.stream().map(AccountAggregate::getBucket).toList());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> accountAggregateService.summary("2", "week", null, null));
+    }
+
+    private static Transaction getTransaction(String type, long amount, String effectiveDate) {
+        return Transaction.builder()
+                .idUserAccount("2")
+                .type(type)
+                .amount(Money.of(amount))
+                .effectiveDate(LocalDate.parse(effectiveDate))
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.santidev.accountbook.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class AccountLockStripesTest {
+
+    private static final int ACCOUNTS = 64;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+
+    @Test
+    public void stripeCountIsRoundedToPowerOfTwoTest() {
+        Assertions.assertEquals(1, new AccountLockStripes(1).getStripeCount());
+        Assertions.assertEquals(4, new AccountLockStripes(3).getStripeCount());
+        Assertions.assertEquals(256, new AccountLockStripes(256).getStripeCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AccountLockStripes(0));
+    }
+
+    @Test
+    public void sameAccountAlwaysMapsToSameStripeTest() {
+        AccountLockStripes stripes = new AccountLockStripes(64);
+        Assertions.assertEquals(stripes.stripeOf("651d7b3f2a1c4e0b9d8f7a61"), stripes.stripeOf("651d7b3f2a1c4e0b9d8f7a61"));
+        Assertions.assertEquals(0, stripes.stripeOf(null));
+    }
+
+    @Test
+    public void stressNoAccountGoesNegativeTest() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long single = run(1);
+        long parallel = run(Math.max(2, cores));
+        log.info("Striped read-modify-write throughput: 1 thread {} ops/s, {} threads {} ops/s",
+                single, Math.max(2, cores), parallel);
+    }
+
+    /**
+     * Runs unsynchronized read-check-write debits and credits over a plain map, relying only
+     * on the stripes for isolation, and returns the observed operations per second.
+     */
+    private long run(int threads) throws Exception {
+        AccountLockStripes stripes = new AccountLockStripes(256);
+        Map<String, long[]> balances = new HashMap<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            balances.put("account-" + i, new long[]{0L});
+        }
+        AtomicLong credited = new AtomicLong();
+        AtomicLong debited = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String accountId = "account-" + random.nextInt(ACCOUNTS);
+                    long amount = 1 + random.nextInt(10);
+                    boolean credit = random.nextBoolean();
+                    stripes.withAccountLock(accountId, () -> {
+                        long[] total = balances.get(accountId);
+                        if (total[0] < 0) {
+                            throw new IllegalStateException("Account " + accountId + " went negative");
+                        }
+                        if (credit) {
+                            total[0] = total[0] + amount;
+                            credited.addAndGet(amount);
+                        } else if (total[0] - amount >= 0) {
+                            total[0] = total[0] - amount;
+                            debited.addAndGet(amount);
+                        }
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        long sum = 0;
+        for (long[] total : balances.values()) {
+            Assertions.assertTrue(total[0] >= 0);
+            sum += total[0];
+        }
+        Assertions.assertEquals(credited.get() - debited.get(), sum);
+        Assertions.assertEquals(0, stripes.getQueueDepth());
+        return (long) threads * OPERATIONS_PER_THREAD * 1_000_000_000L / Math.max(1, elapsed);
+    }
+}
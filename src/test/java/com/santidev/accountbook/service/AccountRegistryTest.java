@@ -0,0 +1,144 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.service.dto.TransactionBatchItemResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+
+public class AccountRegistryTest {
+
+    private static final String ACTIVE = "651d7b3f2a1c4e0b9d8f7a61";
+    private static final String DISABLED = "651d7b3f2a1c4e0b9d8f7a62";
+
+    private InMemoryUserAccountRepository userAccountRepository;
+    private AccountRegistry accountRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userAccountRepository = new InMemoryUserAccountRepository();
+        userAccountRepository.save(UserAccount.builder().id(ACTIVE).name("active").disabled(false).build());
+        userAccountRepository.save(UserAccount.builder().id(DISABLED).name("disabled").disabled(true).build());
+        userAccountRepository.save(UserAccount.builder().id("legacy-id").name("legacy").build());
+        accountRegistry = new AccountRegistry(userAccountRepository, Duration.ofMinutes(1), 100000);
+    }
+
+    @Test
+    public void everyAccountPassesUntilLoadedTest() {
+        //Then
+        Assertions.assertFalse(accountRegistry.isLoaded());
+        Assertions.assertNull(accountRegistry.rejection("unknown"));
+        Assertions.assertNull(accountRegistry.rejection(DISABLED));
+        accountRegistry.check("unknown");
+    }
+
+    @Test
+    public void unknownAndDisabledAccountsAreRejectedOnceLoadedTest() {
+        //When
+        int loaded = accountRegistry.load();
+
+        //Then
+        Assertions.assertEquals(3, loaded);
+        Assertions.assertNull(accountRegistry.rejection(ACTIVE));
+        Assertions.assertNull(accountRegistry.rejection("legacy-id"));
+        Assertions.assertEquals("Unknown account unknown", accountRegistry.rejection("unknown"));
+        Assertions.assertEquals("Account " + DISABLED + " is disabled", accountRegistry.rejection(DISABLED));
+        Assertions.assertEquals("Missing account", accountRegistry.rejection(null));
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, Assertions.assertThrows(ResponseStatusException.class,
+                () -> accountRegistry.check("unknown")).getStatusCode());
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, Assertions.assertThrows(ResponseStatusException.class,
+                () -> accountRegistry.check(DISABLED)).getStatusCode());
+    }
+
+    @Test
+    public void putAndRemoveKeepTheRegistryCurrentTest() {
+        //Given
+        accountRegistry.load();
+
+        //When
+        accountRegistry.put(UserAccount.builder().id("651d7b3f2a1c4e0b9d8f7a63").disabled(false).build());
+        accountRegistry.put(UserAccount.builder().id(DISABLED).disabled(false).build());
+        accountRegistry.put(UserAccount.builder().id(ACTIVE).disabled(true).build());
+        accountRegistry.remove("legacy-id");
+
+        //Then
+        Assertions.assertNull(accountRegistry.rejection("651d7b3f2a1c4e0b9d8f7a63"));
+        Assertions.assertNull(accountRegistry.rejection(DISABLED));
+        Assertions.assertEquals("Account " + ACTIVE + " is disabled", accountRegistry.rejection(ACTIVE));
+        Assertions.assertEquals("Unknown account legacy-id", accountRegistry.rejection("legacy-id"));
+        Assertions.assertEquals("Unknown account 651D7B3F2A1C4E0B9D8F7A61", accountRegistry.rejection("651D7B3F2A1C4E0B9D8F7A61"));
+    }
+
+    @Test
+    public void accountsChangedByAnotherInstanceArePickedUpTest() {
+        //Given
+        AtomicInteger reads = new AtomicInteger();
+        InMemoryUserAccountRepository countingRepository = new InMemoryUserAccountRepository() {
+            @Override
+            public Optional<UserAccount> findById(String id) {
+                reads.incrementAndGet();
+                return super.findById(id);
+            }
+        };
+        countingRepository.save(UserAccount.builder().id(ACTIVE).name("active").disabled(false).build());
+        AccountRegistry cachingRegistry = new AccountRegistry(countingRepository, Duration.ofMinutes(1), 100000);
+        AccountRegistry rereadingRegistry = new AccountRegistry(countingRepository, Duration.ZERO, 100000);
+        cachingRegistry.load();
+        rereadingRegistry.load();
+
+        //When
+        countingRepository.save(UserAccount.builder().id("651d7b3f2a1c4e0b9d8f7a63").name("created").disabled(false).build());
+        countingRepository.save(UserAccount.builder().id(ACTIVE).name("active").disabled(true).version(0L).build());
+
+        //Then
+        Assertions.assertNull(cachingRegistry.rejection("651d7b3f2a1c4e0b9d8f7a63"));
+        Assertions.assertEquals("Unknown account unknown", cachingRegistry.rejection("unknown"));
+        Assertions.assertEquals("Unknown account unknown", cachingRegistry.rejection("unknown"));
+        Assertions.assertNull(cachingRegistry.rejection(ACTIVE));
+        Assertions.assertEquals(2, reads.get());
+        Assertions.assertEquals("Account " + ACTIVE + " is disabled", rereadingRegistry.rejection(ACTIVE));
+    }
+
+    @Test
+    public void batchRejectsItemsOfUnknownAccountsBeforeTouchingBalancesTest() {
+        //Given
+        accountRegistry.load();
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        balanceRepository.save(Balance.builder().accountId(ACTIVE).total(Money.ZERO).build());
+        TransactionService transactionService = new TransactionService(balanceRepository, transactionRepository,
+                new AccountLockStripes(16), new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5)), event -> { },
+                new LedgerMetrics(new SimpleMeterRegistry()), Optional.empty(), accountRegistry);
+
+        //When
+        List<TransactionBatchItemResult> results = transactionService.processBatch(List.of(
+                getTransaction(ACTIVE), getTransaction("unknown"), getTransaction(DISABLED)));
+
+        //Then
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(0).getStatus());
+        Assertions.assertEquals("Unknown account unknown", results.get(1).getReason());
+        Assertions.assertEquals("Account " + DISABLED + " is disabled", results.get(2).getReason());
+        Assertions.assertEquals(1, transactionRepository.count());
+        Assertions.assertEquals(1, balanceRepository.count());
+    }
+
+    private static Transaction getTransaction(String accountId) {
+        return Transaction.builder().idUserAccount(accountId).type(CREDIT).amount(Money.of(10)).build();
+    }
+}
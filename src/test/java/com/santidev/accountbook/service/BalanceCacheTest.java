@@ -0,0 +1,121 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.repository.BalanceRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BalanceCacheTest {
+
+    private BalanceRepository balanceRepository;
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = mock(BalanceRepository.class);
+        balanceCache = new BalanceCache(balanceRepository, 1000, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void readsHitTheRepositoryOnceTest() {
+        //Given
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getBalance(30)));
+
+        //When
+        balanceCache.findByAccountId("2");
+        balanceCache.findByAccountId("2");
+        Optional<Balance> balance = balanceCache.findById("3");
+
+        //Then
+        Assertions.assertEquals(Money.of(30), balance.orElseThrow().getTotal());
+        verify(balanceRepository, times(1)).findByAccountId("2");
+        Assertions.assertEquals(2, balanceCache.stats().hitCount());
+        Assertions.assertEquals(1, balanceCache.stats().missCount());
+    }
+
+    @Test
+    public void returnedBalancesAreCopiesTest() {
+        //Given
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getBalance(30)));
+
+        //When
+        balanceCache.findByAccountId("2").orElseThrow().setTotal(Money.of(1));
+
+        //Then
+        Assertions.assertEquals(Money.of(30), balanceCache.findByAccountId("2").orElseThrow().getTotal());
+    }
+
+    @Test
+    public void invalidateReloadsFromRepositoryTest() {
+        //Given
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getBalance(30)))
+                .thenReturn(List.of(getBalance(45)));
+        balanceCache.findByAccountId("2");
+
+        //When
+        balanceCache.invalidateBalance("3", "2");
+
+        //Then
+        Assertions.assertEquals(Money.of(45), balanceCache.findByAccountId("2").orElseThrow().getTotal());
+    }
+
+    @Test
+    public void neverServesStaleBalanceAfterWriteTest() throws Exception {
+        //Given
+        AtomicLong stored = new AtomicLong();
+        when(balanceRepository.findByAccountId("2")).thenAnswer(inv -> {
+            long total = stored.get();
+            Thread.yield();
+            return List.of(getBalance(total));
+        });
+
+        //When
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(executor.submit(() -> {
+                while (writing.get()) {
+                    balanceCache.findByAccountId("2");
+                    if (Thread.currentThread().getId() % 2 == 0) {
+                        balanceCache.invalidate("2");
+                    }
+                }
+            }));
+        }
+        for (long total = 1; total <= 5_000; total++) {
+            stored.set(total);
+            balanceCache.put(getBalance(total));
+
+            //Then
+            Money read = balanceCache.findByAccountId("2").orElseThrow().getTotal();
+            Assertions.assertEquals(Money.of(total), read);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+    }
+
+    private static Balance getBalance(long total) {
+        return Balance.builder().id("3").total(Money.of(total)).accountId("2").build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of publishing a balance change of one hot account to its {@code subscribers}.
+ * {@link #publish} is what a committing writer pays, and should stay flat as subscribers grow;
+ * {@link #publishAndDeliver} also waits until every subscriber got the new balance, so it shows
+ * how long the fan-out takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BalanceFeedBenchmark {
+
+    private static final String ACCOUNT = "hot-account";
+
+    @Param({"0", "1", "100", "1000", "10000"})
+    public int subscribers;
+
+    private InMemoryBalanceRepository balanceRepository;
+    private BalanceCache balanceCache;
+    private BalanceFeed balanceFeed;
+    private TransactionsCommittedEvent event;
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<BalanceFeed.Subscription> subscriptions = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        balanceRepository.save(Balance.builder().accountId(ACCOUNT).total(Money.ZERO).build());
+        balanceCache = new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5));
+        balanceFeed = new BalanceFeed(balanceCache, 16, 4, Duration.ofSeconds(10));
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(balanceFeed.subscribe(ACCOUNT, balance -> delivered.incrementAndGet()));
+        }
+        event = new TransactionsCommittedEvent(List.of(Transaction.builder()
+                .idUserAccount(ACCOUNT)
+                .type(Transaction.CREDIT)
+                .amount(Money.of(1))
+                .build()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscriptions.forEach(BalanceFeed.Subscription::close);
+        balanceFeed.close();
+    }
+
+    @Benchmark
+    public void publish() {
+        commit();
+    }
+
+    @Benchmark
+    public void publishAndDeliver() {
+        long expected = delivered.get() + subscribers;
+        commit();
+        while (delivered.get() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void commit() {
+        balanceCache.put(balanceRepository.addToTotal(ACCOUNT, Money.of(1)).orElseThrow());
+        balanceFeed.onTransactionsCommitted(event);
+    }
+}
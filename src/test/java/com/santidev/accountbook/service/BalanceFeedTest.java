@@ -0,0 +1,211 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class BalanceFeedTest {
+
+    private static final String ACCOUNT = "account";
+
+    private InMemoryBalanceRepository balanceRepository;
+    private BalanceCache balanceCache;
+    private BalanceFeed balanceFeed;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        balanceRepository.save(Balance.builder().accountId(ACCOUNT).total(Money.ZERO).build());
+        balanceCache = new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5));
+        balanceFeed = new BalanceFeed(balanceCache, 4, 2, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceFeed.close();
+    }
+
+    @Test
+    public void subscriberGetsTheCurrentThenEveryNewerBalanceTest() throws Exception {
+        //Given
+        List<Balance> received = new CopyOnWriteArrayList<>();
+        balanceFeed.subscribe(ACCOUNT, received::add);
+        await(() -> received.size() == 1);
+
+        //When
+        for (int i = 0; i < 50; i++) {
+            commit(Money.of(1));
+        }
+
+        //Then
+        await(() -> Money.of(50).equals(received.get(received.size() - 1).getTotal()));
+        Assertions.assertEquals(Money.ZERO, received.get(0).getTotal());
+        for (int i = 1; i < received.size(); i++) {
+            Assertions.assertTrue(received.get(i).getVersion() > received.get(i - 1).getVersion());
+        }
+    }
+
+    @Test
+    public void slowSubscriberKeepsTheLatestWithoutHoldingUpOthersTest() throws Exception {
+        //Given
+        CountDownLatch release = new CountDownLatch(1);
+        List<Balance> slow = new CopyOnWriteArrayList<>();
+        List<Balance> fast = new CopyOnWriteArrayList<>();
+        balanceFeed.subscribe(ACCOUNT, balance -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slow.add(balance);
+        });
+        balanceFeed.subscribe(ACCOUNT, fast::add);
+
+        //When
+        for (int i = 0; i < 200; i++) {
+            commit(Money.of(1));
+            balanceFeed.publish(ACCOUNT);
+        }
+
+        //Then
+        await(() -> !fast.isEmpty() && Money.of(200).equals(fast.get(fast.size() - 1).getTotal()));
+        Assertions.assertTrue(slow.isEmpty());
+        release.countDown();
+        await(() -> !slow.isEmpty() && Money.of(200).equals(slow.get(slow.size() - 1).getTotal()));
+        Assertions.assertTrue(slow.size() <= 1 + 4, "The slow subscriber got more than its buffer: " + slow.size());
+        Assertions.assertTrue(balanceFeed.getDropped() > 0 || balanceFeed.getCoalesced() > 0);
+    }
+
+    @Test
+    public void blockedSinksDoNotHoldUpTheFeedThreadsTest() throws Exception {
+        //Given more subscribers blocked in their sink than feed threads
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(3);
+        List<Balance> fast = new CopyOnWriteArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                balanceFeed.subscribe(ACCOUNT, balance -> {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            balanceFeed.subscribe(ACCOUNT, fast::add);
+
+            //When
+            commit(Money.of(1));
+
+            //Then
+            await(() -> !fast.isEmpty() && Money.of(1).equals(fast.get(fast.size() - 1).getTotal()));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void stalledSubscriberIsClosedAtTheNextChangeTest() throws Exception {
+        //Given
+        balanceFeed.close();
+        balanceFeed = new BalanceFeed(balanceCache, 4, 2, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        try {
+            balanceFeed.subscribe(ACCOUNT, balance -> {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, closed::countDown);
+            Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+
+            //When
+            commit(Money.of(1));
+
+            //Then
+            Assertions.assertTrue(closed.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, balanceFeed.getSubscribers());
+            Assertions.assertEquals(1, balanceFeed.getStalled());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void balancesChangedOutsideACommitAreSentTest() throws Exception {
+        //Given
+        List<Balance> received = new CopyOnWriteArrayList<>();
+        balanceFeed.subscribe(ACCOUNT, received::add);
+        await(() -> received.size() == 1);
+
+        //When the balance is repaired
+        Balance repaired = balanceRepository.setTotalIfUnchanged(ACCOUNT, Money.ZERO, Money.of(7)).orElseThrow();
+        balanceCache.invalidate(ACCOUNT);
+        balanceFeed.onBalancesChanged(new BalancesChangedEvent(List.of(ACCOUNT)));
+
+        //Then
+        await(() -> received.size() == 2);
+        Assertions.assertEquals(Money.of(7), received.get(1).getTotal());
+        Assertions.assertEquals(repaired.getVersion(), received.get(1).getVersion());
+    }
+
+    @Test
+    public void failingSinkIsUnsubscribedTest() throws Exception {
+        //Given
+        balanceFeed.subscribe(ACCOUNT, balance -> {
+            throw new IllegalStateException("client gone");
+        });
+        BalanceFeed.Subscription closed = balanceFeed.subscribe(ACCOUNT, balance -> { });
+
+        //When
+        closed.close();
+        closed.close();
+
+        //Then
+        await(() -> balanceFeed.getSubscribers() == 0);
+        commit(Money.of(1));
+        Assertions.assertEquals(0, balanceFeed.getSubscribers());
+    }
+
+    /**
+     * Applies a credit like {@link TransactionService} does: the guarded update, the cache and the
+     * committed event.
+     */
+    private void commit(Money amount) {
+        balanceCache.put(balanceRepository.addToTotal(ACCOUNT, amount).orElseThrow());
+        balanceFeed.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(Transaction.builder()
+                .idUserAccount(ACCOUNT)
+                .type(Transaction.CREDIT)
+                .amount(amount)
+                .build())));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                Assertions.fail("Timed out waiting for the feed");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.BalanceSnapshotRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BalanceSnapshotServiceTest {
+
+    private static final LocalDate SNAPSHOT_DATE = LocalDate.of(2023, 10, 10);
+
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    private TransactionRepository transactionRepository;
+    private BalanceRepository balanceRepository;
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        balanceSnapshotRepository = mock(BalanceSnapshotRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        balanceRepository = mock(BalanceRepository.class);
+        balanceSnapshotService = new BalanceSnapshotService(balanceSnapshotRepository, transactionRepository,
+                balanceRepository, new AccountLockStripes(16), new LedgerMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    public void balanceAtReplaysOnlyAfterNearestSnapshotTest() {
+        //Given
+        LocalDate date = SNAPSHOT_DATE.plusDays(2);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc("2", date))
+                .thenReturn(Optional.of(getSnapshot(100)));
+        when(transactionRepository.streamByAccount("2", SNAPSHOT_DATE, date)).thenReturn(Stream.of(
+                getTransaction(CREDIT, 5, SNAPSHOT_DATE.plusDays(1)),
+                getTransaction(DEBIT, 20, date)));
+
+        //When
+        BalanceSnapshot balance = balanceSnapshotService.balanceAt("2", date);
+
+        //Then
+        Assertions.assertEquals(Money.of(85), balance.getTotal());
+        Assertions.assertEquals(date, balance.getEffectiveDate());
+    }
+
+    @Test
+    public void balanceAtWithoutSnapshotKeepsOpeningBalanceTest() {
+        //Given an opening balance of 50, a credit of 7 at the date and one of 10 after it
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(
+                Balance.builder().accountId("2").total(Money.of(67)).build()));
+        when(transactionRepository.streamByAccount("2", SNAPSHOT_DATE, null))
+                .thenReturn(Stream.of(getTransaction(CREDIT, 10, SNAPSHOT_DATE.plusDays(1))));
+
+        //When
+        BalanceSnapshot balance = balanceSnapshotService.balanceAt("2", SNAPSHOT_DATE);
+
+        //Then
+        Assertions.assertEquals(Money.of(57), balance.getTotal());
+    }
+
+    @Test
+    public void firstSnapshotStartsFromStoredTotalTest() {
+        //Given
+        when(balanceRepository.streamAllBy()).thenReturn(Stream.of(Balance.builder().accountId("2").build()));
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(
+                Balance.builder().accountId("2").total(Money.of(100)).build()));
+        when(transactionRepository.streamByAccount("2", SNAPSHOT_DATE, null))
+                .thenReturn(Stream.of(getTransaction(DEBIT, 30, SNAPSHOT_DATE.plusDays(1))));
+
+        //When
+        int written = balanceSnapshotService.takeSnapshots(SNAPSHOT_DATE);
+
+        //Then
+        Assertions.assertEquals(1, written);
+        ArgumentCaptor<BalanceSnapshot> saved = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository).save(saved.capture());
+        Assertions.assertEquals(Money.of(130), saved.getValue().getTotal());
+    }
+
+    @Test
+    public void takeSnapshotsSkipsUnchangedAccountsTest() {
+        //Given
+        LocalDate date = SNAPSHOT_DATE.plusDays(1);
+        when(balanceRepository.streamAllBy()).thenReturn(Stream.of(
+                Balance.builder().accountId("2").build(),
+                Balance.builder().accountId("4").build()));
+        when(balanceSnapshotRepository.findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(any(), any()))
+                .thenReturn(Optional.of(getSnapshot(100)));
+        when(transactionRepository.streamByAccount("2", SNAPSHOT_DATE, date))
+                .thenReturn(Stream.of(getTransaction(DEBIT, 30, date)));
+        when(transactionRepository.streamByAccount("4", SNAPSHOT_DATE, date)).thenReturn(Stream.empty());
+
+        //When
+        int written = balanceSnapshotService.takeSnapshots(date);
+
+        //Then
+        Assertions.assertEquals(1, written);
+        ArgumentCaptor<BalanceSnapshot> saved = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository).save(saved.capture());
+        Assertions.assertEquals("2", saved.getValue().getAccountId());
+        Assertions.assertEquals(Money.of(70), saved.getValue().getTotal());
+    }
+
+    @Test
+    public void backdatedTransactionDropsLaterSnapshotsTest() {
+        //When
+        balanceSnapshotService.onTransactionsCommitted(new TransactionsCommittedEvent(List.of(
+                getTransaction(CREDIT, 1, SNAPSHOT_DATE),
+                getTransaction(CREDIT, 1, LocalDate.now()))));
+
+        //Then
+        verify(balanceSnapshotRepository).deleteByAccountIdAndEffectiveDateGreaterThanEqual("2", SNAPSHOT_DATE);
+        verify(balanceSnapshotRepository, never()).deleteByAccountIdAndEffectiveDateGreaterThanEqual("2", LocalDate.now());
+    }
+
+    private static BalanceSnapshot getSnapshot(int total) {
+        return BalanceSnapshot.builder().id("5").accountId("2").effectiveDate(SNAPSHOT_DATE).total(Money.of(total)).build();
+    }
+
+    private static Transaction getTransaction(String type, int amount, LocalDate effectiveDate) {
+        return Transaction.builder().idUserAccount("2").type(type).amount(Money.of(amount)).effectiveDate(effectiveDate).build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.IdempotencyKey;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryIdempotencyKeyRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+public class IdempotencyServiceTest {
+
+    private InMemoryIdempotencyKeyRepository idempotencyKeyRepository;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger created;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyKeyRepository = new InMemoryIdempotencyKeyRepository();
+        idempotencyService = newService();
+        created = new AtomicInteger();
+    }
+
+    @Test
+    public void retryReturnsOriginalTransactionWithoutCreatingAgainTest() {
+        //Given
+        Transaction first = idempotencyService.createOnce("k1", getTransaction(CREDIT, "20"), this::create);
+
+        //When
+        Transaction replayed = idempotencyService.createOnce("k1", getTransaction(CREDIT, "20.00"), this::create);
+
+        //Then
+        Assertions.assertEquals(1, created.get());
+        Assertions.assertEquals(first.getId(), replayed.getId());
+    }
+
+    @Test
+    public void retryOnAnotherInstanceReplaysFromRepositoryTest() {
+        //Given
+        Transaction first = idempotencyService.createOnce("k1", getTransaction(CREDIT, "20"), this::create);
+
+        //When
+        Transaction replayed = newService().createOnce("k1", getTransaction(CREDIT, "20"), this::create);
+
+        //Then
+        Assertions.assertEquals(1, created.get());
+        Assertions.assertEquals(first.getId(), replayed.getId());
+    }
+
+    @Test
+    public void keyReusedForDifferentTransactionIsRejectedTest() {
+        //Given
+        idempotencyService.createOnce("k1", getTransaction(CREDIT, "20"), this::create);
+
+        //When
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.createOnce("k1", getTransaction(DEBIT, "20"), this::create));
+
+        //Then
+        Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        Assertions.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void keyClaimedByRunningRequestIsConflictTest() {
+        //Given
+        idempotencyKeyRepository.insert(IdempotencyKey.builder().key("k1").fingerprint("pending")
+                .expiresAt(Instant.now().plusSeconds(60)).build());
+
+        //When
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.createOnce("k1", getTransaction(CREDIT, "20"), this::create));
+
+        //Then
+        Assertions.assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        Assertions.assertEquals(0, created.get());
+    }
+
+    @Test
+    public void failedRequestReleasesKeyTest() {
+        //Given
+        Assertions.assertThrows(NegativeBalanceException.class, () -> idempotencyService.createOnce("k1",
+                getTransaction(DEBIT, "20"), () -> {
+                    throw new NegativeBalanceException(HttpStatus.BAD_REQUEST, "Balnce can't reach negative values");
+                }));
+
+        //When
+        idempotencyService.createOnce("k1", getTransaction(DEBIT, "20"), this::create);
+
+        //Then
+        Assertions.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void unexpectedFailureKeepsKeyClaimedTest() {
+        //Given
+        Assertions.assertThrows(DataAccessResourceFailureException.class, () -> idempotencyService.createOnce("k1",
+                getTransaction(DEBIT, "20"), () -> {
+                    created.incrementAndGet();
+                    throw new DataAccessResourceFailureException("insert timed out");
+                }));
+
+        //When
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.createOnce("k1", getTransaction(DEBIT, "20"), this::create));
+
+        //Then
+        Assertions.assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        Assertions.assertEquals(1, created.get());
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(idempotencyKeyRepository, new LedgerMetrics(new SimpleMeterRegistry()),
+                Duration.ofHours(24), Duration.ofMinutes(5), 100);
+    }
+
+    private Transaction create() {
+        return Transaction.builder().id("t" + created.incrementAndGet()).idUserAccount("2").type(CREDIT)
+                .amount(Money.of(20)).build();
+    }
+
+    private static Transaction getTransaction(String type, String amount) {
+        return Transaction.builder().idUserAccount("2").type(type).amount(Money.of(new BigDecimal(amount))).build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.service.dto.ReconciliationReport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class LedgerReconciliationServiceTest {
+
+    private static final int ACCOUNTS = 100;
+    private static final int TRANSACTIONS = 1_000_000;
+
+    private TransactionRepository transactionRepository;
+    private BalanceRepository balanceRepository;
+    private BalanceSnapshotService balanceSnapshotService;
+    private ApplicationEventPublisher eventPublisher;
+    private LedgerReconciliationService ledgerReconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        balanceRepository = mock(BalanceRepository.class);
+        balanceSnapshotService = mock(BalanceSnapshotService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        ledgerReconciliationService = new LedgerReconciliationService(transactionRepository, balanceRepository,
+                new BalanceCache(balanceRepository, 100, Duration.ofMinutes(1)), new AccountLockStripes(16),
+                balanceSnapshotService, eventPublisher, 0, 10_000, 10);
+    }
+
+    /**
+     * Every account gets 5000 credits of 3 and 5000 debits of 1, so its expected total is 10000.
+     */
+    @Test
+    public void reportsAndRepairsMismatchesTest() {
+        //Given
+        when(transactionRepository.streamAllBy()).thenReturn(IntStream.range(0, TRANSACTIONS).mapToObj(i ->
+                Transaction.builder()
+                        .idUserAccount("account-" + (i % ACCOUNTS))
+                        .type((i / ACCOUNTS) % 2 == 0 ? CREDIT : DEBIT)
+                        .amount((i / ACCOUNTS) % 2 == 0 ? Money.of(3) : Money.of(1))
+                        .build()));
+        when(balanceRepository.streamAllBy()).thenReturn(IntStream.range(0, ACCOUNTS).mapToObj(i ->
+                Balance.builder()
+                        .accountId("account-" + i)
+                        .total(i == 7 ? Money.of(9_990) : Money.of(10_000))
+                        .build()));
+        when(balanceRepository.findByAccountId("account-7")).thenReturn(List.of(
+                Balance.builder().accountId("account-7").total(Money.of(9_990)).build()));
+        when(transactionRepository.streamByAccount("account-7", null, null)).thenReturn(Stream.of(
+                Transaction.builder().idUserAccount("account-7").type(CREDIT).amount(Money.of(15_000)).build(),
+                Transaction.builder().idUserAccount("account-7").type(DEBIT).amount(Money.of(5_000)).build()));
+        when(balanceRepository.setTotalIfUnchanged("account-7", Money.of(9_990), Money.of(10_000)))
+                .thenReturn(Optional.of(Balance.builder().accountId("account-7").total(Money.of(10_000)).build()));
+
+        //When
+        ReconciliationReport report = ledgerReconciliationService.reconcile(true);
+
+        //Then
+        log.info("Reconciliation benchmark: {} rows/s", report.getRowsPerSecond());
+        Assertions.assertEquals(TRANSACTIONS, report.getScannedTransactions());
+        Assertions.assertEquals(ACCOUNTS, report.getAccounts());
+        Assertions.assertEquals(1, report.getMismatchCount());
+        Assertions.assertEquals("account-7", report.getMismatches().get(0).getAccountId());
+        Assertions.assertEquals(0, Money.of(10_000).compareTo(report.getMismatches().get(0).getExpected()));
+        Assertions.assertEquals(1, report.getRepairedCount());
+        verify(balanceRepository).setTotalIfUnchanged("account-7", Money.of(9_990), Money.of(10_000));
+        verify(balanceSnapshotService).dropSnapshots("account-7");
+        verify(eventPublisher).publishEvent(new BalancesChangedEvent(List.of("account-7")));
+    }
+
+    @Test
+    public void mismatchGoneOnRecheckIsNotRepairedTest() {
+        //Given a credit committed between the scan and the repair
+        when(transactionRepository.streamAllBy()).thenReturn(Stream.of(
+                Transaction.builder().idUserAccount("2").type(CREDIT).amount(Money.of(10)).build()));
+        when(balanceRepository.streamAllBy()).thenReturn(Stream.of(
+                Balance.builder().accountId("2").total(Money.of(15)).build()));
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(
+                Balance.builder().accountId("2").total(Money.of(15)).build()));
+        when(transactionRepository.streamByAccount("2", null, null)).thenReturn(Stream.of(
+                Transaction.builder().idUserAccount("2").type(CREDIT).amount(Money.of(10)).build(),
+                Transaction.builder().idUserAccount("2").type(CREDIT).amount(Money.of(5)).build()));
+
+        //When
+        ReconciliationReport report = ledgerReconciliationService.reconcile(true);
+
+        //Then
+        Assertions.assertEquals(1, report.getMismatchCount());
+        Assertions.assertEquals(0, report.getRepairedCount());
+        verify(balanceRepository, never()).setTotalIfUnchanged(any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void openingBalanceIsNotTakenForAMismatchTest() {
+        //Given a total set through the API to 100 before a credit of 10
+        when(transactionRepository.streamAllBy()).thenReturn(Stream.of(
+                Transaction.builder().idUserAccount("2").type(CREDIT).amount(Money.of(10)).build()));
+        when(balanceRepository.streamAllBy()).thenReturn(Stream.of(
+                Balance.builder().accountId("2").total(Money.of(110)).openingTotal(Money.of(100)).build()));
+
+        //When
+        ReconciliationReport report = ledgerReconciliationService.reconcile(true);
+
+        //Then
+        Assertions.assertEquals(0, report.getMismatchCount());
+        verify(balanceRepository, never()).setTotalIfUnchanged(any(), any(), any());
+        verify(balanceSnapshotService, never()).dropSnapshots(any());
+    }
+
+    @Test
+    public void dryRunDoesNotRepairTest() {
+        //Given
+        when(transactionRepository.streamAllBy()).thenReturn(Stream.of(
+                Transaction.builder().idUserAccount("2").type(CREDIT).amount(Money.of(10)).build()));
+        when(balanceRepository.streamAllBy()).thenReturn(Stream.of(
+                Balance.builder().accountId("2").total(Money.of(1)).build()));
+
+        //When
+        ReconciliationReport report = ledgerReconciliationService.reconcile(false);
+
+        //Then
+        Assertions.assertEquals(1, report.getMismatchCount());
+        verify(balanceRepository, never()).setTotalIfUnchanged(any(), any(), any());
+    }
+}
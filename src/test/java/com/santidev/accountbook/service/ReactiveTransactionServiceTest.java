@@ -0,0 +1,175 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.repository.reactive.ReactiveBalanceRepository;
+import com.santidev.accountbook.repository.reactive.ReactiveTransactionRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReactiveTransactionServiceTest {
+
+    private ReactiveBalanceRepository balanceRepository;
+    private ReactiveTransactionRepository transactionRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private ReactiveTransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = mock(ReactiveBalanceRepository.class);
+        transactionRepository = mock(ReactiveTransactionRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        BalanceCache balanceCache = new BalanceCache(mock(BalanceRepository.class), 100, Duration.ofMinutes(5));
+        transactionService = new ReactiveTransactionService(balanceRepository, transactionRepository, balanceCache,
+                eventPublisher, new LedgerMetrics(new SimpleMeterRegistry()), Optional.empty(),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+        when(transactionRepository.save(any())).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        when(balanceRepository.migrateTotal(any())).thenReturn(Mono.just(false));
+    }
+
+    @Test
+    public void creditUpdatesBalanceAndSavesTest() {
+        //Given
+        when(balanceRepository.addToTotal("2", Money.of(20))).thenReturn(Mono.just(getBalance(20)));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(CREDIT, 20));
+
+        //Then
+        StepVerifier.create(result)
+                .expectNextMatches(transaction -> transaction.getEffectiveDate() != null)
+                .verifyComplete();
+        verify(transactionRepository).save(any());
+        verify(eventPublisher).publishEvent(any(TransactionsCommittedEvent.class));
+    }
+
+    @Test
+    public void uncoveredDebitIsRejectedWithoutSavingTest() {
+        //Given
+        when(balanceRepository.addToTotal("2", Money.of(-40))).thenReturn(Mono.empty());
+        when(balanceRepository.findByAccountId("2")).thenReturn(Flux.just(getBalance(30)));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(DEBIT, 40));
+
+        //Then
+        StepVerifier.create(result).verifyError(NegativeBalanceException.class);
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void debitCoveredByConcurrentCreditIsRetriedTest() {
+        //Given
+        when(balanceRepository.addToTotal("2", Money.of(-40)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(getBalance(10)));
+        when(balanceRepository.findByAccountId("2")).thenReturn(Flux.just(getBalance(50)));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(DEBIT, 40));
+
+        //Then
+        StepVerifier.create(result).expectNextCount(1).verifyComplete();
+        verify(balanceRepository, times(2)).addToTotal("2", Money.of(-40));
+    }
+
+    @Test
+    public void debitOnALegacyTotalIsMigratedThenAppliedTest() {
+        //Given a total an older instance still wrote as Decimal128
+        when(balanceRepository.addToTotal("2", Money.of(-40)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(getBalance(10)));
+        when(balanceRepository.migrateTotal("2")).thenReturn(Mono.just(true));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(DEBIT, 40));
+
+        //Then
+        StepVerifier.create(result).expectNextCount(1).verifyComplete();
+        verify(balanceRepository, times(2)).addToTotal("2", Money.of(-40));
+        verify(balanceRepository, never()).findByAccountId("2");
+    }
+
+    @Test
+    public void unappliedUpdatesFailInsteadOfSavingTest() {
+        //Given a balance that reads as covering everything but is never matched
+        when(balanceRepository.addToTotal(any(), any())).thenReturn(Mono.empty());
+        when(balanceRepository.findByAccountId("2")).thenReturn(Flux.just(getBalance(50)));
+
+        //When
+        Mono<Transaction> credit = transactionService.processTransaction(getTransaction(CREDIT, 20));
+        Mono<Transaction> debit = transactionService.processTransaction(getTransaction(DEBIT, 40));
+
+        //Then
+        StepVerifier.create(credit).verifyError(ResponseStatusException.class);
+        StepVerifier.create(debit).verifyError(ResponseStatusException.class);
+        verify(balanceRepository, times(TransactionService.MAX_BALANCE_ATTEMPTS)).addToTotal("2", Money.of(-40));
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void failedBalanceUpdateIsNotSavedTest() {
+        //Given
+        when(balanceRepository.addToTotal("2", Money.of(20)))
+                .thenReturn(Mono.error(new DataAccessResourceFailureException("mongo down")));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(CREDIT, 20));
+
+        //Then
+        StepVerifier.create(result).verifyError(DataAccessResourceFailureException.class);
+        verify(transactionRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any(TransactionsCommittedEvent.class));
+    }
+
+    @Test
+    public void journalEnabledRejectsReactiveTransactionsTest() {
+        //Given
+        transactionService = new ReactiveTransactionService(balanceRepository, transactionRepository,
+                new BalanceCache(mock(BalanceRepository.class), 100, Duration.ofMinutes(5)), eventPublisher,
+                new LedgerMetrics(new SimpleMeterRegistry()), Optional.of(mock(TransactionJournal.class)),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+
+        //When
+        Mono<Transaction> result = transactionService.processTransaction(getTransaction(DEBIT, 40));
+
+        //Then
+        StepVerifier.create(result)
+                .verifyErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.METHOD_NOT_ALLOWED);
+        verify(balanceRepository, never()).addToTotal(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    private static Balance getBalance(long total) {
+        return Balance.builder().id("3").total(Money.of(total)).accountId("2").build();
+    }
+
+    private static Transaction getTransaction(String type, long amount) {
+        return Transaction.builder().idUserAccount("2").type(type).amount(Money.of(amount)).build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.santidev.accountbook.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.service.dto.StatementExportReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+public class StatementServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private InMemoryBalanceRepository balanceRepository;
+    private InMemoryTransactionRepository transactionRepository;
+    private StatementService statementService;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        transactionRepository = new InMemoryTransactionRepository();
+        BalanceSnapshotService balanceSnapshotService = new BalanceSnapshotService(new InMemoryBalanceSnapshotRepository(),
+                transactionRepository, balanceRepository, new AccountLockStripes(16), new LedgerMetrics(new SimpleMeterRegistry()));
+        statementService = new StatementService(transactionRepository, balanceRepository, balanceSnapshotService,
+                new ObjectMapper().registerModule(new JavaTimeModule()), directory.toString(), 2, 10);
+        transactionRepository.insert(List.of(
+                getTransaction("t1", "2", CREDIT, 100, "2023-02-20"),
+                getTransaction("t2", "2", DEBIT, 30, "2023-03-01"),
+                getTransaction("t3", "2", CREDIT, 5, "2023-03-15"),
+                getTransaction("t4", "2", DEBIT, 1, "2023-04-01"),
+                getTransaction("t5", "a/../3", CREDIT, 7, "2023-03-02")));
+        balanceRepository.save(Balance.builder().accountId("2").total(Money.of(74)).build());
+        balanceRepository.save(Balance.builder().accountId("a/../3").total(Money.of(7)).build());
+    }
+
+    @Test
+    public void csvStatementHasTheRunningBalanceFromTheOpeningOneTest() throws Exception {
+        //Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //When
+        long rows = statementService.writeStatement("2", LocalDate.parse("2023-03-01"), LocalDate.parse("2023-03-31"),
+                StatementService.CSV, out);
+
+        //Then
+        Assertions.assertEquals(2, rows);
+        Assertions.assertEquals("""
+                id,effective_date,type,amount,balance
+                t2,2023-03-01,debit,30.00,70.00
+                t3,2023-03-15,credit,5.00,75.00
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void ndjsonStatementHasOneObjectPerTransactionTest() throws Exception {
+        //Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //When
+        statementService.writeStatement("2", null, LocalDate.parse("2023-03-01"), StatementService.NDJSON, out);
+
+        //Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals("{\"id\":\"t1\",\"effectiveDate\":\"2023-02-20\",\"type\":\"credit\",\"amount\":100.00,\"balance\":100.00}", lines[0]);
+        Assertions.assertEquals("{\"id\":\"t2\",\"effectiveDate\":\"2023-03-01\",\"type\":\"debit\",\"amount\":30.00,\"balance\":70.00}", lines[1]);
+    }
+
+    @Test
+    public void exportWritesOneFilePerAccountTest() throws Exception {
+        //When
+        StatementExportReport report = statementService.exportAll(LocalDate.parse("2023-03-01"), null, StatementService.CSV);
+
+        //Then
+        Assertions.assertEquals(2, report.getAccounts());
+        Assertions.assertEquals(4, report.getTransactions());
+        Assertions.assertEquals(0, report.getFailedCount());
+        Path range = directory.resolve("2023-03-01_end");
+        try (var files = Files.list(range)) {
+            Assertions.assertEquals(2, files.count());
+        }
+        List<String> statement = Files.readAllLines(range.resolve("2.csv"));
+        Assertions.assertEquals("t4,2023-04-01,debit,1.00,74.00", statement.get(3));
+        Assertions.assertTrue(Files.exists(range.resolve(StatementService.fileName("a/../3") + ".csv")));
+    }
+
+    private static Transaction getTransaction(String id, String accountId, String type, long amount, String date) {
+        return Transaction.builder()
+                .id(id)
+                .idUserAccount(accountId)
+                .type(type)
+                .amount(Money.of(amount))
+                .effectiveDate(LocalDate.parse(date))
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.service.dto.TransactionArchiveReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+public class TransactionArchiveServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private InMemoryTransactionRepository transactionRepository;
+    private InMemoryBalanceSnapshotRepository balanceSnapshotRepository;
+    private BalanceSnapshotService balanceSnapshotService;
+    private TransactionArchiveService transactionArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new InMemoryTransactionRepository();
+        balanceSnapshotRepository = new InMemoryBalanceSnapshotRepository();
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        balanceRepository.save(Balance.builder().accountId("2").total(Money.of(75)).build());
+        balanceSnapshotService = new BalanceSnapshotService(balanceSnapshotRepository, transactionRepository,
+                balanceRepository, new AccountLockStripes(16), new LedgerMetrics(new SimpleMeterRegistry()));
+        transactionArchiveService = new TransactionArchiveService(transactionRepository, balanceSnapshotService, 30, 2);
+        transactionRepository.insert(List.of(
+                getTransaction("t1", CREDIT, 100, TODAY.minusDays(400)),
+                getTransaction("t2", DEBIT, 30, TODAY.minusDays(40)),
+                getTransaction("t3", CREDIT, 5, TODAY.minusDays(10))));
+    }
+
+    @Test
+    public void transactionsPastTheHorizonAreArchivedAfterASnapshotTest() {
+        //When
+        TransactionArchiveReport result = transactionArchiveService.archive();
+
+        //Then
+        Assertions.assertEquals(TODAY.minusDays(30), result.getCutoff());
+        Assertions.assertEquals(2L, result.getArchived());
+        Assertions.assertEquals(1, transactionRepository.count());
+        Assertions.assertEquals(2, transactionRepository.archivedCount());
+        Assertions.assertEquals(Money.of(70), balanceSnapshotRepository
+                .findFirstByAccountIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc("2", TODAY.minusDays(30))
+                .orElseThrow().getTotal());
+    }
+
+    @Test
+    public void readsStillSeeArchivedTransactionsTest() {
+        //When
+        transactionArchiveService.archive();
+
+        //Then
+        Assertions.assertTrue(transactionRepository.findById("t1").isPresent());
+        try (Stream<Transaction> history = transactionRepository.streamByAccount("2", null, null)) {
+            Assertions.assertEquals(List.of("t1", "t2", "t3"), history.map(Transaction::getId).toList());
+        }
+        Assertions.assertEquals(Money.of(100), balanceSnapshotService.balanceAt("2", TODAY.minusDays(100)).getTotal());
+        Assertions.assertEquals(Money.of(75), balanceSnapshotService.balanceAt("2", TODAY).getTotal());
+    }
+
+    private static Transaction getTransaction(String id, String type, long amount, LocalDate date) {
+        return Transaction.builder()
+                .id(id)
+                .idUserAccount("2")
+                .type(type)
+                .amount(Money.of(amount))
+                .effectiveDate(date)
+                .build();
+    }
+}
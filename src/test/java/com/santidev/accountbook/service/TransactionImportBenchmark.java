@@ -0,0 +1,92 @@
+package com.santidev.accountbook.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.santidev.accountbook.model.TransactionImport;
+import com.santidev.accountbook.repository.inmemory.InMemoryAccountAggregateRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionImportRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second of {@link TransactionImportService#importTransactions} for a file of
+ * {@link #ROWS} rows over 100 accounts, CSV against NDJSON, into fresh in memory repositories.
+ * The score includes the rebuild of the balances and aggregates at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionImportBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({TransactionImportService.CSV, TransactionImportService.NDJSON})
+    public String format;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private byte[] file;
+    private TransactionImportService transactionImportService;
+    private int imports;
+
+    @Setup(Level.Trial)
+    public void setUpFile() {
+        StringBuilder text = new StringBuilder();
+        if (TransactionImportService.CSV.equals(format)) {
+            text.append("id_user_account,type,amount,effective_date\n");
+        }
+        LocalDate start = LocalDate.parse("2020-01-01");
+        for (int i = 0; i < ROWS; i++) {
+            String type = i % 3 == 0 ? "debit" : "credit";
+            String amount = (i % 500) + "." + (i % 100);
+            String date = start.plusDays(i % 1000).toString();
+            if (TransactionImportService.CSV.equals(format)) {
+                text.append("account-").append(i % 100).append(',').append(type).append(',').append(amount).append(',').append(date).append('\n');
+            } else {
+                text.append("{\"idUserAccount\":\"account-").append(i % 100).append("\",\"type\":\"").append(type)
+                        .append("\",\"amount\":").append(amount).append(",\"effectiveDate\":\"").append(date).append("\"}\n");
+            }
+        }
+        file = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpRepositories() {
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        AccountLockStripes accountLockStripes = new AccountLockStripes(256);
+        LedgerMetrics ledgerMetrics = new LedgerMetrics(new SimpleMeterRegistry());
+        AccountAggregateService accountAggregateService = new AccountAggregateService(new InMemoryAccountAggregateRepository(),
+                transactionRepository, balanceRepository, accountLockStripes, ledgerMetrics, Duration.ofMillis(10));
+        transactionImportService = new TransactionImportService(transactionRepository, new InMemoryTransactionImportRepository(),
+                balanceRepository, new InMemoryBalanceSnapshotRepository(), accountAggregateService, accountLockStripes,
+                new BalanceCache(balanceRepository, 1000, Duration.ofMinutes(5)), ledgerMetrics, event -> { }, objectMapper, 0, 5000, 100);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public TransactionImport importFile() {
+        TransactionImport result = transactionImportService.importTransactions("import-" + imports++, format, new ByteArrayInputStream(file));
+        if (!TransactionImport.COMPLETED.equals(result.getStatus()) || result.getCheckpointRow() != ROWS) {
+            throw new IllegalStateException("Import didn't complete: " + result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,175 @@
+package com.santidev.accountbook.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.TransactionImport;
+import com.santidev.accountbook.repository.inmemory.InMemoryAccountAggregateRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionImportRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.santidev.accountbook.model.AccountAggregate.MONTH;
+
+public class TransactionImportServiceTest {
+
+    private InMemoryBalanceRepository balanceRepository;
+    private InMemoryTransactionImportRepository transactionImportRepository;
+    private FailingTransactionRepository transactionRepository;
+    private AccountAggregateService accountAggregateService;
+    private TransactionImportService transactionImportService;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        transactionImportRepository = new InMemoryTransactionImportRepository();
+        transactionRepository = new FailingTransactionRepository();
+        AccountLockStripes accountLockStripes = new AccountLockStripes(16);
+        LedgerMetrics ledgerMetrics = new LedgerMetrics(new SimpleMeterRegistry());
+        accountAggregateService = new AccountAggregateService(new InMemoryAccountAggregateRepository(),
+                transactionRepository, balanceRepository, accountLockStripes, ledgerMetrics, Duration.ofMillis(10));
+        transactionImportService = new TransactionImportService(transactionRepository, transactionImportRepository,
+                balanceRepository, new InMemoryBalanceSnapshotRepository(), accountAggregateService, accountLockStripes,
+                new BalanceCache(balanceRepository, 100, Duration.ofMinutes(1)), ledgerMetrics, event -> { },
+                new ObjectMapper().registerModule(new JavaTimeModule()), 2, 2, 10);
+    }
+
+    @Test
+    public void csvRowsAreImportedAndBalancesRecomputedOnceTest() {
+        //Given
+        balanceRepository.save(Balance.builder().accountId("2").total(Money.of(1000)).build());
+        String csv = """
+                id_user_account,type,amount,effective_date
+                2,credit,100.50,2023-03-01
+                2,debit, 20 ,2023-03-02
+
+                3,credit,7,2023-04-01
+                3,refund,7,2023-04-01
+                3,credit,1.001,2023-04-01
+                3,debit,2,2023-04-02
+                """;
+
+        //When
+        TransactionImport result = transactionImportService.importTransactions("import-1", TransactionImportService.CSV, stream(csv));
+
+        //Then
+        Assertions.assertEquals(TransactionImport.COMPLETED, result.getStatus());
+        Assertions.assertEquals(6, result.getCheckpointRow());
+        Assertions.assertEquals(2, result.getRowsRejected());
+        Assertions.assertEquals(2, result.getErrors().size());
+        Assertions.assertTrue(result.getErrors().get(0).startsWith("Row 4:"));
+        Assertions.assertEquals(2, result.getAccounts());
+        Assertions.assertEquals(4, transactionRepository.count());
+        Assertions.assertTrue(transactionRepository.findById("import-1:1").isPresent());
+        // the imported rows are added to the existing total, a missing balance is created from them
+        Assertions.assertEquals(Money.ofMinor(108050), balanceRepository.findByAccountId("2").get(0).getTotal());
+        Assertions.assertEquals(Money.of(5), balanceRepository.findByAccountId("3").get(0).getTotal());
+        Assertions.assertEquals(2, accountAggregateService.summary("3", MONTH, null, null).get(0).getCreditCount()
+                + accountAggregateService.summary("3", MONTH, null, null).get(0).getDebitCount());
+    }
+
+    @Test
+    public void ndjsonRowsKeepTheirIdsTest() {
+        //Given
+        String ndjson = """
+                {"id":"t-1","idUserAccount":"2","type":"credit","amount":10,"effectiveDate":"2023-03-01"}
+                {"idUserAccount":"2","type":"debit","amount":"2.5","effectiveDate":"2023-03-02"}
+                {"idUserAccount":"2","type":"debit"
+                """;
+
+        //When
+        TransactionImport result = transactionImportService.importTransactions("import-2", TransactionImportService.NDJSON, stream(ndjson));
+
+        //Then
+        Assertions.assertEquals(TransactionImport.COMPLETED, result.getStatus());
+        Assertions.assertEquals(1, result.getRowsRejected());
+        Assertions.assertTrue(transactionRepository.findById("t-1").isPresent());
+        Assertions.assertTrue(transactionRepository.findById("import-2:2").isPresent());
+        Assertions.assertEquals(Money.ofMinor(750), balanceRepository.findByAccountId("2").get(0).getTotal());
+    }
+
+    @Test
+    public void failedImportResumesAfterItsCheckpointTest() {
+        //Given
+        StringBuilder csv = new StringBuilder("type,amount,effective_date,id_user_account\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append(i % 2 == 0 ? "credit" : "debit").append(",").append(i % 2 == 0 ? 3 : 1).append(",2023-03-01,").append(i % 3).append("\n");
+        }
+        transactionRepository.failAtInsert.set(4);
+
+        //When
+        TransactionImport failed = transactionImportService.importTransactions("import-3", TransactionImportService.CSV, stream(csv.toString()));
+        TransactionImport resumed = transactionImportService.importTransactions("import-3", TransactionImportService.CSV, stream(csv.toString()));
+
+        //Then
+        Assertions.assertEquals(TransactionImport.FAILED, failed.getStatus());
+        Assertions.assertTrue(failed.getCheckpointRow() < 20);
+        Assertions.assertEquals(TransactionImport.COMPLETED, resumed.getStatus());
+        Assertions.assertEquals(20, resumed.getCheckpointRow());
+        Assertions.assertEquals(TransactionImport.COMPLETED, transactionImportRepository.findById("import-3").get().getStatus());
+        Assertions.assertEquals(20, transactionRepository.count());
+        Money total = balanceRepository.findAll().stream().map(Balance::getTotal).reduce(Money.ZERO, Money::plus);
+        Assertions.assertEquals(Money.of(20), total);
+    }
+
+    @Test
+    public void resumedImportAddsEveryRowToExistingBalancesOnceTest() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            balanceRepository.save(Balance.builder().accountId(String.valueOf(i)).total(Money.of(100)).build());
+        }
+        transactionRepository.insert(Transaction.builder().id("earlier").idUserAccount("0").type(Transaction.CREDIT)
+                .amount(Money.of(40)).effectiveDate(LocalDate.parse("2023-01-01")).build());
+        StringBuilder csv = new StringBuilder("type,amount,effective_date,id_user_account\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append(i % 2 == 0 ? "credit" : "debit").append(",").append(i % 2 == 0 ? 3 : 1).append(",2023-03-01,").append(i % 3).append("\n");
+        }
+        transactionRepository.failAtInsert.set(4);
+
+        //When
+        transactionImportService.importTransactions("import-4", TransactionImportService.CSV, stream(csv.toString()));
+        TransactionImport resumed = transactionImportService.importTransactions("import-4", TransactionImportService.CSV, stream(csv.toString()));
+
+        //Then
+        Assertions.assertEquals(TransactionImport.COMPLETED, resumed.getStatus());
+        Money total = balanceRepository.findAll().stream().map(Balance::getTotal).reduce(Money.ZERO, Money::plus);
+        Assertions.assertEquals(Money.of(320), total);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Fails the bulk insert with the given number, once.
+     */
+    private static class FailingTransactionRepository extends InMemoryTransactionRepository {
+
+        private final AtomicInteger failAtInsert = new AtomicInteger();
+        private final AtomicInteger inserts = new AtomicInteger();
+
+        @Override
+        public void insertIgnoringDuplicates(List<Transaction> transactions) {
+            if (inserts.incrementAndGet() == failAtInsert.get()) {
+                failAtInsert.set(0);
+                throw new IllegalStateException("Mongo is down");
+            }
+            super.insertIgnoringDuplicates(transactions);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+
+/**
+ * Throughput of {@link TransactionService#processTransaction} with the Mongo writes on the request
+ * ({@code sync}) against acknowledging after the group commit of the {@link TransactionJournal}
+ * ({@code journal}). The in memory repositories sleep {@code mongoLatencyMillis} per call to stand
+ * in for a Mongo round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionJournalBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    @Param({"sync", "journal"})
+    public String mode;
+
+    @Param({"1", "5"})
+    public long mongoLatencyMillis;
+
+    private Path file;
+    private TransactionJournal journal;
+    private TransactionService transactionService;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryBalanceRepository balances = new InMemoryBalanceRepository();
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = "account-" + i;
+            balances.save(Balance.builder().accountId(accountIds[i]).total(Money.of(1_000_000_000)).build());
+        }
+        BalanceRepository balanceRepository = withLatency(balances, BalanceRepository.class);
+        TransactionRepository transactionRepository = withLatency(new InMemoryTransactionRepository(), TransactionRepository.class);
+        AccountLockStripes accountLockStripes = new AccountLockStripes(256);
+        BalanceCache balanceCache = new BalanceCache(balanceRepository, ACCOUNTS, Duration.ofMinutes(5));
+        LedgerMetrics ledgerMetrics = new LedgerMetrics(new SimpleMeterRegistry());
+        if ("journal".equals(mode)) {
+            file = Files.createTempFile("transactions", ".journal");
+            journal = new TransactionJournal(balanceRepository, transactionRepository, accountLockStripes, balanceCache,
+                    event -> { }, ledgerMetrics, file, DataSize.ofMegabytes(512), Duration.ofMillis(20), 5000);
+            journal.start();
+        }
+        transactionService = new TransactionService(balanceRepository, transactionRepository, accountLockStripes,
+                balanceCache, event -> { }, ledgerMetrics, Optional.ofNullable(journal),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Transaction processCredit() {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        return transactionService.processTransaction(Transaction.builder()
+                .idUserAccount(accountId)
+                .type(CREDIT)
+                .amount(Money.of(new BigDecimal("10.00")))
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T withLatency(T repository, Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() != Object.class) {
+                Thread.sleep(mongoLatencyMillis);
+            }
+            try {
+                return method.invoke(repository, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
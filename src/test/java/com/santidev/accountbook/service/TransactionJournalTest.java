@@ -0,0 +1,364 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+public class TransactionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryBalanceRepository balanceRepository;
+    private InMemoryTransactionRepository transactionRepository;
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        transactionRepository = new InMemoryTransactionRepository();
+        balanceCache = new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5));
+        balanceRepository.save(Balance.builder().accountId("2").total(Money.of(100)).build());
+    }
+
+    @Test
+    public void acknowledgedTransactionsAreReplayedAfterCrashTest() throws IOException {
+        //Given
+        TransactionService transactionService = newService(newJournal());
+        transactionService.processTransaction(getTransaction(CREDIT, 50));
+        transactionService.processTransaction(getTransaction(DEBIT, 20));
+        transactionService.processTransaction(getTransaction(CREDIT, 5));
+
+        //When
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(0, Money.of(135).compareTo(getTotal()));
+        Assertions.assertEquals(3, transactionRepository.count());
+    }
+
+    @Test
+    public void replayAfterFlushWithoutCheckpointDoesNotApplyTwiceTest() throws IOException {
+        //Given
+        TransactionJournal journal = newJournal();
+        TransactionService transactionService = newService(journal);
+        transactionService.processTransaction(getTransaction(CREDIT, 50));
+        transactionService.processTransaction(getTransaction(DEBIT, 20));
+        journal.flush();
+        rewindCheckpoint();
+
+        //When
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(0, Money.of(130).compareTo(getTotal()));
+        Assertions.assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    public void flushWritesPendingTransactionsTest() throws IOException {
+        //Given
+        TransactionJournal journal = newJournal();
+        TransactionService transactionService = newService(journal);
+        Transaction transaction = transactionService.processTransaction(getTransaction(CREDIT, 50));
+
+        //When
+        int flushed = journal.flush();
+
+        //Then
+        Assertions.assertEquals(1, flushed);
+        Assertions.assertEquals(0, journal.pendingCount());
+        Assertions.assertEquals(0, Money.ZERO.compareTo(journal.pendingDelta("2")));
+        Assertions.assertEquals(0, Money.of(150).compareTo(getTotal()));
+        Assertions.assertTrue(transactionRepository.findById(transaction.getId()).isPresent());
+    }
+
+    @Test
+    public void debitIsCheckedAgainstPendingTransactionsTest() throws IOException {
+        //Given
+        TransactionService transactionService = newService(newJournal());
+        transactionService.processTransaction(getTransaction(DEBIT, 80));
+
+        //When
+        Assertions.assertThrows(NegativeBalanceException.class,
+                () -> transactionService.processTransaction(getTransaction(DEBIT, 30)));
+
+        //Then
+        newJournal();
+        Assertions.assertEquals(0, Money.of(20).compareTo(getTotal()));
+        Assertions.assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    public void tornRecordIsNotReplayedTest() throws IOException {
+        //Given
+        TransactionService transactionService = newService(newJournal());
+        transactionService.processTransaction(getTransaction(CREDIT, 50));
+        transactionService.processTransaction(getTransaction(CREDIT, 7));
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("transactions.journal").toFile(), "rw")) {
+            file.seek(32);
+            long second = 32 + 16 + file.readInt();
+            file.seek(second + 4);
+            int crc = file.readInt();
+            file.seek(second + 4);
+            file.writeInt(~crc);
+        }
+
+        //When
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(0, Money.of(150).compareTo(getTotal()));
+        Assertions.assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    public void transferIsNotReplayedWhenItsLastRecordIsTornTest() throws IOException {
+        //Given
+        balanceRepository.save(Balance.builder().accountId("3").total(Money.ZERO).build());
+        TransactionJournal journal = newJournal();
+        TransferService transferService = new TransferService(balanceRepository, transactionRepository, new AccountLockStripes(16),
+                balanceCache, event -> { }, new LedgerMetrics(new SimpleMeterRegistry()), Optional.of(journal), Optional.empty(), 3,
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+        transferService.transfer(Transfer.builder().fromAccountId("2").toAccountId("3").amount(Money.of(40)).build());
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("transactions.journal").toFile(), "rw")) {
+            file.seek(32);
+            long credit = 32 + 16 + file.readInt();
+            file.seek(credit + 4);
+            int crc = file.readInt();
+            file.seek(credit + 4);
+            file.writeInt(~crc);
+        }
+
+        //When
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(0, Money.of(100).compareTo(getTotal()));
+        Assertions.assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    public void journalWrapsAroundOnceFlushedTest() throws IOException {
+        //Given
+        TransactionJournal journal = newJournal();
+        TransactionService transactionService = newService(journal);
+
+        //When appending several times the size of the file, flushing along the way, and crashing with some pending
+        for (int i = 0; i < 5_000; i++) {
+            transactionService.processTransaction(getTransaction(CREDIT, 1));
+            if (i % 100 == 99 && i < 4_900) {
+                journal.flush();
+            }
+        }
+        Assertions.assertEquals(100, journal.pendingCount());
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(DataSize.ofKilobytes(64).toBytes(), Files.size(dir.resolve("transactions.journal")));
+        Assertions.assertEquals(0, Money.of(5_100).compareTo(getTotal()));
+        Assertions.assertEquals(5_000, transactionRepository.count());
+    }
+
+    @Test
+    public void journalFullOfPendingRecordsRejectsAppendsTest() throws IOException {
+        //Given
+        TransactionJournal journal = newJournal();
+        TransactionService transactionService = newService(journal);
+
+        //When
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> {
+            for (int i = 0; i < 5_000; i++) {
+                transactionService.processTransaction(getTransaction(CREDIT, 1));
+            }
+        });
+        int pending = journal.pendingCount();
+        journal.flush();
+        transactionService.processTransaction(getTransaction(CREDIT, 1));
+
+        //Then
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        Assertions.assertTrue(pending > 0 && pending < 5_000);
+        newJournal();
+        Assertions.assertEquals(0, Money.of(100 + pending + 1).compareTo(getTotal()));
+    }
+
+    @Test
+    public void journalsOfTwoInstancesApplyToTheSameBalanceTest() throws IOException {
+        //Given
+        TransactionJournal first = newJournal();
+        TransactionJournal second = newJournal("other-instance.journal");
+        for (int i = 0; i < 3; i++) {
+            newService(first).processTransaction(getTransaction(CREDIT, 10));
+        }
+        newService(second).processTransaction(getTransaction(CREDIT, 1));
+
+        //When
+        first.flush();
+        second.flush();
+        newJournal();
+        newJournal("other-instance.journal");
+
+        //Then
+        Assertions.assertNotEquals(first.getJournalId(), second.getJournalId());
+        Assertions.assertEquals(0, Money.of(131).compareTo(getTotal()));
+        Assertions.assertEquals(4, transactionRepository.count());
+    }
+
+    @Test
+    public void discardedRecordsOfDeletedAccountsAreNeverWrittenTest() throws IOException {
+        //Given
+        balanceRepository.save(Balance.builder().accountId("3").total(Money.ZERO).build());
+        TransactionJournal journal = newJournal();
+        TransactionService transactionService = newService(journal);
+        transactionService.processTransaction(getTransaction(CREDIT, 10));
+        transactionService.processTransaction(Transaction.builder().idUserAccount("3").type(CREDIT).amount(Money.of(5)).build());
+        transactionService.processTransaction(getTransaction(CREDIT, 20));
+
+        //When
+        long seq = journal.discard(List.of("2"));
+        transactionService.processTransaction(getTransaction(CREDIT, 1));
+        journal.flushThrough(seq);
+        journal.flush();
+        newJournal();
+
+        //Then
+        Assertions.assertEquals(0, Money.of(101).compareTo(getTotal()));
+        Assertions.assertEquals(0, Money.of(5).compareTo(balanceRepository.findByAccountId("3").get(0).getTotal()));
+        Assertions.assertEquals(2, transactionRepository.count());
+        Assertions.assertEquals(Money.ZERO, journal.pendingDelta("2"));
+    }
+
+    @Test
+    public void recordsNotSyncedYetAreNotFlushedTest() throws IOException {
+        //Given
+        TransactionJournal journal = newJournal();
+        long seq = journal.append(getTransaction(CREDIT, 50));
+
+        //When
+        int beforeSync = journal.flush();
+        journal.awaitDurable(seq);
+        int afterSync = journal.flush();
+
+        //Then
+        Assertions.assertEquals(0, beforeSync);
+        Assertions.assertEquals(1, afterSync);
+        Assertions.assertEquals(0, Money.of(150).compareTo(getTotal()));
+    }
+
+    @Test
+    public void flushBatchIsExtendedToTheEndOfATransferTest() throws IOException {
+        //Given a batch of one record and a transfer of two
+        balanceRepository.save(Balance.builder().accountId("3").total(Money.ZERO).build());
+        TransactionJournal journal = newJournal("transactions.journal", 1);
+        long seq = journal.appendAll(List.of(getTransaction(DEBIT, 30),
+                Transaction.builder().idUserAccount("3").type(CREDIT).amount(Money.of(30)).build()));
+        journal.awaitDurable(seq);
+
+        //When
+        int flushed = journal.flush();
+
+        //Then
+        Assertions.assertEquals(2, flushed);
+        Assertions.assertEquals(0, journal.pendingCount());
+        Assertions.assertEquals(0, Money.of(70).compareTo(getTotal()));
+        Assertions.assertEquals(0, Money.of(30).compareTo(balanceRepository.findByAccountId("3").get(0).getTotal()));
+    }
+
+    @Test
+    public void recordsOfAFailedSyncAreDroppedTest() throws IOException {
+        //Given
+        AtomicBoolean failing = new AtomicBoolean();
+        TransactionJournal journal = new TransactionJournal(balanceRepository, transactionRepository, new AccountLockStripes(16),
+                balanceCache, event -> { }, new LedgerMetrics(new SimpleMeterRegistry()), dir.resolve("transactions.journal"),
+                DataSize.ofKilobytes(64), Duration.ofMillis(20), 100) {
+            @Override
+            void force(int position, int length) {
+                if (failing.get()) {
+                    throw new UncheckedIOException(new IOException("disk gone"));
+                }
+                super.force(position, length);
+            }
+        };
+        journal.awaitDurable(journal.append(getTransaction(CREDIT, 50)));
+
+        //When
+        failing.set(true);
+        long seq = journal.append(getTransaction(CREDIT, 7));
+        ResponseStatusException failed = Assertions.assertThrows(ResponseStatusException.class, () -> journal.awaitDurable(seq));
+        failing.set(false);
+
+        //Then
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, failed.getStatusCode());
+        Assertions.assertEquals(0, Money.of(50).compareTo(journal.pendingDelta("2")));
+        Assertions.assertEquals(1, journal.pendingCount());
+        Assertions.assertThrows(ResponseStatusException.class, () -> journal.append(getTransaction(CREDIT, 1)));
+        Assertions.assertEquals(1, journal.flush());
+        Assertions.assertEquals(0, Money.of(150).compareTo(getTotal()));
+        newJournal();
+        Assertions.assertEquals(0, Money.of(150).compareTo(getTotal()));
+        Assertions.assertEquals(1, transactionRepository.count());
+    }
+
+    private TransactionJournal newJournal() throws IOException {
+        return newJournal("transactions.journal");
+    }
+
+    private TransactionJournal newJournal(String file) throws IOException {
+        return newJournal(file, 100);
+    }
+
+    private TransactionJournal newJournal(String file, int flushBatchSize) throws IOException {
+        return new TransactionJournal(balanceRepository, transactionRepository, new AccountLockStripes(16), balanceCache,
+                event -> { }, new LedgerMetrics(new SimpleMeterRegistry()), dir.resolve(file),
+                DataSize.ofKilobytes(64), Duration.ofMillis(20), flushBatchSize);
+    }
+
+    private TransactionService newService(TransactionJournal journal) {
+        return new TransactionService(balanceRepository, transactionRepository, new AccountLockStripes(16), balanceCache,
+                event -> { }, new LedgerMetrics(new SimpleMeterRegistry()), Optional.of(journal),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+    }
+
+    private void rewindCheckpoint() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("transactions.journal").toFile(), "rw")) {
+            file.seek(4);
+            file.writeInt(32);
+            file.writeLong(0);
+        }
+    }
+
+    private Money getTotal() {
+        return balanceRepository.findByAccountId("2").get(0).getTotal();
+    }
+
+    private static Transaction getTransaction(String type, long amount) {
+        return Transaction.builder().idUserAccount("2").type(type).amount(Money.of(amount)).build();
+    }
+}
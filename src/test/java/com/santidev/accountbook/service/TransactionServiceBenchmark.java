@@ -0,0 +1,98 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+import static com.santidev.accountbook.model.Transaction.DEBIT;
+
+/**
+ * Throughput of {@link TransactionService#processTransaction} against the in memory repositories,
+ * so it measures the service itself and not Mongo, and of {@link TransactionService#refreshBlance},
+ * the guarded balance update alone, credit then debit so the hot balance stays put.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionServiceBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final String HOT_ACCOUNT = "account-0";
+
+    private TransactionService transactionService;
+    private String[] accountIds;
+    private Transaction credit;
+    private Transaction debit;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryBalanceRepository balanceRepository = new InMemoryBalanceRepository();
+        InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = "account-" + i;
+            balanceRepository.save(Balance.builder().accountId(accountIds[i]).total(Money.of(1_000_000_000)).build());
+        }
+        transactionService = new TransactionService(balanceRepository, transactionRepository,
+                new AccountLockStripes(256), new BalanceCache(balanceRepository, ACCOUNTS, Duration.ofMinutes(5)),
+                event -> { }, new LedgerMetrics(new SimpleMeterRegistry()), Optional.empty(),
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+        credit = newTransaction(HOT_ACCOUNT, CREDIT);
+        debit = newTransaction(HOT_ACCOUNT, DEBIT);
+    }
+
+    @Benchmark
+    public Transaction processCredit() {
+        return transactionService.processTransaction(newTransaction(randomAccount(), CREDIT));
+    }
+
+    @Benchmark
+    public Transaction processDebit() {
+        return transactionService.processTransaction(newTransaction(randomAccount(), DEBIT));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Transaction processHotAccount() {
+        return transactionService.processTransaction(newTransaction(HOT_ACCOUNT, CREDIT));
+    }
+
+    @Benchmark
+    public void refreshBalance() {
+        transactionService.refreshBlance(credit);
+        transactionService.refreshBlance(debit);
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+    }
+
+    private static Transaction newTransaction(String accountId, String type) {
+        return Transaction.builder()
+                .idUserAccount(accountId)
+                .type(type)
+                .amount(Money.ofMinor(1234))
+                .effectiveDate(LocalDate.now())
+                .build();
+    }
+}
@@ -1,21 +1,40 @@
 package com.santidev.accountbook.service;
 
 import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
 import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.AccountAggregateRepository;
 import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
 import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.TransactionBatchItemResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.santidev.accountbook.model.Transaction.CREDIT;
 import static com.santidev.accountbook.model.Transaction.DEBIT;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,26 +44,35 @@ public class TransactionServiceTest {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private BalanceRepository balanceRepository;
 
+    @MockBean
+    private TransactionRepository transactionRepository;
+
+    @MockBean
+    private AccountAggregateRepository accountAggregateRepository;
+
     @Test
     public void refreshBalanceWithCreditTransactionTest() {
 
         //Given
         //I delete all Notifications
-        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getDummyBalance()));
+        when(balanceRepository.addToTotal("2", Money.of(20))).thenReturn(Optional.of(getDummyBalance()));
 
         //When
         Transaction transaction = getDummyTransaction(CREDIT, 20);
         transactionService.refreshBlance(transaction);
 
         //Then
-        verify(balanceRepository).save(any());
+        verify(balanceRepository).addToTotal("2", Money.of(20));
     }
 
     private Balance getDummyBalance() {
-        return Balance.builder().id("3").total(BigDecimal.ZERO).accountId("2").build();
+        return Balance.builder().id("3").total(Money.ZERO).accountId("2").build();
     }
 
     @Test
@@ -61,12 +89,207 @@ public class TransactionServiceTest {
         Assertions.assertThrows(NegativeBalanceException.class, () -> transactionService.processTransaction(transaction));
     }
 
+    @Test
+    public void negativeBalanceRejectionIsCountedTest() {
+
+        //Given
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getDummyBalanceWithMoney()));
+        double before = meterRegistry.counter("accountbook.ledger.rejections", "path", "single", "reason", "negative_balance").count();
+
+        //When
+        Transaction transaction = getDummyTransaction(DEBIT, 40);
+        Assertions.assertThrows(NegativeBalanceException.class, () -> transactionService.processTransaction(transaction));
+
+        //Then
+        Assertions.assertEquals(before + 1,
+                meterRegistry.counter("accountbook.ledger.rejections", "path", "single", "reason", "negative_balance").count());
+        Assertions.assertTrue(meterRegistry.get("accountbook.ledger.operation")
+                .tags("operation", "balance.write", "path", "single").timer().count() > 0);
+    }
+
+    @Test
+    public void concurrentDebitsAndCreditsKeepExactTotalTest() throws Exception {
+
+        //Given
+        AtomicReference<Money> total = new AtomicReference<>(Money.ZERO);
+        when(balanceRepository.addToTotal(eq("2"), any())).thenAnswer(inv -> {
+            Money delta = inv.getArgument(1);
+            while (true) {
+                Money current = total.get();
+                Money next = current.plus(delta);
+                if (next.signum() < 0) {
+                    return Optional.empty();
+                }
+                if (total.compareAndSet(current, next)) {
+                    return Optional.of(Balance.builder().id("3").total(next).accountId("2").build());
+                }
+            }
+        });
+        when(balanceRepository.findByAccountId("2"))
+                .thenAnswer(inv -> List.of(Balance.builder().id("3").total(total.get()).accountId("2").build()));
+        when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        //When
+        int operations = 4000;
+        AtomicInteger acceptedDebits = new AtomicInteger();
+        AtomicInteger rejectedDebits = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < operations; i++) {
+            boolean credit = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                if (credit) {
+                    transactionService.processTransaction(getDummyTransaction(CREDIT, 10));
+                    return;
+                }
+                try {
+                    transactionService.processTransaction(getDummyTransaction(DEBIT, 15));
+                    acceptedDebits.incrementAndGet();
+                } catch (NegativeBalanceException e) {
+                    rejectedDebits.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //Then
+        Money expected = Money.of(10L * operations / 2).minus(Money.of(15L * acceptedDebits.get()));
+        Assertions.assertEquals(0, expected.compareTo(total.get()));
+        Assertions.assertTrue(total.get().signum() >= 0);
+        Assertions.assertEquals(operations / 2, acceptedDebits.get() + rejectedDebits.get());
+        verify(transactionRepository, times(operations / 2 + acceptedDebits.get())).save(any());
+    }
+
+    @Test
+    public void batchValidatesRunningBalancePerAccountTest() {
+
+        //Given
+        when(balanceRepository.findByAccountIdIn(any())).thenReturn(List.of(getDummyBalanceWithMoney()));
+        when(transactionRepository.insert(anyList())).thenAnswer(inv -> {
+            List<Transaction> transactions = inv.getArgument(0);
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId("tx-" + i);
+            }
+            return transactions;
+        });
+
+        //When
+        List<TransactionBatchItemResult> results = transactionService.processBatch(List.of(
+                getDummyTransaction(DEBIT, 20),
+                getDummyTransaction(DEBIT, 20),
+                getDummyTransaction(CREDIT, 5),
+                getDummyTransaction(DEBIT, 15),
+                Transaction.builder().idUserAccount("4").type(CREDIT).amount(Money.of(7)).build()));
+
+        //Then
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(0).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.REJECTED, results.get(1).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(2).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(3).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(4).getStatus());
+        Assertions.assertEquals("tx-3", results.get(4).getTransaction().getId());
+        verify(balanceRepository).addToTotalsIfCovered(Map.of("2", Money.of(-30)));
+        verify(transactionRepository).insert(anyList());
+    }
+
+    @Test
+    public void batchRejectsItemsOfAccountSpentElsewhereTest() {
+
+        //Given
+        when(balanceRepository.findByAccountIdIn(any())).thenReturn(List.of(getDummyBalanceWithMoney()));
+        when(balanceRepository.addToTotalsIfCovered(any())).thenReturn(Set.of("2"));
+        when(transactionRepository.insert(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        //When
+        List<TransactionBatchItemResult> results = transactionService.processBatch(List.of(
+                getDummyTransaction(DEBIT, 20),
+                getDummyTransaction(CREDIT, 5),
+                Transaction.builder().idUserAccount("4").type(CREDIT).amount(Money.of(7)).build()));
+
+        //Then
+        Assertions.assertEquals(TransactionBatchItemResult.REJECTED, results.get(0).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.REJECTED, results.get(1).getStatus());
+        Assertions.assertEquals(TransactionBatchItemResult.ACCEPTED, results.get(2).getStatus());
+        verify(transactionRepository).insert(List.of(results.get(2).getTransaction()));
+    }
+
+    @Test
+    public void batchUndoesBalancesWhenInsertFailsTest() {
+
+        //Given
+        when(balanceRepository.findByAccountIdIn(any())).thenReturn(List.of(getDummyBalanceWithMoney()));
+        when(transactionRepository.insert(anyList())).thenThrow(new DataAccessResourceFailureException("insert failed"));
+
+        //When
+        Assertions.assertThrows(DataAccessResourceFailureException.class, () -> transactionService.processBatch(List.of(
+                getDummyTransaction(DEBIT, 20),
+                getDummyTransaction(CREDIT, 5))));
+
+        //Then
+        verify(balanceRepository).addToTotalsIfCovered(Map.of("2", Money.of(-15)));
+        verify(balanceRepository).addToTotals(Map.of("2", Money.of(15)));
+        verify(transactionRepository).deleteAllById(anyList());
+    }
+
+    @Test
+    public void debitOnALegacyTotalIsMigratedThenAppliedTest() {
+
+        //Given a total an older instance still wrote as Decimal128
+        when(balanceRepository.addToTotal("2", Money.of(-20)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(getDummyBalance()));
+        when(balanceRepository.migrateTotal("2")).thenReturn(true);
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //When
+        transactionService.processTransaction(getDummyTransaction(DEBIT, 20));
+
+        //Then
+        verify(balanceRepository, times(2)).addToTotal("2", Money.of(-20));
+        verify(balanceRepository).migrateTotal("2");
+        verify(transactionRepository).save(any());
+    }
+
+    @Test
+    public void creditTheBalanceDoesNotTakeIsNotSavedTest() {
+
+        //Given a balance the guarded update doesn't match, and that isn't a legacy total
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getDummyBalanceWithMoney()));
+
+        //When
+        Assertions.assertThrows(ResponseStatusException.class,
+                () -> transactionService.processTransaction(getDummyTransaction(CREDIT, 20)));
+
+        //Then
+        verify(balanceRepository).addToTotal("2", Money.of(20));
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void debitCoveredButNeverAppliedFailsAfterBoundedAttemptsTest() {
+
+        //Given a total that reads as covering the debit but is never matched
+        when(balanceRepository.findByAccountId("2")).thenReturn(List.of(getDummyBalanceWithMoney()));
+
+        //When
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> transactionService.processTransaction(getDummyTransaction(DEBIT, 20)));
+
+        //Then
+        Assertions.assertEquals(500, e.getStatusCode().value());
+        verify(balanceRepository, times(TransactionService.MAX_BALANCE_ATTEMPTS)).addToTotal("2", Money.of(-20));
+        verify(transactionRepository, never()).save(any());
+    }
+
     private static Transaction getDummyTransaction(String type, int amount) {
-        return Transaction.builder().idUserAccount("2").type(type).amount(new BigDecimal(amount)).build();
+        return Transaction.builder().idUserAccount("2").type(type).amount(Money.of(amount)).build();
     }
 
     private Balance getDummyBalanceWithMoney() {
-        return Balance.builder().id("3").total(new BigDecimal(30)).accountId("2").build();
+        return Balance.builder().id("3").total(Money.of(30)).accountId("2").build();
     }
 
 }
@@ -0,0 +1,117 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.repository.BalanceRepository;
+import com.santidev.accountbook.repository.TransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link TransferService#transfer} with many threads moving money in both directions
+ * between a small hot set of accounts, so most transfers wait on the locks of another one. The in
+ * memory repositories sleep {@code mongoLatencyMillis} per call to stand in for a Mongo round trip.
+ * After every iteration the money of all accounts is added up and the run fails if any was lost,
+ * created or went negative; a deadlock shows up as an iteration that never ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferBenchmark {
+
+    private static final long INITIAL_TOTAL = 1_000;
+
+    @Param({"2", "8", "64"})
+    public int hotAccounts;
+
+    @Param({"0", "1"})
+    public long mongoLatencyMillis;
+
+    private InMemoryBalanceRepository balances;
+    private TransferService transferService;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        balances = new InMemoryBalanceRepository();
+        accountIds = new String[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            accountIds[i] = "account-" + i;
+            balances.save(Balance.builder().accountId(accountIds[i]).total(Money.of(INITIAL_TOTAL)).build());
+        }
+        BalanceRepository balanceRepository = withLatency(balances, BalanceRepository.class);
+        TransactionRepository transactionRepository = withLatency(new InMemoryTransactionRepository(), TransactionRepository.class);
+        transferService = new TransferService(balanceRepository, transactionRepository, new AccountLockStripes(256),
+                new BalanceCache(balanceRepository, hotAccounts, Duration.ofMinutes(5)), event -> { },
+                new LedgerMetrics(new SimpleMeterRegistry()), Optional.empty(), Optional.empty(), 3,
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkNoMoneyWasLost() {
+        long total = 0;
+        for (String accountId : accountIds) {
+            Money balance = balances.findByAccountId(accountId).get(0).getTotal();
+            if (balance.isNegative()) {
+                throw new IllegalStateException("Balance of " + accountId + " is negative: " + balance);
+            }
+            total += balance.getMinorUnits();
+        }
+        if (total != Money.of(INITIAL_TOTAL * hotAccounts).getMinorUnits()) {
+            throw new IllegalStateException("Money was lost or created, the accounts add up to " + Money.ofMinor(total));
+        }
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Transfer transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotAccounts);
+        int to = (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        try {
+            return transferService.transfer(Transfer.builder()
+                    .fromAccountId(accountIds[from])
+                    .toAccountId(accountIds[to])
+                    .amount(Money.ofMinor(1 + random.nextInt(10_000)))
+                    .build());
+        } catch (NegativeBalanceException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T withLatency(T repository, Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() != Object.class && mongoLatencyMillis > 0) {
+                Thread.sleep(mongoLatencyMillis);
+            }
+            try {
+                return method.invoke(repository, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
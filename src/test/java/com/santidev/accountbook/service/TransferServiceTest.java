@@ -0,0 +1,203 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.rest.Exceptions.NegativeBalanceException;
+import com.santidev.accountbook.service.dto.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransferServiceTest {
+
+    private static final int HOT_ACCOUNTS = 4;
+
+    private InMemoryBalanceRepository balanceRepository;
+    private InMemoryTransactionRepository transactionRepository;
+    private TransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = new InMemoryBalanceRepository();
+        transactionRepository = new InMemoryTransactionRepository();
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            balanceRepository.save(Balance.builder().accountId("account-" + i).total(Money.of(100)).build());
+        }
+        transferService = newService(transactionRepository);
+    }
+
+    @Test
+    public void transferMovesTheAmountAndLinksBothTransactionsTest() {
+        //When
+        Transfer result = transferService.transfer(getTransfer("account-0", "account-1", 30));
+
+        //Then
+        Assertions.assertEquals(Money.of(70), getTotal("account-0"));
+        Assertions.assertEquals(Money.of(130), getTotal("account-1"));
+        Assertions.assertNotNull(result.getId());
+        Assertions.assertEquals(result.getId(), result.getDebit().getTransferId());
+        Assertions.assertEquals(result.getId(), result.getCredit().getTransferId());
+        Transfer found = transferService.findTransfer(result.getId()).orElseThrow();
+        Assertions.assertEquals("account-0", found.getFromAccountId());
+        Assertions.assertEquals("account-1", found.getToAccountId());
+        Assertions.assertEquals(Money.of(30), found.getAmount());
+    }
+
+    @Test
+    public void transferWithoutEnoughMoneyChangesNothingTest() {
+        //When
+        Assertions.assertThrows(NegativeBalanceException.class,
+                () -> transferService.transfer(getTransfer("account-0", "account-1", 101)));
+
+        //Then
+        Assertions.assertEquals(Money.of(100), getTotal("account-0"));
+        Assertions.assertEquals(Money.of(100), getTotal("account-1"));
+        Assertions.assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    public void transferToUnknownAccountUndoesTheDebitTest() {
+        //When
+        ResponseStatusException ex = Assertions.assertThrows(ResponseStatusException.class,
+                () -> transferService.transfer(getTransfer("account-0", "missing", 30)));
+
+        //Then
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        Assertions.assertEquals(Money.of(100), getTotal("account-0"));
+        Assertions.assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    public void failedInsertUndoesBothBalancesTest() {
+        //Given
+        TransferService failingService = newService(new InMemoryTransactionRepository() {
+            @Override
+            public <S extends Transaction> List<S> insert(Iterable<S> entities) {
+                throw new DataAccessResourceFailureException("Mongo is down");
+            }
+        });
+
+        //When
+        Assertions.assertThrows(DataAccessResourceFailureException.class,
+                () -> failingService.transfer(getTransfer("account-0", "account-1", 30)));
+
+        //Then
+        Assertions.assertEquals(Money.of(100), getTotal("account-0"));
+        Assertions.assertEquals(Money.of(100), getTotal("account-1"));
+    }
+
+    @Test
+    public void reversalThatMatchesNoBalanceIsRetriedThenCountedTest() {
+        //Given
+        AtomicInteger reversals = new AtomicInteger();
+        balanceRepository = new InMemoryBalanceRepository() {
+            @Override
+            public Optional<Balance> addToTotal(String accountId, Money delta) {
+                if ("account-1".equals(accountId) && delta.signum() < 0) {
+                    reversals.incrementAndGet();
+                    return Optional.empty();
+                }
+                return super.addToTotal(accountId, delta);
+            }
+        };
+        balanceRepository.save(Balance.builder().accountId("account-0").total(Money.of(100)).build());
+        balanceRepository.save(Balance.builder().accountId("account-1").total(Money.of(100)).build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransferService failingService = newService(new InMemoryTransactionRepository() {
+            @Override
+            public <S extends Transaction> List<S> insert(Iterable<S> entities) {
+                throw new DataAccessResourceFailureException("Mongo is down");
+            }
+        }, registry);
+
+        //When
+        DataAccessResourceFailureException ex = Assertions.assertThrows(DataAccessResourceFailureException.class,
+                () -> failingService.transfer(getTransfer("account-0", "account-1", 30)));
+
+        //Then
+        Assertions.assertEquals(3, reversals.get());
+        Assertions.assertEquals(1, ex.getSuppressed().length);
+        Assertions.assertEquals(1, registry.get("accountbook.ledger.errors.swallowed")
+                .tag("operation", "compensateTransfer").counter().count());
+        Assertions.assertEquals(Money.of(100), getTotal("account-0"));
+    }
+
+    @Test
+    public void concurrentTransfersBetweenHotAccountsDoNotDeadlockOrLoseMoneyTest() throws Exception {
+        //Given
+        int threads = 8;
+        int transfersPerThread = 1_000;
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        //When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = random.nextInt(HOT_ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+                    try {
+                        transferService.transfer(getTransfer("account-" + from, "account-" + to, 1 + random.nextInt(20)));
+                        completed.incrementAndGet();
+                    } catch (NegativeBalanceException e) {
+                        // the source ran dry, it's refilled by the other transfers
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+
+        //Then
+        Assertions.assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Transfers deadlocked");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        Money total = Money.ZERO;
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            Assertions.assertFalse(getTotal("account-" + i).isNegative());
+            total = total.plus(getTotal("account-" + i));
+        }
+        Assertions.assertEquals(Money.of(100L * HOT_ACCOUNTS), total);
+        Assertions.assertEquals(2L * completed.get(), transactionRepository.count());
+    }
+
+    private TransferService newService(InMemoryTransactionRepository transactions) {
+        return newService(transactions, new SimpleMeterRegistry());
+    }
+
+    private TransferService newService(InMemoryTransactionRepository transactions, SimpleMeterRegistry registry) {
+        return new TransferService(balanceRepository, transactions, new AccountLockStripes(16),
+                new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5)), event -> { },
+                new LedgerMetrics(registry), Optional.empty(), Optional.empty(), 3,
+                new AccountRegistry(new InMemoryUserAccountRepository(), Duration.ofMinutes(1), 100000));
+    }
+
+    private Money getTotal(String accountId) {
+        return balanceRepository.findByAccountId(accountId).get(0).getTotal();
+    }
+
+    private static Transfer getTransfer(String from, String to, long amount) {
+        return Transfer.builder().fromAccountId(from).toAccountId(to).amount(Money.of(amount)).build();
+    }
+}
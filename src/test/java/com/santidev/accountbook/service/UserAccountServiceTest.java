@@ -0,0 +1,157 @@
+package com.santidev.accountbook.service;
+
+import com.santidev.accountbook.model.AccountAggregate;
+import com.santidev.accountbook.model.Balance;
+import com.santidev.accountbook.model.BalanceSnapshot;
+import com.santidev.accountbook.model.Money;
+import com.santidev.accountbook.model.Transaction;
+import com.santidev.accountbook.model.UserAccount;
+import com.santidev.accountbook.repository.inmemory.InMemoryAccountAggregateRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryBalanceSnapshotRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryTransactionRepository;
+import com.santidev.accountbook.repository.inmemory.InMemoryUserAccountRepository;
+import com.santidev.accountbook.service.dto.UserAccountBatchItemResult;
+import com.santidev.accountbook.service.dto.UserAccountDeleteReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static com.santidev.accountbook.model.Transaction.CREDIT;
+
+public class UserAccountServiceTest {
+
+    private InMemoryUserAccountRepository userAccountRepository;
+    private InMemoryBalanceRepository balanceRepository;
+    private InMemoryTransactionRepository transactionRepository;
+    private InMemoryAccountAggregateRepository accountAggregateRepository;
+    private InMemoryBalanceSnapshotRepository balanceSnapshotRepository;
+    private AccountRegistry accountRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userAccountRepository = new InMemoryUserAccountRepository();
+        balanceRepository = new InMemoryBalanceRepository();
+        transactionRepository = new InMemoryTransactionRepository();
+        accountAggregateRepository = new InMemoryAccountAggregateRepository();
+        balanceSnapshotRepository = new InMemoryBalanceSnapshotRepository();
+        accountRegistry = new AccountRegistry(userAccountRepository, Duration.ofMinutes(1), 100000);
+        accountRegistry.load();
+    }
+
+    @Test
+    public void createAllWritesAccountsAndZeroBalancesInChunksTest() {
+        //Given
+        List<UserAccount> userAccounts = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            userAccounts.add(UserAccount.builder().name("account " + i).disabled(false).build());
+        }
+        userAccounts.add(UserAccount.builder().id("taken").name("with id").build());
+
+        //When
+        List<UserAccountBatchItemResult> results = newService(10, 3).createAll(userAccounts);
+
+        //Then
+        Assertions.assertEquals(26, results.size());
+        for (int i = 0; i < 25; i++) {
+            UserAccountBatchItemResult result = results.get(i);
+            Assertions.assertEquals(i, result.getIndex());
+            Assertions.assertEquals(UserAccountBatchItemResult.CREATED, result.getStatus());
+            String id = result.getUserAccount().getId();
+            Assertions.assertTrue(userAccountRepository.existsById(id));
+            Assertions.assertEquals(Money.ZERO, balanceRepository.findByAccountId(id).get(0).getTotal());
+            Assertions.assertNull(accountRegistry.rejection(id));
+        }
+        Assertions.assertEquals(UserAccountBatchItemResult.REJECTED, results.get(25).getStatus());
+        Assertions.assertEquals(25, userAccountRepository.count());
+        Assertions.assertEquals(25, balanceRepository.count());
+    }
+
+    @Test
+    public void failedChunkIsRemovedAndRejectedTest() {
+        //Given
+        balanceRepository = new InMemoryBalanceRepository() {
+            @Override
+            public <S extends Balance> List<S> insert(Iterable<S> entities) {
+                throw new DataIntegrityViolationException("balance write failed");
+            }
+        };
+        List<UserAccount> userAccounts = List.of(UserAccount.builder().name("a").build(), UserAccount.builder().name("b").build());
+
+        //When
+        List<UserAccountBatchItemResult> results = newService(10, 1).createAll(userAccounts);
+
+        //Then
+        Assertions.assertTrue(results.stream().allMatch(r -> UserAccountBatchItemResult.REJECTED.equals(r.getStatus())));
+        Assertions.assertEquals("Not created: balance write failed", results.get(0).getReason());
+        Assertions.assertEquals(0, userAccountRepository.count());
+    }
+
+    @Test
+    public void deleteAllRemovesEverythingOfTheAccountsTest() {
+        //Given
+        UserAccountService userAccountService = newService(1, 1);
+        List<String> ids = userAccountService.createAll(List.of(UserAccount.builder().name("gone").build(),
+                UserAccount.builder().name("kept").build())).stream().map(r -> r.getUserAccount().getId()).toList();
+        for (String id : ids) {
+            transactionRepository.save(Transaction.builder().idUserAccount(id).type(CREDIT).amount(Money.of(5))
+                    .effectiveDate(LocalDate.of(2020, 1, 1)).build());
+            transactionRepository.save(Transaction.builder().idUserAccount(id).type(CREDIT).amount(Money.of(5))
+                    .effectiveDate(LocalDate.now()).build());
+            accountAggregateRepository.save(AccountAggregate.builder().accountId(id).granularity("day").bucket(LocalDate.now()).build());
+            balanceSnapshotRepository.save(BalanceSnapshot.builder().accountId(id).effectiveDate(LocalDate.now()).total(Money.of(10)).build());
+        }
+        transactionRepository.archiveThrough(LocalDate.of(2020, 12, 31), 10);
+
+        //When
+        UserAccountDeleteReport report = userAccountService.deleteAll(List.of(ids.get(0), ids.get(0), "missing"));
+
+        //Then
+        Assertions.assertEquals(1, report.getAccounts());
+        Assertions.assertEquals(1, report.getBalances());
+        Assertions.assertEquals(2, report.getTransactions());
+        Assertions.assertEquals(1, report.getAggregates());
+        Assertions.assertEquals(1, report.getSnapshots());
+        Assertions.assertFalse(userAccountRepository.existsById(ids.get(0)));
+        Assertions.assertTrue(userAccountRepository.existsById(ids.get(1)));
+        Assertions.assertEquals(2, transactionRepository.streamAllBy().count());
+        Assertions.assertEquals(1, balanceRepository.count());
+        Assertions.assertEquals("Unknown account " + ids.get(0), accountRegistry.rejection(ids.get(0)));
+    }
+
+    @Test
+    public void failedDeleteKeepsTheAccountsInTheRegistryTest() {
+        //Given
+        UserAccountService userAccountService = newService(10, 1);
+        String id = userAccountService.createAll(List.of(UserAccount.builder().name("kept").build())).get(0).getUserAccount().getId();
+        transactionRepository = new InMemoryTransactionRepository() {
+            @Override
+            public long deleteByAccountIdIn(Collection<String> accountIds) {
+                throw new DataAccessResourceFailureException("Mongo is down");
+            }
+        };
+        UserAccountService failingService = newService(10, 1);
+
+        //When
+        Assertions.assertThrows(DataAccessResourceFailureException.class, () -> failingService.deleteAll(List.of(id)));
+
+        //Then
+        Assertions.assertTrue(userAccountRepository.existsById(id));
+        Assertions.assertNull(accountRegistry.rejection(id));
+    }
+
+    private UserAccountService newService(int chunkSize, int parallelism) {
+        return new UserAccountService(userAccountRepository, balanceRepository, transactionRepository, accountAggregateRepository,
+                balanceSnapshotRepository, new AccountLockStripes(16), new BalanceCache(balanceRepository, 100, Duration.ofMinutes(5)),
+                accountRegistry, Optional.empty(), chunkSize, parallelism);
+    }
+}